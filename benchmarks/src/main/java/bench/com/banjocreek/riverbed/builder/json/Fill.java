@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bench.com.banjocreek.riverbed.builder.json;
+
+import com.banjocreek.riverbed.builder.json.JObjectBuilder;
+
+/**
+ * Builder population shared by both builder families.
+ */
+final class Fill {
+
+    /**
+     * Set one member per key, cycling through number, string and boolean
+     * values.
+     */
+    static <Z extends JObjectBuilder<Z>> Z members(final Z builder,
+            final String[] keys) {
+        Z rval = builder;
+        for (int i = 0; i < keys.length; i++) {
+            switch (i % 3) {
+            case 0:
+                rval = rval.set(keys[i], i);
+                break;
+            case 1:
+                rval = rval.set(keys[i], keys[i]);
+                break;
+            default:
+                rval = rval.set(keys[i], true);
+            }
+        }
+        return rval;
+    }
+
+    private Fill() {
+    }
+
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bench.com.banjocreek.riverbed.builder.json;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.banjocreek.riverbed.builder.json.immutable.ImmutableJsonBuilders;
+import com.banjocreek.riverbed.builder.json.immutable.JAry;
+import com.banjocreek.riverbed.builder.json.immutable.JObj;
+
+/**
+ * Workloads built with the immutable builders.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ImmutableBuilderBenchmark {
+
+    /**
+     * A shared base object with defaults, from which each operation derives.
+     */
+    @State(Scope.Benchmark)
+    public static class Base {
+
+        JObj<JsonObject, JsonObject> builder;
+
+        @Setup
+        public void setup(final Workload.Large large) {
+            this.builder = ImmutableJsonBuilders.object().withDefault(
+                    large.defaults);
+        }
+
+    }
+
+    private static <R, P> P nest(final JAry<R, P> builder, final int depth) {
+        final JAry<R, P> filled = builder.add(depth);
+        return depth == 0 ? filled.done() : nest(filled.array(), depth - 1)
+                .done();
+    }
+
+    private static <R, P> P nest(final JObj<R, P> builder, final int depth) {
+        final JObj<R, P> filled = builder.set("level", depth);
+        return depth == 0 ? filled.done() : nest(filled.object("child"),
+                depth - 1).done();
+    }
+
+    @Benchmark
+    public JsonObject continueArray(final Workload.Chain chain) {
+        JObj<JsonObject, JsonObject> b = ImmutableJsonBuilders.object()
+                .array("events").done();
+        for (int i = 0; i < chain.length; i++) {
+            b = b.continueArray("events").add(i).done();
+        }
+        return b.build();
+    }
+
+    @Benchmark
+    public JsonArray deepArray(final Workload.Deep deep) {
+        return nest(ImmutableJsonBuilders.array(), deep.depth);
+    }
+
+    @Benchmark
+    public JsonObject deepObject(final Workload.Deep deep) {
+        return nest(ImmutableJsonBuilders.object(), deep.depth);
+    }
+
+    @Benchmark
+    public JsonObject derivedFromDefaults(final Base base) {
+        return base.builder.set("id", "derived").build();
+    }
+
+    @Benchmark
+    public JsonObject flatObject(final Workload.Wide wide) {
+        return Fill.members(ImmutableJsonBuilders.object(), wide.keys).build();
+    }
+
+    @Benchmark
+    public JsonObject updateArray(final Workload.Chain chain) {
+        JObj<JsonObject, JsonObject> b = ImmutableJsonBuilders.object();
+        for (final JsonArray element : chain.elements) {
+            b = b.update("events", element);
+        }
+        return b.build();
+    }
+
+    @Benchmark
+    public JsonObject withDefault(final Workload.Large large) {
+        return ImmutableJsonBuilders.object().withDefault(large.defaults)
+                .set("id", "defaulted").build();
+    }
+
+    @Benchmark
+    public JsonObject withValue(final Workload.Large large) {
+        return ImmutableJsonBuilders.object().withValue(large.values)
+                .build();
+    }
+
+}
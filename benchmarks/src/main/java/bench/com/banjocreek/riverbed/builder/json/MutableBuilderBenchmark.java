@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bench.com.banjocreek.riverbed.builder.json;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.banjocreek.riverbed.builder.json.mutable.JAry;
+import com.banjocreek.riverbed.builder.json.mutable.JObj;
+import com.banjocreek.riverbed.builder.json.mutable.MutableJsonBuilders;
+
+/**
+ * Workloads built with the mutable builders.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MutableBuilderBenchmark {
+
+    private static <P> P nest(final JAry<P> builder, final int depth) {
+        builder.add(depth);
+        if (depth > 0) {
+            nest(builder.array(), depth - 1);
+        }
+        return builder.merge();
+    }
+
+    private static <P> P nest(final JObj<P> builder, final int depth) {
+        builder.set("level", depth);
+        if (depth > 0) {
+            nest(builder.object("child"), depth - 1);
+        }
+        return builder.merge();
+    }
+
+    @Benchmark
+    public JsonObject continueArray(final Workload.Chain chain) {
+        final JObj<JsonObject> b = MutableJsonBuilders.object();
+        b.array("events").merge();
+        for (int i = 0; i < chain.length; i++) {
+            b.continueArray("events").add(i).merge();
+        }
+        return b.merge();
+    }
+
+    @Benchmark
+    public JsonArray deepArray(final Workload.Deep deep) {
+        return nest(MutableJsonBuilders.array(), deep.depth);
+    }
+
+    @Benchmark
+    public JsonObject deepObject(final Workload.Deep deep) {
+        return nest(MutableJsonBuilders.object(), deep.depth);
+    }
+
+    @Benchmark
+    public JsonObject flatObject(final Workload.Wide wide) {
+        return Fill.members(MutableJsonBuilders.object(), wide.keys).merge();
+    }
+
+    @Benchmark
+    public JsonObject updateArray(final Workload.Chain chain) {
+        final JObj<JsonObject> b = MutableJsonBuilders.object();
+        for (final JsonArray element : chain.elements) {
+            b.update("events", element);
+        }
+        return b.merge();
+    }
+
+    @Benchmark
+    public JsonObject withDefault(final Workload.Large large) {
+        return MutableJsonBuilders.object().withDefault(large.defaults)
+                .set("id", "defaulted").merge();
+    }
+
+    @Benchmark
+    public JsonObject withValue(final Workload.Large large) {
+        return MutableJsonBuilders.object().withValue(large.values).merge();
+    }
+
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bench.com.banjocreek.riverbed.builder.json;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Baseline: the same workloads built directly with the javax.json builders.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RawBuilderBenchmark {
+
+    private static JsonArray nestArray(final int depth) {
+        final JsonArrayBuilder b = Json.createArrayBuilder().add(depth);
+        if (depth > 0) {
+            b.add(nestArray(depth - 1));
+        }
+        return b.build();
+    }
+
+    private static JsonObject nestObject(final int depth) {
+        final JsonObjectBuilder b = Json.createObjectBuilder().add("level",
+                depth);
+        if (depth > 0) {
+            b.add("child", nestObject(depth - 1));
+        }
+        return b.build();
+    }
+
+    @Benchmark
+    public JsonObject continueArray(final Workload.Chain chain) {
+        final JsonArrayBuilder events = Json.createArrayBuilder();
+        for (int i = 0; i < chain.length; i++) {
+            events.add(i);
+        }
+        return Json.createObjectBuilder().add("events", events).build();
+    }
+
+    @Benchmark
+    public JsonArray deepArray(final Workload.Deep deep) {
+        return nestArray(deep.depth);
+    }
+
+    @Benchmark
+    public JsonObject deepObject(final Workload.Deep deep) {
+        return nestObject(deep.depth);
+    }
+
+    @Benchmark
+    public JsonObject flatObject(final Workload.Wide wide) {
+        final JsonObjectBuilder b = Json.createObjectBuilder();
+        for (int i = 0; i < wide.keys.length; i++) {
+            switch (i % 3) {
+            case 0:
+                b.add(wide.keys[i], i);
+                break;
+            case 1:
+                b.add(wide.keys[i], wide.keys[i]);
+                break;
+            default:
+                b.add(wide.keys[i], true);
+            }
+        }
+        return b.build();
+    }
+
+    @Benchmark
+    public JsonObject withDefault(final Workload.Large large) {
+        final JsonObjectBuilder b = Json.createObjectBuilder();
+        large.defaults.forEach(b::add);
+        return b.add("id", "defaulted").build();
+    }
+
+    @Benchmark
+    public JsonObject withValue(final Workload.Large large) {
+        final JsonObjectBuilder b = Json.createObjectBuilder();
+        large.values.forEach(b::add);
+        return b.build();
+    }
+
+}
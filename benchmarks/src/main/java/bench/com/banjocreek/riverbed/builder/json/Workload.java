@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bench.com.banjocreek.riverbed.builder.json;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Workload shapes shared by the benchmarks of each builder family, so that
+ * every family is measured against identical inputs.
+ */
+public final class Workload {
+
+    /**
+     * A long run of single element appends to one array member.
+     */
+    @State(Scope.Benchmark)
+    public static class Chain {
+
+        JsonArray[] elements;
+
+        @Param({ "100", "1000", "10000" })
+        public int length;
+
+        @Setup
+        public void setup() {
+            this.elements = new JsonArray[this.length];
+            for (int i = 0; i < this.length; i++) {
+                this.elements[i] = Json.createArrayBuilder().add(i).build();
+            }
+        }
+
+    }
+
+    /**
+     * Structures nested to a given depth.
+     */
+    @State(Scope.Benchmark)
+    public static class Deep {
+
+        @Param({ "8", "64", "256" })
+        public int depth;
+
+    }
+
+    /**
+     * Large default and value objects whose keys half overlap.
+     */
+    @State(Scope.Benchmark)
+    public static class Large {
+
+        JsonObject defaults;
+
+        @Param({ "64", "1024" })
+        public int size;
+
+        JsonObject values;
+
+        @Setup
+        public void setup() {
+            final String[] keys = keys(this.size + this.size / 2);
+            final JsonObjectBuilder d = Json.createObjectBuilder();
+            final JsonObjectBuilder v = Json.createObjectBuilder();
+            for (int i = 0; i < this.size; i++) {
+                d.add(keys[i], i);
+                v.add(keys[i + this.size / 2], keys[i]);
+            }
+            this.defaults = d.build();
+            this.values = v.build();
+        }
+
+    }
+
+    /**
+     * Flat objects of a given width with mixed member types.
+     */
+    @State(Scope.Benchmark)
+    public static class Wide {
+
+        String[] keys;
+
+        @Param({ "4", "64", "1024" })
+        public int width;
+
+        @Setup
+        public void setup() {
+            this.keys = keys(this.width);
+        }
+
+    }
+
+    static String[] keys(final int count) {
+        final String[] rval = new String[count];
+        for (int i = 0; i < count; i++) {
+            rval[i] = "member" + i;
+        }
+        return rval;
+    }
+
+    private Workload() {
+    }
+
+}
@@ -19,6 +19,10 @@ package com.banjocreek.riverbed.builder.json;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.function.Supplier;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
 import javax.json.JsonArray;
 import javax.json.JsonValue;
@@ -117,6 +121,118 @@ public interface JArrayBuilder<Z extends JArrayBuilder<Z>> {
      */
     public Z add(final String value);
 
+    /**
+     * Add a value to the end of the array, computed only when the builder is
+     * built or written.
+     *
+     * @param value
+     *            supplies the value to add. Must not be null and must not
+     *            return null.
+     *
+     * @return mutated builder
+     *
+     * @throws NullPointerException
+     *             if value is null.
+     */
+    public Z add(final Supplier<? extends JsonValue> value);
+
+    /**
+     * Add values to the end of the array, in order. The values are held
+     * together rather than one at a time.
+     *
+     * @param values
+     *            values to add.
+     *
+     * @return mutated builder
+     */
+    public Z addAll(final boolean[] values);
+
+    /**
+     * Add values to the end of the array, in order. The values are held
+     * together rather than one at a time.
+     *
+     * @param values
+     *            values to add.
+     *
+     * @return mutated builder
+     *
+     * @throws NumberFormatException
+     *             if any value is infinite or not a number.
+     */
+    public Z addAll(final double[] values);
+
+    /**
+     * Add values to the end of the array, in order. The values are held
+     * together rather than one at a time.
+     *
+     * @param values
+     *            values to add.
+     *
+     * @return mutated builder
+     *
+     * @throws NumberFormatException
+     *             if any value is infinite or not a number.
+     */
+    public Z addAll(final DoubleStream values);
+
+    /**
+     * Add values to the end of the array, in order. The values are held
+     * together rather than one at a time.
+     *
+     * @param values
+     *            values to add.
+     *
+     * @return mutated builder
+     */
+    public Z addAll(final int[] values);
+
+    /**
+     * Add values to the end of the array, in order. The values are held
+     * together rather than one at a time.
+     *
+     * @param values
+     *            values to add.
+     *
+     * @return mutated builder
+     */
+    public Z addAll(final IntStream values);
+
+    /**
+     * Add values to the end of the array, in order. The values are held
+     * together rather than one at a time.
+     *
+     * @param values
+     *            values to add.
+     *
+     * @return mutated builder
+     */
+    public Z addAll(final long[] values);
+
+    /**
+     * Add values to the end of the array, in order. The values are held
+     * together rather than one at a time.
+     *
+     * @param values
+     *            values to add.
+     *
+     * @return mutated builder
+     */
+    public Z addAll(final LongStream values);
+
+    /**
+     * Add values to the end of the array, in order. The values are held
+     * together rather than one at a time.
+     *
+     * @param values
+     *            values to add.
+     *
+     * @return mutated builder
+     *
+     * @throws NullPointerException
+     *             if any value is null.
+     */
+    public Z addAll(final String[] values);
+
     /**
      * Add a JSON null value to the end of the array.
      *
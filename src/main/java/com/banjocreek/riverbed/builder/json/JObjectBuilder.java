@@ -19,6 +19,8 @@ package com.banjocreek.riverbed.builder.json;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
 
 import javax.json.JsonArray;
 import javax.json.JsonObject;
@@ -191,6 +193,48 @@ public interface JObjectBuilder<Z extends JObjectBuilder<Z>> {
      */
     public Z set(final String name, final String value);
 
+    /**
+     * Set a value for a key, computed only when the builder is built or
+     * written. The supplier is not called if the key is removed or replaced
+     * first. Continuing an array or object at the key replaces the supplied
+     * value.
+     *
+     * @param name
+     *            the key of the value to set.
+     *
+     * @param value
+     *            supplies the value to set. Must not be null and must not
+     *            return null.
+     *
+     * @return mutated builder
+     *
+     * @throws NullPointerException
+     *             if name or value is null.
+     */
+    public Z set(final String name, final Supplier<? extends JsonValue> value);
+
+    /**
+     * Set a value for a key that is produced by a completion stage. Building
+     * or writing the builder waits for the stage; use the builders'
+     * asynchronous build operations to build only once every such value has
+     * completed. An array or object continued or updated at the key is
+     * combined with the value the stage produces.
+     *
+     * @param name
+     *            the key of the value to set.
+     *
+     * @param value
+     *            produces the value to set. Must not be null and must not
+     *            complete with null.
+     *
+     * @return mutated builder
+     *
+     * @throws NullPointerException
+     *             if name or value is null.
+     */
+    public Z setAsync(final String name,
+            final CompletionStage<? extends JsonValue> value);
+
     /**
      * Set the JSON null value for a key.
      *
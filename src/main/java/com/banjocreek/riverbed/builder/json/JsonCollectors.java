@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collector;
+
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonBuilderFactory;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonValue;
+
+import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
+
+/**
+ * <p>
+ * Collectors producing JSON arrays and objects from streams. The collectors
+ * preserve encounter order and may be used with parallel streams: partial
+ * results are combined by linking them, without copying, and the result is
+ * assembled once, when the stream completes.
+ * </p>
+ *
+ * <p>
+ * Within an object, a later member replaces an earlier member of the same
+ * name, in encounter order.
+ * </p>
+ */
+public interface JsonCollectors {
+
+    /**
+     * Collect values into an array.
+     *
+     * @param <T>
+     *            stream element type
+     *
+     * @param mapper
+     *            produces the array element for each stream element. Must
+     *            not return null.
+     *
+     * @return collector.
+     */
+    public static <T> Collector<T, ?, JsonArray> toJsonArray(
+            final Function<? super T, ? extends JsonValue> mapper) {
+        return toJsonArray(JsonOp.defaultFactory(), mapper);
+    }
+
+    /**
+     * Collect values into an array created through a factory.
+     *
+     * @param <T>
+     *            stream element type
+     *
+     * @param factory
+     *            factory used to create the array. Must not be null.
+     *
+     * @param mapper
+     *            produces the array element for each stream element. Must
+     *            not return null.
+     *
+     * @return collector.
+     *
+     * @throws NullPointerException
+     *             if factory is null.
+     */
+    public static <T> Collector<T, ?, JsonArray> toJsonArray(
+            final JsonBuilderFactory factory,
+            final Function<? super T, ? extends JsonValue> mapper) {
+        Objects.requireNonNull(factory);
+        return Collector.<T, Segments<JsonValue>, JsonArray> of(
+                Segments::new, (s, t) -> s.add(mapper.apply(t)),
+                Segments::append, s -> {
+                    final JsonArrayBuilder jbuf = JsonOp.arrayBuilder(factory,
+                            s.size());
+                    s.forEach(jbuf::add);
+                    return jbuf.build();
+                });
+    }
+
+    /**
+     * Collect members into an object.
+     *
+     * @param <T>
+     *            stream element type
+     *
+     * @param keyMapper
+     *            produces the member name for each stream element. Must not
+     *            return null.
+     *
+     * @param valueMapper
+     *            produces the member value for each stream element. Must not
+     *            return null.
+     *
+     * @return collector.
+     */
+    public static <T> Collector<T, ?, JsonObject> toJsonObject(
+            final Function<? super T, String> keyMapper,
+            final Function<? super T, ? extends JsonValue> valueMapper) {
+        return toJsonObject(JsonOp.defaultFactory(), keyMapper, valueMapper);
+    }
+
+    /**
+     * Collect members into an object created through a factory.
+     *
+     * @param <T>
+     *            stream element type
+     *
+     * @param factory
+     *            factory used to create the object. Must not be null.
+     *
+     * @param keyMapper
+     *            produces the member name for each stream element. Must not
+     *            return null.
+     *
+     * @param valueMapper
+     *            produces the member value for each stream element. Must not
+     *            return null.
+     *
+     * @return collector.
+     *
+     * @throws NullPointerException
+     *             if factory is null.
+     */
+    public static <T> Collector<T, ?, JsonObject> toJsonObject(
+            final JsonBuilderFactory factory,
+            final Function<? super T, String> keyMapper,
+            final Function<? super T, ? extends JsonValue> valueMapper) {
+        Objects.requireNonNull(factory);
+        return Collector.<T, Segments<Object>, JsonObject> of(
+                Segments::new, (s, t) -> {
+                    s.add(Objects.requireNonNull(keyMapper.apply(t)));
+                    s.add(Objects.requireNonNull(valueMapper.apply(t)));
+                }, Segments::append, s -> {
+                    final JsonObjectBuilder jbuf = JsonOp.objectBuilder(
+                            factory, s.size() / 2);
+                    final Iterator<Object> it = s.iterator();
+                    while (it.hasNext()) {
+                        jbuf.add((String) it.next(), (JsonValue) it.next());
+                    }
+                    return jbuf.build();
+                });
+    }
+
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Accumulation container for the JSON collectors. Items are appended to a
+ * chain of fixed-size chunks, so adding never copies, and two containers are
+ * combined by linking their chains, in constant time.
+ *
+ * @param <E>
+ *            item type
+ */
+final class Segments<E> implements Iterable<E> {
+
+    private static final class Chunk {
+
+        final Object[] items = new Object[CHUNK];
+
+        Chunk next;
+
+        int size;
+
+    }
+
+    private static final int CHUNK = 256;
+
+    private Chunk head;
+
+    private int size;
+
+    private Chunk tail;
+
+    void add(final E item) {
+        if (this.tail == null || this.tail.size == CHUNK) {
+            final Chunk chunk = new Chunk();
+            if (this.tail == null) {
+                this.head = chunk;
+            } else {
+                this.tail.next = chunk;
+            }
+            this.tail = chunk;
+        }
+        this.tail.items[this.tail.size++] = item;
+        this.size++;
+    }
+
+    /**
+     * Items of this container followed by those of another. Both containers
+     * are consumed.
+     */
+    Segments<E> append(final Segments<E> other) {
+        if (other.head == null) {
+            return this;
+        } else if (this.head == null) {
+            return other;
+        }
+        this.tail.next = other.head;
+        this.tail = other.tail;
+        this.size += other.size;
+        return this;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+
+            private Chunk chunk = Segments.this.head;
+
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                while (this.chunk != null && this.i == this.chunk.size) {
+                    this.chunk = this.chunk.next;
+                    this.i = 0;
+                }
+                return this.chunk != null;
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return (E) this.chunk.items[this.i++];
+            }
+
+        };
+    }
+
+    int size() {
+        return this.size;
+    }
+
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.immutable;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.function.Supplier;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import javax.json.JsonArray;
+import javax.json.JsonValue;
+
+import com.banjocreek.riverbed.builder.json.JArrayBuilder;
+import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
+
+/**
+ * Transient array builder used by {@link JAry#edit}. Runs of added values are
+ * collected and appended to the state together, so a batch of any size
+ * produces one new builder.
+ */
+final class ArrayEditor implements JArrayBuilder<ArrayEditor> {
+
+    private final ArrayList<JsonOp> pending = new ArrayList<>();
+
+    private ArrayState state;
+
+    ArrayEditor(final ArrayState state) {
+        this.state = state;
+    }
+
+    @Override
+    public ArrayEditor add(final BigDecimal value) {
+        return append(JsonOp.of(value));
+    }
+
+    @Override
+    public ArrayEditor add(final BigInteger value) {
+        return append(JsonOp.of(value));
+    }
+
+    @Override
+    public ArrayEditor add(final boolean value) {
+        return append(JsonOp.of(value));
+    }
+
+    @Override
+    public ArrayEditor add(final double value) {
+        return append(JsonOp.of(value));
+    }
+
+    @Override
+    public ArrayEditor add(final int value) {
+        return append(JsonOp.of(value));
+    }
+
+    @Override
+    public ArrayEditor add(final JsonValue value) {
+        return append(JsonOp.of(value));
+    }
+
+    @Override
+    public ArrayEditor add(final long value) {
+        return append(JsonOp.of(value));
+    }
+
+    @Override
+    public ArrayEditor add(final String value) {
+        return append(JsonOp.of(value));
+    }
+
+    @Override
+    public ArrayEditor add(final Supplier<? extends JsonValue> value) {
+        return append(JsonOp.ofDeferred(value));
+    }
+
+    @Override
+    public ArrayEditor addAll(final boolean[] values) {
+        return append(JsonOp.ofAll(values));
+    }
+
+    @Override
+    public ArrayEditor addAll(final double[] values) {
+        return append(JsonOp.ofAll(values));
+    }
+
+    @Override
+    public ArrayEditor addAll(final DoubleStream values) {
+        return append(JsonOp.ofAll(values));
+    }
+
+    @Override
+    public ArrayEditor addAll(final int[] values) {
+        return append(JsonOp.ofAll(values));
+    }
+
+    @Override
+    public ArrayEditor addAll(final IntStream values) {
+        return append(JsonOp.ofAll(values));
+    }
+
+    @Override
+    public ArrayEditor addAll(final long[] values) {
+        return append(JsonOp.ofAll(values));
+    }
+
+    @Override
+    public ArrayEditor addAll(final LongStream values) {
+        return append(JsonOp.ofAll(values));
+    }
+
+    @Override
+    public ArrayEditor addAll(final String[] values) {
+        return append(JsonOp.ofAll(values));
+    }
+
+    @Override
+    public ArrayEditor addNull() {
+        return append(JsonOp.ofNull());
+    }
+
+    private ArrayEditor append(final JsonOp value) {
+        this.pending.add(value);
+        return this;
+    }
+
+    @Override
+    public ArrayEditor clear() {
+        this.pending.clear();
+        this.state = this.state.clear();
+        return this;
+    }
+
+    @Override
+    public ArrayEditor concat(final JsonArray jary) {
+        return append(JsonOp.ofAll(jary));
+    }
+
+    /**
+     * State with every recorded operation applied.
+     */
+    ArrayState state() {
+        if (!this.pending.isEmpty()) {
+            this.state = this.state.addAll(this.pending);
+            this.pending.clear();
+        }
+        return this.state;
+    }
+
+}
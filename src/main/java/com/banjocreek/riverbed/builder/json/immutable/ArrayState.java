@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.immutable;
+
+import java.util.List;
+
+import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
+import com.banjocreek.riverbed.builder.json.kernel.PersistentVector;
+
+/**
+ * Operations held by an immutable array builder. Each change produces a new
+ * state sharing structure with the previous one, so the cost of a change and
+ * of reading the operations is independent of how the state was reached.
+ */
+final class ArrayState {
+
+    static final ArrayState EMPTY = new ArrayState(PersistentVector.empty());
+
+    private final PersistentVector<JsonOp> ops;
+
+    private ArrayState(final PersistentVector<JsonOp> ops) {
+        this.ops = ops;
+    }
+
+    ArrayState add(final JsonOp value) {
+        return new ArrayState(this.ops.with(value));
+    }
+
+    ArrayState addAll(final List<JsonOp> values) {
+        return new ArrayState(this.ops.withAll(values));
+    }
+
+    ArrayState clear() {
+        return EMPTY;
+    }
+
+    List<JsonOp> ops() {
+        return this.ops;
+    }
+
+}
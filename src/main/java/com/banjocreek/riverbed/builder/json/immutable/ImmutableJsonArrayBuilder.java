@@ -17,101 +17,272 @@
  */
 package com.banjocreek.riverbed.builder.json.immutable;
 
+import java.io.OutputStream;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.function.UnaryOperator;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
 import javax.json.JsonArray;
+import javax.json.JsonBuilderFactory;
 import javax.json.JsonValue;
+import javax.json.stream.JsonGenerator;
 
+import com.banjocreek.riverbed.builder.json.JArrayBuilder;
 import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
-import com.banjocreek.riverbed.builder.list.AbstractImmutableListBuilder;
+import com.banjocreek.riverbed.builder.json.kernel.ParallelEncoder;
+import com.banjocreek.riverbed.builder.json.kernel.Utf8Generator;
 
-public class ImmutableJsonArrayBuilder<R, P> extends
-        AbstractImmutableListBuilder<JsonOp, R, P> implements JAry<R, P> {
+public class ImmutableJsonArrayBuilder<R, P> implements JAry<R, P> {
 
-    ImmutableJsonArrayBuilder(final Function<JsonArray, R> rootConstructor,
-            final Function<JsonArray, P> parentConstructor) {
-        super(l -> rootConstructor.apply(JsonOp.buildArray(l)),
-                l -> parentConstructor.apply(JsonOp.buildArray(l)));
+    private volatile R built;
+
+    private final JsonBuilderFactory factory;
+
+    private final Function<List<JsonOp>, P> parentConstructor;
+
+    private final Function<List<JsonOp>, R> rootConstructor;
+
+    private final Function<List<JsonOp>, JsonOp> rootOp;
+
+    private final ArrayState state;
+
+    ImmutableJsonArrayBuilder(final JsonBuilderFactory factory,
+            final Function<List<JsonOp>, R> rootConstructor,
+            final Function<List<JsonOp>, P> parentConstructor,
+            final Function<List<JsonOp>, JsonOp> rootOp) {
+        this.factory = factory;
+        this.rootConstructor = rootConstructor;
+        this.parentConstructor = parentConstructor;
+        this.rootOp = rootOp;
+        this.state = ArrayState.EMPTY;
     }
 
     private ImmutableJsonArrayBuilder(
             final ImmutableJsonArrayBuilder<R, P> previous,
-            final UnaryOperator<List<JsonOp>> delta) {
-        super(previous, delta);
+            final ArrayState state) {
+        this.factory = previous.factory;
+        this.rootConstructor = previous.rootConstructor;
+        this.parentConstructor = previous.parentConstructor;
+        this.rootOp = previous.rootOp;
+        this.state = state;
     }
 
     @Override
     public JAry<R, P> add(final BigDecimal value) {
-        return new ImmutableJsonArrayBuilder<>(this, genAdd(JsonOp.of(value)));
+        return with(JsonOp.of(value));
     }
 
     @Override
     public JAry<R, P> add(final BigInteger value) {
-        return new ImmutableJsonArrayBuilder<>(this, genAdd(JsonOp.of(value)));
+        return with(JsonOp.of(value));
     }
 
     @Override
     public JAry<R, P> add(final boolean value) {
-        return new ImmutableJsonArrayBuilder<>(this, genAdd(JsonOp.of(value)));
+        return with(JsonOp.of(value));
     }
 
     @Override
     public JAry<R, P> add(final double value) {
-        return new ImmutableJsonArrayBuilder<>(this, genAdd(JsonOp.of(value)));
+        return with(JsonOp.of(value));
     }
 
     @Override
     public JAry<R, P> add(final int value) {
-        return new ImmutableJsonArrayBuilder<>(this, genAdd(JsonOp.of(value)));
+        return with(JsonOp.of(value));
     }
 
     @Override
     public JAry<R, P> add(final JsonValue value) {
-        return new ImmutableJsonArrayBuilder<>(this, genAdd(JsonOp.of(value)));
+        return with(JsonOp.of(value));
     }
 
     @Override
     public JAry<R, P> add(final long value) {
-        return new ImmutableJsonArrayBuilder<>(this, genAdd(JsonOp.of(value)));
+        return with(JsonOp.of(value));
     }
 
     @Override
     public JAry<R, P> add(final String value) {
-        return new ImmutableJsonArrayBuilder<>(this, genAdd(JsonOp.of(value)));
+        return with(JsonOp.of(value));
+    }
+
+    @Override
+    public JAry<R, P> add(final Supplier<? extends JsonValue> value) {
+        return with(JsonOp.ofDeferred(value));
+    }
+
+    @Override
+    public JAry<R, P> addAll(final boolean[] values) {
+        return with(JsonOp.ofAll(values));
+    }
+
+    @Override
+    public JAry<R, P> addAll(final double[] values) {
+        return with(JsonOp.ofAll(values));
+    }
+
+    @Override
+    public JAry<R, P> addAll(final DoubleStream values) {
+        return with(JsonOp.ofAll(values));
+    }
+
+    @Override
+    public JAry<R, P> addAll(final int[] values) {
+        return with(JsonOp.ofAll(values));
+    }
+
+    @Override
+    public JAry<R, P> addAll(final IntStream values) {
+        return with(JsonOp.ofAll(values));
+    }
+
+    @Override
+    public JAry<R, P> addAll(final long[] values) {
+        return with(JsonOp.ofAll(values));
+    }
+
+    @Override
+    public JAry<R, P> addAll(final LongStream values) {
+        return with(JsonOp.ofAll(values));
+    }
+
+    @Override
+    public JAry<R, P> addAll(final String[] values) {
+        return with(JsonOp.ofAll(values));
     }
 
     @Override
     public JAry<R, P> addNull() {
-        return new ImmutableJsonArrayBuilder<>(this, genAdd(JsonOp.ofNull()));
+        return with(JsonOp.ofNull());
     }
 
     @Override
     public JAry<R, JAry<R, P>> array() {
-        return new ImmutableJsonArrayBuilder<>(jary -> add(jary).build(),
-                this::add);
+        return new ImmutableJsonArrayBuilder<>(this.factory,
+                l -> nest(l).build(), this::nest, l -> nest(l).rootOp());
+    }
+
+    @Override
+    public R build() {
+        R rval = this.built;
+        if (rval == null) {
+            synchronized (this) {
+                rval = this.built;
+                if (rval == null) {
+                    rval = this.rootConstructor.apply(this.state.ops());
+                    this.built = rval;
+                }
+            }
+        }
+        return rval;
     }
 
     @Override
     public JAry<R, P> clear() {
-        return new ImmutableJsonArrayBuilder<>(this, genClear());
+        return new ImmutableJsonArrayBuilder<>(this, this.state.clear());
     }
 
     @Override
     public JAry<R, P> concat(final JsonArray jary) {
+        return with(JsonOp.ofAll(jary));
+    }
 
-        return new ImmutableJsonArrayBuilder<>(this, genAddAll(jary.stream()
-                .map(JsonOp::of).collect(Collectors.toList())));
+    @Override
+    public P done() {
+        return this.parentConstructor.apply(this.state.ops());
+    }
+
+    @Override
+    public JAry<R, P> edit(final Consumer<? super JArrayBuilder<?>> edits) {
+        final ArrayEditor editor = new ArrayEditor(this.state);
+        edits.accept(editor);
+        return new ImmutableJsonArrayBuilder<>(this, editor.state());
     }
 
     @Override
     public JObj<R, JAry<R, P>> object() {
-        return new ImmutableJsonObjectBuilder<>(jobj -> add(jobj).build(),
-                this::add);
+        return new ImmutableJsonObjectBuilder<>(this.factory,
+                m -> nest(m).build(), this::nest, m -> nest(m).rootOp());
+    }
+
+    @Override
+    public byte[] toBytes() {
+        final Utf8Generator gen = Utf8Generator.create();
+        writeTo(gen);
+        return gen.toByteArray();
+    }
+
+    @Override
+    public void writeTo(final ByteBuffer out) {
+        final JsonGenerator gen = Utf8Generator.create(out);
+        writeTo(gen);
+        gen.flush();
+    }
+
+    @Override
+    public void writeTo(final JsonGenerator gen) {
+        rootOp().apply(gen);
+    }
+
+    @Override
+    public void writeTo(final OutputStream out) {
+        final JsonGenerator gen = Utf8Generator.create(out);
+        writeTo(gen);
+        gen.flush();
+    }
+
+    @Override
+    public void writeTo(final String name, final JsonGenerator gen) {
+        rootOp().apply(name, gen);
+    }
+
+    @Override
+    public void writeTo(final WritableByteChannel out) {
+        final JsonGenerator gen = Utf8Generator.create(out);
+        writeTo(gen);
+        gen.flush();
+    }
+
+    @Override
+    public void writeTo(final WritableByteChannel out,
+            final ForkJoinPool pool) {
+        ParallelEncoder.write(rootOp(), out, pool);
+    }
+
+    @Override
+    public void writeTo(final Writer out) {
+        final JsonGenerator gen = Utf8Generator.create(out);
+        writeTo(gen);
+        gen.flush();
+    }
+
+    private ImmutableJsonArrayBuilder<R, P> nest(final List<JsonOp> values) {
+        return with(JsonOp.ofArray(this.factory, values));
+    }
+
+    private ImmutableJsonArrayBuilder<R, P> nest(
+            final Map<String, JsonOp> values) {
+        return with(JsonOp.ofObject(this.factory, values));
+    }
+
+    private ImmutableJsonArrayBuilder<R, P> with(final JsonOp value) {
+        return new ImmutableJsonArrayBuilder<>(this, this.state.add(value));
+    }
+
+    JsonOp rootOp() {
+        return this.rootOp.apply(this.state.ops());
     }
 
 }
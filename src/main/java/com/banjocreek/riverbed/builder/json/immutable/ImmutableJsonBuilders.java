@@ -17,13 +17,18 @@
  */
 package com.banjocreek.riverbed.builder.json.immutable;
 
-import java.util.function.Function;
+import java.util.Objects;
 
 import javax.json.JsonArray;
+import javax.json.JsonBuilderFactory;
 import javax.json.JsonObject;
 
+import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
+
 /**
- * Factory for immutable JSON builders.
+ * Factory for immutable JSON builders. Each builder produces its result at
+ * most once; repeated builds return the same instance, and builders derived
+ * from it reuse any nested structures it has already produced.
  */
 public interface ImmutableJsonBuilders {
 
@@ -34,8 +39,65 @@ public interface ImmutableJsonBuilders {
      * @return new builder
      */
     public static JAry<JsonArray, JsonArray> array() {
-        return new ImmutableJsonArrayBuilder<>(Function.identity(),
-                Function.identity());
+        return array(JsonOp.defaultFactory());
+    }
+
+    /**
+     * Create a new JSON array builder that produces its array, and the
+     * contents of any nested builders, through the given factory. Both the
+     * build and done methods will produce identical results.
+     *
+     * @param factory
+     *            factory used to create javax.json builders. Must not be null.
+     *
+     * @return new builder
+     *
+     * @throws NullPointerException
+     *             if factory is null.
+     */
+    public static JAry<JsonArray, JsonArray> array(
+            final JsonBuilderFactory factory) {
+        Objects.requireNonNull(factory);
+        return new ImmutableJsonArrayBuilder<>(factory,
+                l -> JsonOp.buildArray(factory, l),
+                l -> JsonOp.buildArray(factory, l),
+                l -> JsonOp.ofArray(factory, l));
+    }
+
+    /**
+     * Create a new JSON array builder whose result is a read-only view of the
+     * builder's contents rather than a copy of them. Elements are
+     * materialized individually when first read, and a view written to a
+     * byte stream or buffer is encoded from the builder's contents directly.
+     * Both the build and done methods will produce identical results.
+     *
+     * @return new builder
+     */
+    public static JAry<JsonArray, JsonArray> arrayView() {
+        return arrayView(JsonOp.defaultFactory());
+    }
+
+    /**
+     * Create a new JSON array builder whose result is a read-only view of the
+     * builder's contents, as {@link #arrayView()} does, with elements and the
+     * contents of any nested builders materialized through the given
+     * factory.
+     *
+     * @param factory
+     *            factory used to create javax.json builders. Must not be null.
+     *
+     * @return new builder
+     *
+     * @throws NullPointerException
+     *             if factory is null.
+     */
+    public static JAry<JsonArray, JsonArray> arrayView(
+            final JsonBuilderFactory factory) {
+        Objects.requireNonNull(factory);
+        return new ImmutableJsonArrayBuilder<>(factory,
+                l -> JsonOp.viewArray(factory, l),
+                l -> JsonOp.viewArray(factory, l),
+                l -> JsonOp.ofArray(factory, l));
     }
 
     /**
@@ -45,8 +107,65 @@ public interface ImmutableJsonBuilders {
      * @return new builder
      */
     public static JObj<JsonObject, JsonObject> object() {
-        return new ImmutableJsonObjectBuilder<>(Function.identity(),
-                Function.identity());
+        return object(JsonOp.defaultFactory());
+    }
+
+    /**
+     * Create a new JSON object builder that produces its object, and the
+     * contents of any nested builders, through the given factory. Both the
+     * build and done methods will produce identical results.
+     *
+     * @param factory
+     *            factory used to create javax.json builders. Must not be null.
+     *
+     * @return new builder
+     *
+     * @throws NullPointerException
+     *             if factory is null.
+     */
+    public static JObj<JsonObject, JsonObject> object(
+            final JsonBuilderFactory factory) {
+        Objects.requireNonNull(factory);
+        return new ImmutableJsonObjectBuilder<>(factory,
+                m -> JsonOp.buildObject(factory, m),
+                m -> JsonOp.buildObject(factory, m),
+                m -> JsonOp.ofObject(factory, m));
+    }
+
+    /**
+     * Create a new JSON object builder whose result is a read-only view of the
+     * builder's contents rather than a copy of them. Members are materialized
+     * individually when first read, and a view written to a byte stream or
+     * buffer is encoded from the builder's contents directly. Both the build
+     * and done methods will produce identical results.
+     *
+     * @return new builder
+     */
+    public static JObj<JsonObject, JsonObject> objectView() {
+        return objectView(JsonOp.defaultFactory());
+    }
+
+    /**
+     * Create a new JSON object builder whose result is a read-only view of the
+     * builder's contents, as {@link #objectView()} does, with members and the
+     * contents of any nested builders materialized through the given
+     * factory.
+     *
+     * @param factory
+     *            factory used to create javax.json builders. Must not be null.
+     *
+     * @return new builder
+     *
+     * @throws NullPointerException
+     *             if factory is null.
+     */
+    public static JObj<JsonObject, JsonObject> objectView(
+            final JsonBuilderFactory factory) {
+        Objects.requireNonNull(factory);
+        return new ImmutableJsonObjectBuilder<>(factory,
+                m -> JsonOp.viewObject(factory, m),
+                m -> JsonOp.viewObject(factory, m),
+                m -> JsonOp.ofObject(factory, m));
     }
 
 }
@@ -17,152 +17,323 @@
  */
 package com.banjocreek.riverbed.builder.json.immutable;
 
+import java.io.OutputStream;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import javax.json.JsonArray;
+import javax.json.JsonBuilderFactory;
 import javax.json.JsonObject;
 import javax.json.JsonValue;
+import javax.json.stream.JsonGenerator;
 
+import com.banjocreek.riverbed.builder.json.JObjectBuilder;
 import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
-import com.banjocreek.riverbed.builder.map.AbstractImmutableMapBuilder;
-import com.banjocreek.riverbed.builder.map.MapDelta;
+import com.banjocreek.riverbed.builder.json.kernel.ParallelEncoder;
+import com.banjocreek.riverbed.builder.json.kernel.JsonTemplate;
+import com.banjocreek.riverbed.builder.json.kernel.Utf8Generator;
 
-final class ImmutableJsonObjectBuilder<R, P> extends
-        AbstractImmutableMapBuilder<String, JsonOp, R, P> implements JObj<R, P> {
+final class ImmutableJsonObjectBuilder<R, P> implements JObj<R, P> {
 
-    ImmutableJsonObjectBuilder(final Function<JsonObject, R> rootConstructor,
-            final Function<JsonObject, P> parentConstructor) {
-        super(m -> rootConstructor.apply(JsonOp.buildObject(m)),
-                m -> parentConstructor.apply(JsonOp.buildObject(m)));
+    private volatile R built;
+
+    private final JsonBuilderFactory factory;
+
+    private final Function<Map<String, JsonOp>, P> parentConstructor;
+
+    private final Function<Map<String, JsonOp>, R> rootConstructor;
+
+    private final Function<Map<String, JsonOp>, JsonOp> rootOp;
+
+    private final ObjectState state;
+
+    ImmutableJsonObjectBuilder(final JsonBuilderFactory factory,
+            final Function<Map<String, JsonOp>, R> rootConstructor,
+            final Function<Map<String, JsonOp>, P> parentConstructor,
+            final Function<Map<String, JsonOp>, JsonOp> rootOp) {
+        this.factory = factory;
+        this.rootConstructor = rootConstructor;
+        this.parentConstructor = parentConstructor;
+        this.rootOp = rootOp;
+        this.state = ObjectState.EMPTY;
     }
 
     private ImmutableJsonObjectBuilder(
-            final AbstractImmutableMapBuilder<String, JsonOp, R, P> previous,
-            final MapDelta<String, JsonOp> delta) {
-        super(previous, delta);
+            final ImmutableJsonObjectBuilder<R, P> previous,
+            final ObjectState state) {
+        this.factory = previous.factory;
+        this.rootConstructor = previous.rootConstructor;
+        this.parentConstructor = previous.parentConstructor;
+        this.rootOp = previous.rootOp;
+        this.state = state;
     }
 
     @Override
     public JAry<R, JObj<R, P>> array(final String name) {
-        return new ImmutableJsonArrayBuilder<>(jary -> set(name, jary).build(),
-                jary -> set(name, jary));
+        return new ImmutableJsonArrayBuilder<>(this.factory,
+                l -> nest(name, l).build(), l -> nest(name, l),
+                l -> nest(name, l).rootOp());
+    }
+
+    @Override
+    public R build() {
+        R rval = this.built;
+        if (rval == null) {
+            synchronized (this) {
+                rval = this.built;
+                if (rval == null) {
+                    rval = this.rootConstructor.apply(this.state.ops());
+                    this.built = rval;
+                }
+            }
+        }
+        return rval;
     }
 
     @Override
     public JObj<R, P> clear() {
-        return new ImmutableJsonObjectBuilder<>(this, genClear());
+        return new ImmutableJsonObjectBuilder<>(this, this.state.clear());
+    }
+
+    @Override
+    public CompletionStage<R> buildAsync() {
+        return JsonOp.whenResolved(Collections.singleton(rootOp())).thenApply(
+                v -> build());
+    }
+
+    @Override
+    public CompletionStage<R> buildAsync(final Executor executor) {
+        return JsonOp.whenResolved(Collections.singleton(rootOp()))
+                .thenApplyAsync(v -> build(), executor);
+    }
+
+    @Override
+    public JsonTemplate compile() {
+        return JsonTemplate.compile(rootOp());
     }
 
     @Override
     public JAry<R, JObj<R, P>> continueArray(final String name) {
-        return new ImmutableJsonArrayBuilder<>(jary -> update(name, jary)
-                .build(), jary -> update(name, jary));
+        return new ImmutableJsonArrayBuilder<>(this.factory,
+                l -> continueNest(name, l).build(), l -> continueNest(name, l),
+                l -> continueNest(name, l).rootOp());
     }
 
     @Override
     public JObj<R, JObj<R, P>> continueObject(final String name) {
-        return new ImmutableJsonObjectBuilder<>(jobj -> update(name, jobj)
-                .build(), jobj -> update(name, jobj));
+        return new ImmutableJsonObjectBuilder<>(this.factory,
+                m -> continueNest(name, m).build(), m -> continueNest(name, m),
+                m -> continueNest(name, m).rootOp());
     }
 
     @Override
-    public JObj<R, JObj<R, P>> object(final String name) {
-        return new ImmutableJsonObjectBuilder<>(
-                jobj -> set(name, jobj).build(), jobj -> set(name, jobj));
+    public P done() {
+        return this.parentConstructor.apply(this.state.ops());
+    }
 
+    @Override
+    public JObj<R, P> edit(final Consumer<? super JObjectBuilder<?>> edits) {
+        final ObjectEditor editor = new ObjectEditor(this.factory, this.state);
+        edits.accept(editor);
+        return new ImmutableJsonObjectBuilder<>(this, editor.state());
+    }
+
+    @Override
+    public JObj<R, JObj<R, P>> object(final String name) {
+        return new ImmutableJsonObjectBuilder<>(this.factory,
+                m -> nest(name, m).build(), m -> nest(name, m),
+                m -> nest(name, m).rootOp());
     }
 
     @Override
     public JObj<R, P> remove(final String name) {
-        return new ImmutableJsonObjectBuilder<>(this, genRemove(name));
+        return new ImmutableJsonObjectBuilder<>(this, this.state.remove(name));
     }
 
     @Override
     public JObj<R, P> reset() {
-        return new ImmutableJsonObjectBuilder<>(this, genReset());
+        return new ImmutableJsonObjectBuilder<>(this, this.state.reset());
     }
 
     @Override
     public JObj<R, P> set(final String name, final BigDecimal value) {
-        return new ImmutableJsonObjectBuilder<>(this, genValues(name,
-                JsonOp.of(value)));
+        return with(name, JsonOp.of(value));
     }
 
     @Override
     public JObj<R, P> set(final String name, final BigInteger value) {
-        return new ImmutableJsonObjectBuilder<>(this, genValues(name,
-                JsonOp.of(value)));
+        return with(name, JsonOp.of(value));
     }
 
     @Override
     public JObj<R, P> set(final String name, final boolean value) {
-        return new ImmutableJsonObjectBuilder<>(this, genValues(name,
-                JsonOp.of(value)));
+        return with(name, JsonOp.of(value));
     }
 
     @Override
     public JObj<R, P> set(final String name, final double value) {
-        return new ImmutableJsonObjectBuilder<>(this, genValues(name,
-                JsonOp.of(value)));
+        return with(name, JsonOp.of(value));
     }
 
     @Override
     public JObj<R, P> set(final String name, final int value) {
-        return new ImmutableJsonObjectBuilder<>(this, genValues(name,
-                JsonOp.of(value)));
+        return with(name, JsonOp.of(value));
     }
 
     @Override
     public JObj<R, P> set(final String name, final JsonValue value) {
-        return new ImmutableJsonObjectBuilder<>(this, genValues(name,
-                JsonOp.of(value)));
+        return with(name, JsonOp.of(value));
     }
 
     @Override
     public JObj<R, P> set(final String name, final long value) {
-        return new ImmutableJsonObjectBuilder<>(this, genValues(name,
-                JsonOp.of(value)));
+        return with(name, JsonOp.of(value));
     }
 
     @Override
     public JObj<R, P> set(final String name, final String value) {
-        return new ImmutableJsonObjectBuilder<>(this, genValues(name,
-                JsonOp.of(value)));
+        return with(name, JsonOp.of(value));
+    }
+
+    @Override
+    public JObj<R, P> set(final String name,
+            final Supplier<? extends JsonValue> value) {
+        return with(name, JsonOp.ofDeferred(value));
+    }
+
+    @Override
+    public JObj<R, P> setAsync(final String name,
+            final CompletionStage<? extends JsonValue> value) {
+        return with(name, JsonOp.ofAsync(value));
     }
 
     @Override
     public JObj<R, P> setNull(final String name) {
-        return new ImmutableJsonObjectBuilder<>(this, genValues(name,
-                JsonOp.ofNull()));
+        return with(name, JsonOp.ofNull());
+    }
+
+    @Override
+    public byte[] toBytes() {
+        final Utf8Generator gen = Utf8Generator.create();
+        writeTo(gen);
+        return gen.toByteArray();
     }
 
     @Override
     public JObj<R, P> update(final String key, final JsonArray jobj) {
-        return new ImmutableJsonObjectBuilder<>(this, genUpdates(key,
-                jop -> JsonOp.combine(jop, jobj)));
+        return new ImmutableJsonObjectBuilder<>(this, this.state.update(key,
+                jop -> JsonOp.combine(this.factory, jop, jobj)));
     }
 
     @Override
     public JObj<R, P> update(final String key, final JsonObject jobj) {
-        return new ImmutableJsonObjectBuilder<>(this, genUpdates(key,
-                jop -> JsonOp.combine(jop, jobj)));
+        return new ImmutableJsonObjectBuilder<>(this, this.state.update(key,
+                jop -> JsonOp.combine(this.factory, jop, jobj)));
     }
 
     @Override
     public JObj<R, P> withDefault(final JsonObject jobj) {
         final HashMap<String, JsonOp> defaults = new HashMap<>();
         jobj.forEach((k, jv) -> defaults.put(k, JsonOp.of(jv)));
-        return new ImmutableJsonObjectBuilder<>(this, genDefaults(defaults));
+        return new ImmutableJsonObjectBuilder<>(this,
+                this.state.defaults(defaults));
     }
 
     @Override
     public JObj<R, P> withValue(final JsonObject jobj) {
         final HashMap<String, JsonOp> values = new HashMap<>();
         jobj.forEach((k, jv) -> values.put(k, JsonOp.of(jv)));
-        return new ImmutableJsonObjectBuilder<>(this, genValues(values));
+        return new ImmutableJsonObjectBuilder<>(this,
+                this.state.values(values));
+    }
+
+    @Override
+    public void writeTo(final ByteBuffer out) {
+        final JsonGenerator gen = Utf8Generator.create(out);
+        writeTo(gen);
+        gen.flush();
+    }
+
+    @Override
+    public void writeTo(final JsonGenerator gen) {
+        rootOp().apply(gen);
+    }
+
+    @Override
+    public void writeTo(final OutputStream out) {
+        final JsonGenerator gen = Utf8Generator.create(out);
+        writeTo(gen);
+        gen.flush();
+    }
+
+    @Override
+    public void writeTo(final String name, final JsonGenerator gen) {
+        rootOp().apply(name, gen);
+    }
+
+    @Override
+    public void writeTo(final WritableByteChannel out) {
+        final JsonGenerator gen = Utf8Generator.create(out);
+        writeTo(gen);
+        gen.flush();
+    }
+
+    @Override
+    public void writeTo(final WritableByteChannel out,
+            final ForkJoinPool pool) {
+        ParallelEncoder.write(rootOp(), out, pool);
+    }
+
+    @Override
+    public void writeTo(final Writer out) {
+        final JsonGenerator gen = Utf8Generator.create(out);
+        writeTo(gen);
+        gen.flush();
+    }
+
+    private ImmutableJsonObjectBuilder<R, P> continueNest(final String name,
+            final List<JsonOp> values) {
+        return new ImmutableJsonObjectBuilder<>(this, this.state.update(name,
+                jop -> JsonOp.combine(this.factory, jop, values)));
+    }
+
+    private ImmutableJsonObjectBuilder<R, P> continueNest(final String name,
+            final Map<String, JsonOp> values) {
+        return new ImmutableJsonObjectBuilder<>(this, this.state.update(name,
+                jop -> JsonOp.combine(this.factory, jop, values)));
+    }
+
+    private ImmutableJsonObjectBuilder<R, P> nest(final String name,
+            final List<JsonOp> values) {
+        return with(name, JsonOp.ofArray(this.factory, values));
+    }
+
+    private ImmutableJsonObjectBuilder<R, P> nest(final String name,
+            final Map<String, JsonOp> values) {
+        return with(name, JsonOp.ofObject(this.factory, values));
+    }
+
+    private ImmutableJsonObjectBuilder<R, P> with(final String name,
+            final JsonOp value) {
+        return new ImmutableJsonObjectBuilder<>(this, this.state.values(name,
+                value));
+    }
+
+    JsonOp rootOp() {
+        return this.rootOp.apply(this.state.ops());
     }
 
 }
@@ -17,8 +17,20 @@
  */
 package com.banjocreek.riverbed.builder.json.immutable;
 
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import javax.json.stream.JsonGenerator;
+
 import com.banjocreek.riverbed.builder.ImmutableBuilder;
 import com.banjocreek.riverbed.builder.json.JObjectBuilder;
+import com.banjocreek.riverbed.builder.json.kernel.JsonTemplate;
 
 /**
  * <p>
@@ -46,6 +58,43 @@ public interface JObj<R, P> extends JObjectBuilder<JObj<R, P>>,
      */
     JAry<R, JObj<R, P>> array(String name);
 
+    /**
+     * Build the root instance once every value set with
+     * {@link #setAsync(String, CompletionStage) setAsync} anywhere in the
+     * document has completed. The values are awaited together, so the result
+     * is ready as soon as the slowest of them is. Values that have been
+     * replaced or removed are not waited for. The instance is built on the
+     * thread that completes the last value, or on the caller if all have
+     * completed.
+     *
+     * @return stage that completes with the root instance, or exceptionally
+     *         if any value does.
+     */
+    CompletionStage<R> buildAsync();
+
+    /**
+     * Build the root instance on an executor once every value set with
+     * {@link #setAsync(String, CompletionStage) setAsync} anywhere in the
+     * document has completed, as {@link #buildAsync()} does.
+     *
+     * @param executor
+     *            executor on which to build the instance.
+     *
+     * @return stage that completes with the root instance, or exceptionally
+     *         if any value does.
+     */
+    CompletionStage<R> buildAsync(Executor executor);
+
+    /**
+     * Compile the root instance into a template. Values placed with
+     * {@link JsonTemplate#slot(String)} become the template's slots; the rest
+     * of the document is encoded once, here, and copied each time the
+     * template is written.
+     *
+     * @return compiled template.
+     */
+    JsonTemplate compile();
+
     /**
      * Nest an array. If one has already been started at the given path, the
      * builder continues to operate on it. Otherwise, a new array is operated
@@ -70,6 +119,19 @@ public interface JObj<R, P> extends JObjectBuilder<JObj<R, P>>,
      */
     JObj<R, JObj<R, P>> continueObject(String name);
 
+    /**
+     * Apply a batch of changes. The changes are recorded on a transient
+     * builder, in order, and yield a single new builder; no intermediate
+     * builders are produced. The transient builder must not be used after the
+     * batch completes.
+     *
+     * @param edits
+     *            changes to apply.
+     *
+     * @return builder with the changes applied.
+     */
+    JObj<R, P> edit(Consumer<? super JObjectBuilder<?>> edits);
+
     /**
      * Nest an object. This initializes a new builder whose builder will be set
      * in this builder at the given key when it is completed.
@@ -82,4 +144,117 @@ public interface JObj<R, P> extends JObjectBuilder<JObj<R, P>>,
      */
     JObj<R, JObj<R, P>> object(String name);
 
+    /**
+     * Encode the root instance, exactly as {@link #build()} would produce it,
+     * as UTF-8 JSON text. The text is encoded directly to bytes from the
+     * builder, without materializing any intermediate JSON structures or
+     * characters.
+     *
+     * @return UTF-8 encoded JSON text.
+     */
+    byte[] toBytes();
+
+    /**
+     * Write the root instance, exactly as {@link #build()} would produce it,
+     * into a buffer as UTF-8, starting at the buffer's position. The text is
+     * encoded directly to bytes, and the position is advanced past it.
+     *
+     * @param out
+     *            destination of the JSON text.
+     *
+     * @throws java.nio.BufferOverflowException
+     *             if the text does not fit in the remaining space.
+     */
+    void writeTo(ByteBuffer out);
+
+    /**
+     * Write the root instance, exactly as {@link #build()} would produce it,
+     * as the next value of a document being generated by the caller. This
+     * lets a builder supply a fragment of a larger document without
+     * materializing any intermediate JSON structures.
+     *
+     * @param gen
+     *            generator positioned where a value may be written, such as
+     *            within an array.
+     *
+     * @throws javax.json.stream.JsonGenerationException
+     *             if a value may not be written in the generator's current
+     *             context.
+     */
+    void writeTo(JsonGenerator gen);
+
+    /**
+     * Write the root instance, exactly as {@link #build()} would produce it,
+     * to a byte stream as UTF-8. The contents are streamed from the builder
+     * without materializing any intermediate JSON structures. The stream is
+     * flushed but not closed.
+     *
+     * @param out
+     *            destination of the JSON text.
+     *
+     * @throws javax.json.JsonException
+     *             if an i/o error occurs.
+     */
+    void writeTo(OutputStream out);
+
+    /**
+     * Write the root instance, exactly as {@link #build()} would produce it,
+     * as a named member of an object being generated by the caller.
+     *
+     * @param name
+     *            member name.
+     *
+     * @param gen
+     *            generator positioned within an object.
+     *
+     * @throws javax.json.stream.JsonGenerationException
+     *             if a named value may not be written in the generator's
+     *             current context.
+     */
+    void writeTo(String name, JsonGenerator gen);
+
+    /**
+     * Write the root instance, exactly as {@link #build()} would produce it, to
+     * a channel as UTF-8. The text is encoded directly to bytes and written in
+     * chunks. The channel is not closed.
+     *
+     * @param out
+     *            destination of the JSON text.
+     *
+     * @throws javax.json.JsonException
+     *             if an i/o error occurs.
+     */
+    void writeTo(WritableByteChannel out);
+
+    /**
+     * Write the root instance to a channel as UTF-8, encoding its top-level
+     * elements or members in parallel on the threads of a pool. The bytes
+     * written are those of {@link #writeTo(WritableByteChannel)}. The channel
+     * is not closed.
+     *
+     * @param out
+     *            destination of the JSON text.
+     *
+     * @param pool
+     *            pool whose threads encode the text.
+     *
+     * @throws javax.json.JsonException
+     *             if an i/o error occurs.
+     */
+    void writeTo(WritableByteChannel out, ForkJoinPool pool);
+
+    /**
+     * Write the root instance, exactly as {@link #build()} would produce it,
+     * to a character stream. The contents are streamed from the builder
+     * without materializing any intermediate JSON structures. The writer is
+     * flushed but not closed.
+     *
+     * @param out
+     *            destination of the JSON text.
+     *
+     * @throws javax.json.JsonException
+     *             if an i/o error occurs.
+     */
+    void writeTo(Writer out);
+
 }
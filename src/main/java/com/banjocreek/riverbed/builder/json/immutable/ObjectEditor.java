@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.immutable;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+import javax.json.JsonArray;
+import javax.json.JsonBuilderFactory;
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+
+import com.banjocreek.riverbed.builder.json.JObjectBuilder;
+import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
+
+/**
+ * Transient object builder used by {@link JObj#edit}. Runs of set operations
+ * are collected and applied to the state together, so a batch of any size
+ * produces one new builder.
+ */
+final class ObjectEditor implements JObjectBuilder<ObjectEditor> {
+
+    private final JsonBuilderFactory factory;
+
+    private final HashMap<String, JsonOp> pending = new HashMap<>();
+
+    private ObjectState state;
+
+    ObjectEditor(final JsonBuilderFactory factory, final ObjectState state) {
+        this.factory = factory;
+        this.state = state;
+    }
+
+    @Override
+    public ObjectEditor clear() {
+        this.pending.clear();
+        this.state = this.state.clear();
+        return this;
+    }
+
+    private ObjectEditor put(final String name, final JsonOp value) {
+        this.pending.put(name, value);
+        return this;
+    }
+
+    @Override
+    public ObjectEditor remove(final String name) {
+        this.state = state().remove(name);
+        return this;
+    }
+
+    @Override
+    public ObjectEditor reset() {
+        this.pending.clear();
+        this.state = this.state.reset();
+        return this;
+    }
+
+    @Override
+    public ObjectEditor set(final String name, final BigDecimal value) {
+        return put(name, JsonOp.of(value));
+    }
+
+    @Override
+    public ObjectEditor set(final String name, final BigInteger value) {
+        return put(name, JsonOp.of(value));
+    }
+
+    @Override
+    public ObjectEditor set(final String name, final boolean value) {
+        return put(name, JsonOp.of(value));
+    }
+
+    @Override
+    public ObjectEditor set(final String name, final double value) {
+        return put(name, JsonOp.of(value));
+    }
+
+    @Override
+    public ObjectEditor set(final String name, final int value) {
+        return put(name, JsonOp.of(value));
+    }
+
+    @Override
+    public ObjectEditor set(final String name, final JsonValue value) {
+        return put(name, JsonOp.of(value));
+    }
+
+    @Override
+    public ObjectEditor set(final String name, final long value) {
+        return put(name, JsonOp.of(value));
+    }
+
+    @Override
+    public ObjectEditor set(final String name, final String value) {
+        return put(name, JsonOp.of(value));
+    }
+
+    @Override
+    public ObjectEditor set(final String name,
+            final Supplier<? extends JsonValue> value) {
+        return put(name, JsonOp.ofDeferred(value));
+    }
+
+    @Override
+    public ObjectEditor setAsync(final String name,
+            final CompletionStage<? extends JsonValue> value) {
+        return put(name, JsonOp.ofAsync(value));
+    }
+
+    @Override
+    public ObjectEditor setNull(final String name) {
+        return put(name, JsonOp.ofNull());
+    }
+
+    /**
+     * State with every recorded operation applied.
+     */
+    ObjectState state() {
+        if (!this.pending.isEmpty()) {
+            this.state = this.state.values(this.pending);
+            this.pending.clear();
+        }
+        return this.state;
+    }
+
+    @Override
+    public ObjectEditor update(final String name, final JsonArray with) {
+        this.state = state().update(name,
+                jop -> JsonOp.combine(this.factory, jop, with));
+        return this;
+    }
+
+    @Override
+    public ObjectEditor update(final String name, final JsonObject with) {
+        this.state = state().update(name,
+                jop -> JsonOp.combine(this.factory, jop, with));
+        return this;
+    }
+
+    @Override
+    public ObjectEditor withDefault(final JsonObject jobj) {
+        final HashMap<String, JsonOp> defaults = new HashMap<>();
+        jobj.forEach((k, jv) -> defaults.put(k, JsonOp.of(jv)));
+        this.state = this.state.defaults(defaults);
+        return this;
+    }
+
+    @Override
+    public ObjectEditor withValue(final JsonObject jobj) {
+        jobj.forEach((k, jv) -> this.pending.put(k, JsonOp.of(jv)));
+        return this;
+    }
+
+}
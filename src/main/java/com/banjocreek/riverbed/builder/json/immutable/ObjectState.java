@@ -0,0 +1,186 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.immutable;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
+import com.banjocreek.riverbed.builder.json.kernel.PersistentMap;
+
+/**
+ * Operations held by an immutable object builder. Each change produces a new
+ * state sharing structure with the previous one, so the cost of a change and
+ * of reading the operations is independent of how the state was reached.
+ */
+final class ObjectState {
+
+    /**
+     * Values laid over defaults, read in place.
+     */
+    private static final class Overlay extends AbstractMap<String, JsonOp> {
+
+        private final PersistentMap<String, JsonOp> defaults;
+
+        private final PersistentMap<String, JsonOp> values;
+
+        Overlay(final PersistentMap<String, JsonOp> defaults,
+                final PersistentMap<String, JsonOp> values) {
+            this.defaults = defaults;
+            this.values = values;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Set<Map.Entry<String, JsonOp>> entrySet() {
+            return new AbstractSet<Map.Entry<String, JsonOp>>() {
+
+                @Override
+                public Iterator<Map.Entry<String, JsonOp>> iterator() {
+                    return new OverlayIterator(Overlay.this.defaults,
+                            Overlay.this.values);
+                }
+
+                @Override
+                public int size() {
+                    int rval = Overlay.this.values.size();
+                    for (final String k : Overlay.this.defaults.keySet()) {
+                        if (!Overlay.this.values.containsKey(k)) {
+                            rval++;
+                        }
+                    }
+                    return rval;
+                }
+
+            };
+        }
+
+        @Override
+        public JsonOp get(final Object key) {
+            final JsonOp rval = this.values.get(key);
+            return rval == null ? this.defaults.get(key) : rval;
+        }
+
+    }
+
+    private static final class OverlayIterator implements
+            Iterator<Map.Entry<String, JsonOp>> {
+
+        private final Iterator<Map.Entry<String, JsonOp>> defaults;
+
+        private Map.Entry<String, JsonOp> next;
+
+        private final PersistentMap<String, JsonOp> values;
+
+        private final Iterator<Map.Entry<String, JsonOp>> valuesIterator;
+
+        OverlayIterator(final PersistentMap<String, JsonOp> defaults,
+                final PersistentMap<String, JsonOp> values) {
+            this.defaults = defaults.entrySet().iterator();
+            this.values = values;
+            this.valuesIterator = values.entrySet().iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (this.next != null) {
+                return true;
+            }
+            if (this.valuesIterator.hasNext()) {
+                this.next = this.valuesIterator.next();
+                return true;
+            }
+            while (this.defaults.hasNext()) {
+                final Map.Entry<String, JsonOp> e = this.defaults.next();
+                if (!this.values.containsKey(e.getKey())) {
+                    this.next = e;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Map.Entry<String, JsonOp> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Map.Entry<String, JsonOp> rval = this.next;
+            this.next = null;
+            return rval;
+        }
+
+    }
+
+    static final ObjectState EMPTY = new ObjectState(PersistentMap.empty(),
+            PersistentMap.empty());
+
+    private final PersistentMap<String, JsonOp> defaults;
+
+    private final PersistentMap<String, JsonOp> values;
+
+    private ObjectState(final PersistentMap<String, JsonOp> defaults,
+            final PersistentMap<String, JsonOp> values) {
+        this.defaults = defaults;
+        this.values = values;
+    }
+
+    ObjectState clear() {
+        return EMPTY;
+    }
+
+    ObjectState defaults(final Map<String, JsonOp> defaults) {
+        return new ObjectState(this.defaults.withAll(defaults), this.values);
+    }
+
+    Map<String, JsonOp> ops() {
+        return this.defaults.isEmpty() ? this.values : new Overlay(
+                this.defaults, this.values);
+    }
+
+    ObjectState remove(final String name) {
+        return new ObjectState(this.defaults, this.values.without(name));
+    }
+
+    ObjectState reset() {
+        return new ObjectState(this.defaults, PersistentMap.empty());
+    }
+
+    ObjectState update(final String name, final UnaryOperator<JsonOp> update) {
+        return new ObjectState(this.defaults, this.values.with(name,
+                update.apply(this.values.get(name))));
+    }
+
+    ObjectState values(final Map<String, JsonOp> values) {
+        return new ObjectState(this.defaults, this.values.withAll(values));
+    }
+
+    ObjectState values(final String name, final JsonOp value) {
+        return new ObjectState(this.defaults, this.values.with(name, value));
+    }
+
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.kernel;
+
+import java.util.AbstractList;
+import java.util.List;
+
+import javax.json.JsonArray;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+
+/**
+ * Typed accessors shared by the kernel's arrays, written in terms of
+ * {@link #get(int)} and {@link #size()}. The hash code is computed at most
+ * once, so subclasses must be immutable. Equality follows the {@link List}
+ * contract.
+ */
+abstract class AbstractJsonArray extends AbstractList<JsonValue> implements
+        JsonArray {
+
+    private int hash;
+
+    @Override
+    public boolean getBoolean(final int index) {
+        final JsonValue value = get(index);
+        if (JsonValue.TRUE.equals(value)) {
+            return true;
+        } else if (JsonValue.FALSE.equals(value)) {
+            return false;
+        } else {
+            throw new ClassCastException();
+        }
+    }
+
+    @Override
+    public boolean getBoolean(final int index, final boolean defaultValue) {
+        if (index < 0 || index >= size()) {
+            return defaultValue;
+        }
+        final JsonValue value = get(index);
+        if (JsonValue.TRUE.equals(value)) {
+            return true;
+        } else if (JsonValue.FALSE.equals(value)) {
+            return false;
+        } else {
+            return defaultValue;
+        }
+    }
+
+    @Override
+    public int getInt(final int index) {
+        return getJsonNumber(index).intValue();
+    }
+
+    @Override
+    public int getInt(final int index, final int defaultValue) {
+        if (index < 0 || index >= size()) {
+            return defaultValue;
+        }
+        final JsonValue value = get(index);
+        return value instanceof JsonNumber ? ((JsonNumber) value).intValue()
+                : defaultValue;
+    }
+
+    @Override
+    public JsonArray getJsonArray(final int index) {
+        return (JsonArray) get(index);
+    }
+
+    @Override
+    public JsonNumber getJsonNumber(final int index) {
+        return (JsonNumber) get(index);
+    }
+
+    @Override
+    public JsonObject getJsonObject(final int index) {
+        return (JsonObject) get(index);
+    }
+
+    @Override
+    public JsonString getJsonString(final int index) {
+        return (JsonString) get(index);
+    }
+
+    @Override
+    public String getString(final int index) {
+        return getJsonString(index).getString();
+    }
+
+    @Override
+    public String getString(final int index, final String defaultValue) {
+        if (index < 0 || index >= size()) {
+            return defaultValue;
+        }
+        final JsonValue value = get(index);
+        return value instanceof JsonString ? ((JsonString) value).getString()
+                : defaultValue;
+    }
+
+    @Override
+    public ValueType getValueType() {
+        return ValueType.ARRAY;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T extends JsonValue> List<T> getValuesAs(final Class<T> clazz) {
+        return (List<T>) this;
+    }
+
+    @Override
+    public int hashCode() {
+        int rval = this.hash;
+        if (rval == 0) {
+            rval = super.hashCode();
+            this.hash = rval;
+        }
+        return rval;
+    }
+
+    @Override
+    public boolean isNull(final int index) {
+        return JsonValue.NULL.equals(get(index));
+    }
+
+    @Override
+    public String toString() {
+        return JsonText.of(this);
+    }
+
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.kernel;
+
+import java.util.AbstractMap;
+import java.util.Map;
+
+import javax.json.JsonArray;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+
+/**
+ * Typed accessors shared by the kernel's objects, written in terms of
+ * {@link #get(Object)}. The hash code is computed at most once, so subclasses
+ * must be immutable. Equality follows the {@link Map} contract.
+ */
+abstract class AbstractJsonObject extends AbstractMap<String, JsonValue>
+        implements JsonObject {
+
+    private int hash;
+
+    @Override
+    public boolean getBoolean(final String name) {
+        final JsonValue value = get(name);
+        if (value == null) {
+            throw new NullPointerException();
+        } else if (JsonValue.TRUE.equals(value)) {
+            return true;
+        } else if (JsonValue.FALSE.equals(value)) {
+            return false;
+        } else {
+            throw new ClassCastException();
+        }
+    }
+
+    @Override
+    public boolean getBoolean(final String name, final boolean defaultValue) {
+        final JsonValue value = get(name);
+        if (JsonValue.TRUE.equals(value)) {
+            return true;
+        } else if (JsonValue.FALSE.equals(value)) {
+            return false;
+        } else {
+            return defaultValue;
+        }
+    }
+
+    @Override
+    public int getInt(final String name) {
+        return getJsonNumber(name).intValue();
+    }
+
+    @Override
+    public int getInt(final String name, final int defaultValue) {
+        final JsonValue value = get(name);
+        return value instanceof JsonNumber ? ((JsonNumber) value).intValue()
+                : defaultValue;
+    }
+
+    @Override
+    public JsonArray getJsonArray(final String name) {
+        return (JsonArray) get(name);
+    }
+
+    @Override
+    public JsonNumber getJsonNumber(final String name) {
+        return (JsonNumber) get(name);
+    }
+
+    @Override
+    public JsonObject getJsonObject(final String name) {
+        return (JsonObject) get(name);
+    }
+
+    @Override
+    public JsonString getJsonString(final String name) {
+        return (JsonString) get(name);
+    }
+
+    @Override
+    public String getString(final String name) {
+        return getJsonString(name).getString();
+    }
+
+    @Override
+    public String getString(final String name, final String defaultValue) {
+        final JsonValue value = get(name);
+        return value instanceof JsonString ? ((JsonString) value).getString()
+                : defaultValue;
+    }
+
+    @Override
+    public ValueType getValueType() {
+        return ValueType.OBJECT;
+    }
+
+    @Override
+    public int hashCode() {
+        int rval = this.hash;
+        if (rval == 0) {
+            rval = super.hashCode();
+            this.hash = rval;
+        }
+        return rval;
+    }
+
+    @Override
+    public boolean isNull(final String name) {
+        return get(name).equals(JsonValue.NULL);
+    }
+
+    @Override
+    public String toString() {
+        return JsonText.of(this);
+    }
+
+}
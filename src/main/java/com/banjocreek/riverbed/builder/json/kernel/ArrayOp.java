@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.kernel;
+
+import java.util.List;
+import java.util.Objects;
+
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonBuilderFactory;
+import javax.json.JsonObjectBuilder;
+import javax.json.stream.JsonGenerator;
+
+/**
+ * The contents of a nested array builder. The array is materialized only when
+ * the enclosing structure is first built, and unless it contains a deferred
+ * value, that instance is reused by every later build that shares this op;
+ * when written, its elements are streamed in place.
+ */
+final class ArrayOp implements JsonOp {
+
+    private volatile JsonArray built;
+
+    private final boolean deferred;
+
+    private final JsonBuilderFactory factory;
+
+    private final List<JsonOp> values;
+
+    public ArrayOp(final JsonBuilderFactory factory, final List<JsonOp> values) {
+        this.factory = Objects.requireNonNull(factory);
+        this.values = Objects.requireNonNull(values);
+        this.deferred = DeferredOp.reachable(values);
+    }
+
+    @Override
+    public void apply(final JsonArrayBuilder jbuf) {
+        jbuf.add(built());
+    }
+
+    @Override
+    public void apply(final JsonGenerator gen) {
+        JsonOp.writeArray(gen, this.values);
+    }
+
+    @Override
+    public void apply(final String key, final JsonGenerator gen) {
+        gen.writeStartArray(key);
+        this.values.forEach(op -> op.apply(gen));
+        gen.writeEnd();
+    }
+
+    @Override
+    public void apply(final String key, final JsonObjectBuilder jbuf) {
+        jbuf.add(key, built());
+    }
+
+    private JsonArray built() {
+        if (this.deferred) {
+            return JsonOp.buildArray(this.factory, this.values);
+        }
+        JsonArray rval = this.built;
+        if (rval == null) {
+            synchronized (this) {
+                rval = this.built;
+                if (rval == null) {
+                    rval = JsonOp.buildArray(this.factory, this.values);
+                    this.built = rval;
+                }
+            }
+        }
+        return rval;
+    }
+
+    boolean deferred() {
+        return this.deferred;
+    }
+
+    List<JsonOp> values() {
+        return this.values;
+    }
+
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.kernel;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonBuilderFactory;
+import javax.json.JsonValue;
+import javax.json.stream.JsonGenerator;
+
+/**
+ * <p>
+ * Read-only array backed directly by the operations of a builder. Nothing is
+ * copied when the view is created. Each element is materialized the first
+ * time it is read and kept thereafter; nested arrays and objects are
+ * themselves views.
+ * </p>
+ *
+ * <p>
+ * The operations must not change while the view is in use. A view written to
+ * a {@link Utf8Generator} streams its operations without materializing any
+ * element.
+ * </p>
+ */
+final class ArrayView extends AbstractJsonArray implements RandomAccess {
+
+    /**
+     * Value of a single operation: a view of a nested builder's contents,
+     * including continued and updated ones, or else the value the operation
+     * would add to an array.
+     */
+    static JsonValue value(final JsonBuilderFactory factory, final JsonOp op) {
+        if (op instanceof ObjectOp) {
+            return new ObjectView(factory, ((ObjectOp) op).values());
+        } else if (op instanceof MergeOp) {
+            return new ObjectView(factory, ((MergeOp) op).resolve());
+        } else if (op instanceof ArrayOp) {
+            return new ArrayView(factory, ((ArrayOp) op).values());
+        } else if (op instanceof ConcatOp) {
+            return new ArrayView(factory, ((ConcatOp) op).flatten());
+        } else if (op instanceof JsonValueOp) {
+            return ((JsonValueOp) op).value();
+        }
+        final JsonArrayBuilder jbuf = NativeBuilderFactory.arrayBuilder(
+                factory, 1);
+        op.apply(jbuf);
+        return jbuf.build().get(0);
+    }
+
+    private final JsonBuilderFactory factory;
+
+    private final List<JsonOp> ops;
+
+    private final int size;
+
+    /*
+     * index of the first element of each operation, or null when every
+     * operation is a single element.
+     */
+    private final int[] starts;
+
+    private final AtomicReferenceArray<JsonValue> values;
+
+    ArrayView(final JsonBuilderFactory factory, final List<JsonOp> ops) {
+        this.factory = factory;
+        this.ops = ops;
+        int[] starts = null;
+        int size = 0;
+        int i = 0;
+        for (final JsonOp op : ops) {
+            if (op instanceof PackedOp && starts == null) {
+                starts = new int[ops.size()];
+                for (int j = 0; j < i; j++) {
+                    starts[j] = j;
+                }
+            }
+            if (starts != null) {
+                starts[i] = size;
+            }
+            size += op instanceof PackedOp ? ((PackedOp) op).size() : 1;
+            i++;
+        }
+        this.starts = starts;
+        this.size = size;
+        this.values = new AtomicReferenceArray<>(size);
+    }
+
+    @Override
+    public JsonValue get(final int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        final JsonValue rval = this.values.get(index);
+        if (rval != null) {
+            return rval;
+        }
+        this.values.compareAndSet(index, null, materialize(index));
+        return this.values.get(index);
+    }
+
+    private JsonValue materialize(final int index) {
+        if (this.starts == null) {
+            return value(this.factory, this.ops.get(index));
+        }
+        /* last operation starting at or before the index */
+        int lo = 0;
+        int hi = this.starts.length - 1;
+        while (lo < hi) {
+            final int mid = lo + hi + 1 >>> 1;
+            if (this.starts[mid] <= index) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        final JsonOp op = this.ops.get(lo);
+        if (!(op instanceof PackedOp)) {
+            return value(this.factory, op);
+        }
+        final JsonArrayBuilder jbuf = NativeBuilderFactory.arrayBuilder(
+                this.factory, 1);
+        ((PackedOp) op).apply(index - this.starts[lo], jbuf);
+        return jbuf.build().get(0);
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public String toString() {
+        final Utf8Generator gen = Utf8Generator.create();
+        writeTo(gen);
+        return new String(gen.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    void writeTo(final JsonGenerator gen) {
+        JsonOp.writeArray(gen, this.ops);
+    }
+
+    void writeTo(final String name, final JsonGenerator gen) {
+        gen.writeStartArray(name);
+        this.ops.forEach(op -> op.apply(gen));
+        gen.writeEnd();
+    }
+
+}
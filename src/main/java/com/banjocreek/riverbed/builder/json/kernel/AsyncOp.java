@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.kernel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonValue;
+import javax.json.stream.JsonGenerator;
+
+/**
+ * Value produced by a completion stage. Applying the op waits for the stage,
+ * so a structure holding these ops should be built once
+ * {@link #resolved(Collection)} completes.
+ */
+final class AsyncOp implements JsonOp {
+
+    /*
+     * add the incomplete stages reachable from an op. Only members that will
+     * be built are visited, so a stage that has been replaced or removed is
+     * not waited for, except within a merge: its layers cannot be resolved
+     * before the value they are laid over, so every layer is visited.
+     */
+    private static void pending(final JsonOp op,
+            final List<CompletableFuture<?>> into) {
+        if (op instanceof AsyncOp) {
+            final CompletableFuture<?> future = ((AsyncOp) op).future;
+            if (!future.isDone()) {
+                into.add(future);
+            }
+        } else if (op instanceof ObjectOp) {
+            ((ObjectOp) op).values().values().forEach(o -> pending(o, into));
+        } else if (op instanceof MergeOp) {
+            ((MergeOp) op).parts(o -> pending(o, into));
+        } else if (op instanceof ArrayOp) {
+            ((ArrayOp) op).values().forEach(o -> pending(o, into));
+        } else if (op instanceof ConcatOp) {
+            for (final ConcatOp segment : ((ConcatOp) op).segments()) {
+                if (segment.stage() != null) {
+                    pending(segment.stage(), into);
+                } else if (segment.ops() != null) {
+                    segment.ops().forEach(o -> pending(o, into));
+                }
+            }
+        }
+    }
+
+    /**
+     * Future that completes when every stage reachable from a collection of
+     * ops has completed. It completes exceptionally if any stage does.
+     */
+    static CompletableFuture<Void> resolved(
+            final Collection<? extends JsonOp> ops) {
+        final List<CompletableFuture<?>> into = new ArrayList<>();
+        ops.forEach(op -> pending(op, into));
+        return CompletableFuture.allOf(into
+                .toArray(new CompletableFuture<?>[into.size()]));
+    }
+
+    private final CompletableFuture<? extends JsonValue> future;
+
+    public AsyncOp(final CompletionStage<? extends JsonValue> stage) {
+        this.future = stage.toCompletableFuture();
+    }
+
+    @Override
+    public void apply(final JsonArrayBuilder jbuf) {
+        jbuf.add(value());
+    }
+
+    @Override
+    public void apply(final JsonGenerator gen) {
+        gen.write(value());
+    }
+
+    @Override
+    public void apply(final String key, final JsonGenerator gen) {
+        gen.write(key, value());
+    }
+
+    @Override
+    public void apply(final String key, final JsonObjectBuilder jbuf) {
+        jbuf.add(key, value());
+    }
+
+    JsonValue value() {
+        return Objects.requireNonNull(this.future.join(),
+                "stage completed with null");
+    }
+
+}
@@ -22,6 +22,7 @@ import java.util.Objects;
 
 import javax.json.JsonArrayBuilder;
 import javax.json.JsonObjectBuilder;
+import javax.json.stream.JsonGenerator;
 
 final class BigIntegerOp implements JsonOp {
 
@@ -31,14 +32,6 @@ final class BigIntegerOp implements JsonOp {
         this.value = Objects.requireNonNull(value);
     }
 
-    public BigIntegerOp(final int value) {
-        this.value = BigInteger.valueOf(value);
-    }
-
-    public BigIntegerOp(final long value) {
-        this.value = BigInteger.valueOf(value);
-    }
-
     @Override
     public void apply(final JsonArrayBuilder jbuf) {
         jbuf.add(this.value);
@@ -48,4 +41,14 @@ final class BigIntegerOp implements JsonOp {
     public void apply(final String key, final JsonObjectBuilder jbuf) {
         jbuf.add(key, this.value);
     }
+
+    @Override
+    public void apply(final JsonGenerator gen) {
+        gen.write(this.value);
+    }
+
+    @Override
+    public void apply(final String key, final JsonGenerator gen) {
+        gen.write(key, this.value);
+    }
 }
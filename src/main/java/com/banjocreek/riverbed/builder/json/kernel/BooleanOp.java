@@ -19,6 +19,7 @@ package com.banjocreek.riverbed.builder.json.kernel;
 
 import javax.json.JsonArrayBuilder;
 import javax.json.JsonObjectBuilder;
+import javax.json.stream.JsonGenerator;
 
 final class BooleanOp implements JsonOp {
 
@@ -37,4 +38,14 @@ final class BooleanOp implements JsonOp {
     public void apply(final String key, final JsonObjectBuilder jbuf) {
         jbuf.add(key, this.value);
     }
+
+    @Override
+    public void apply(final JsonGenerator gen) {
+        gen.write(this.value);
+    }
+
+    @Override
+    public void apply(final String key, final JsonGenerator gen) {
+        gen.write(key, this.value);
+    }
 }
@@ -0,0 +1,247 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.kernel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonBuilderFactory;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonValue;
+import javax.json.stream.JsonGenerator;
+
+/**
+ * <p>
+ * An array formed by appending segments to an earlier array. Appending takes
+ * constant time and shares every earlier segment; the segments are flattened
+ * into a single array only when the enclosing structure is built or written.
+ * </p>
+ *
+ * <p>
+ * An earlier array produced by a completion stage is appended to once the
+ * stage completes; flattening waits for it.
+ * </p>
+ */
+final class ConcatOp implements JsonOp {
+
+    /**
+     * Concatenation that starts with an existing array.
+     *
+     * @param factory
+     *            factory used to materialize the array.
+     *
+     * @param origOp
+     *            existing value, may be null.
+     *
+     * @return concatenation starting with the array, or null if the value is
+     *         not an array. A stage is assumed to produce an array; if it
+     *         does not, the concatenation starts empty.
+     */
+    static ConcatOp extending(final JsonBuilderFactory factory,
+            final JsonOp origOp) {
+        final ConcatOp rval;
+        if (origOp instanceof ConcatOp) {
+            rval = (ConcatOp) origOp;
+        } else if (origOp instanceof ArrayOp) {
+            rval = new ConcatOp(factory, ((ArrayOp) origOp).values());
+        } else if (origOp instanceof JsonValueOp
+                && ((JsonValueOp) origOp).value() instanceof JsonArray) {
+            rval = new ConcatOp(factory, (JsonArray) ((JsonValueOp) origOp)
+                    .value());
+        } else if (origOp instanceof AsyncOp) {
+            rval = new ConcatOp(factory, null, null, null, (AsyncOp) origOp);
+        } else {
+            rval = null;
+        }
+        return rval;
+    }
+
+    private volatile JsonArray built;
+
+    private final boolean deferred;
+
+    private final int depth;
+
+    private final JsonBuilderFactory factory;
+
+    private final List<JsonOp> ops;
+
+    private final ConcatOp previous;
+
+    private final AsyncOp stage;
+
+    private final JsonArray values;
+
+    ConcatOp(final JsonBuilderFactory factory, final JsonArray values) {
+        this(factory, null, null, Objects.requireNonNull(values), null);
+    }
+
+    ConcatOp(final JsonBuilderFactory factory, final List<JsonOp> ops) {
+        this(factory, null, Objects.requireNonNull(ops), null, null);
+    }
+
+    private ConcatOp(final JsonBuilderFactory factory,
+            final ConcatOp previous, final List<JsonOp> ops,
+            final JsonArray values, final AsyncOp stage) {
+        this.factory = Objects.requireNonNull(factory);
+        this.previous = previous;
+        this.depth = previous == null ? 0 : previous.depth + 1;
+        this.ops = ops;
+        this.stage = stage;
+        this.values = values;
+        this.deferred = previous != null && previous.deferred || ops != null
+                && DeferredOp.reachable(ops);
+    }
+
+    ConcatOp append(final JsonArray values) {
+        return new ConcatOp(this.factory, this, null,
+                Objects.requireNonNull(values), null);
+    }
+
+    ConcatOp append(final List<JsonOp> ops) {
+        return new ConcatOp(this.factory, this, Objects.requireNonNull(ops),
+                null, null);
+    }
+
+    @Override
+    public void apply(final JsonArrayBuilder jbuf) {
+        jbuf.add(built());
+    }
+
+    @Override
+    public void apply(final JsonGenerator gen) {
+        gen.writeStartArray();
+        write(gen);
+        gen.writeEnd();
+    }
+
+    @Override
+    public void apply(final String key, final JsonGenerator gen) {
+        gen.writeStartArray(key);
+        write(gen);
+        gen.writeEnd();
+    }
+
+    @Override
+    public void apply(final String key, final JsonObjectBuilder jbuf) {
+        jbuf.add(key, built());
+    }
+
+    private JsonArray build() {
+        final JsonArrayBuilder jbuf = this.factory.createArrayBuilder();
+        for (final ConcatOp segment : segments()) {
+            if (segment.ops == null) {
+                segment.elements().forEach(jbuf::add);
+            } else {
+                segment.ops.forEach(op -> op.apply(jbuf));
+            }
+        }
+        return jbuf.build();
+    }
+
+    private JsonArray built() {
+        if (this.deferred) {
+            return build();
+        }
+        JsonArray rval = this.built;
+        if (rval == null) {
+            synchronized (this) {
+                rval = this.built;
+                if (rval == null) {
+                    rval = build();
+                    this.built = rval;
+                }
+            }
+        }
+        return rval;
+    }
+
+    boolean deferred() {
+        return this.deferred;
+    }
+
+    /*
+     * elements of a segment that holds an array. A stage that completes with
+     * anything other than an array contributes none.
+     */
+    private List<JsonValue> elements() {
+        if (this.stage == null) {
+            return this.values;
+        }
+        final JsonValue rval = this.stage.value();
+        return rval instanceof JsonArray ? (JsonArray) rval : Collections
+                .emptyList();
+    }
+
+    /*
+     * operations of every segment in order, with the elements of arrays
+     * appended as values. Nested builder contents are not materialized.
+     */
+    List<JsonOp> flatten() {
+        final List<JsonOp> rval = new ArrayList<>();
+        for (final ConcatOp segment : segments()) {
+            if (segment.ops == null) {
+                segment.elements().forEach(jv -> rval.add(JsonOp.of(jv)));
+            } else {
+                rval.addAll(segment.ops);
+            }
+        }
+        return rval;
+    }
+
+    /*
+     * builder contents of this segment, or null if it holds an array.
+     */
+    List<JsonOp> ops() {
+        return this.ops;
+    }
+
+    /*
+     * segments oldest first. The chain is walked rather than recursed so that
+     * long histories do not exhaust the stack.
+     */
+    ConcatOp[] segments() {
+        final ConcatOp[] rval = new ConcatOp[this.depth + 1];
+        for (ConcatOp s = this; s != null; s = s.previous) {
+            rval[s.depth] = s;
+        }
+        return rval;
+    }
+
+    /*
+     * stage producing the array of this segment, or null.
+     */
+    AsyncOp stage() {
+        return this.stage;
+    }
+
+    private void write(final JsonGenerator gen) {
+        for (final ConcatOp segment : segments()) {
+            if (segment.ops == null) {
+                segment.elements().forEach(gen::write);
+            } else {
+                segment.ops.forEach(op -> op.apply(gen));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.kernel;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonValue;
+import javax.json.stream.JsonGenerator;
+
+/**
+ * Value computed by a supplier each time the op is built or written, and only
+ * then. An op that is replaced or removed before that never calls its
+ * supplier.
+ */
+final class DeferredOp implements JsonOp {
+
+    /*
+     * whether a deferred op is reachable from an op. Structures that contain
+     * one are built afresh each time rather than reused, so that the supplier
+     * runs on every build at any depth.
+     */
+    static boolean reachable(final JsonOp op) {
+        if (op instanceof DeferredOp) {
+            return true;
+        } else if (op instanceof ObjectOp) {
+            return ((ObjectOp) op).deferred();
+        } else if (op instanceof ArrayOp) {
+            return ((ArrayOp) op).deferred();
+        } else if (op instanceof MergeOp) {
+            return ((MergeOp) op).deferred();
+        } else if (op instanceof ConcatOp) {
+            return ((ConcatOp) op).deferred();
+        }
+        return false;
+    }
+
+    static boolean reachable(final Collection<JsonOp> ops) {
+        for (final JsonOp op : ops) {
+            if (reachable(op)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private final Supplier<? extends JsonValue> supplier;
+
+    public DeferredOp(final Supplier<? extends JsonValue> supplier) {
+        this.supplier = Objects.requireNonNull(supplier);
+    }
+
+    @Override
+    public void apply(final JsonArrayBuilder jbuf) {
+        jbuf.add(value());
+    }
+
+    @Override
+    public void apply(final JsonGenerator gen) {
+        gen.write(value());
+    }
+
+    @Override
+    public void apply(final String key, final JsonGenerator gen) {
+        gen.write(key, value());
+    }
+
+    @Override
+    public void apply(final String key, final JsonObjectBuilder jbuf) {
+        jbuf.add(key, value());
+    }
+
+    private JsonValue value() {
+        return Objects.requireNonNull(this.supplier.get(),
+                "supplier returned null");
+    }
+
+}
@@ -19,54 +19,217 @@ package com.banjocreek.riverbed.builder.json.kernel;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
-import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonArrayBuilder;
+import javax.json.JsonBuilderFactory;
 import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
 import javax.json.JsonValue;
+import javax.json.stream.JsonGenerator;
 
 public interface JsonOp {
 
-    static JsonArray buildArray(final List<JsonOp> values) {
-        final JsonArrayBuilder jbuf = Json.createArrayBuilder();
+    /**
+     * Array builder sized for an expected number of elements when the
+     * factory is a kernel factory.
+     *
+     * @param factory
+     *            factory to create the builder.
+     *
+     * @param capacity
+     *            expected number of elements.
+     *
+     * @return new builder.
+     */
+    static JsonArrayBuilder arrayBuilder(final JsonBuilderFactory factory,
+            final int capacity) {
+        return NativeBuilderFactory.arrayBuilder(factory, capacity);
+    }
+
+    static JsonArray buildArray(final JsonBuilderFactory factory,
+            final List<JsonOp> values) {
+        final JsonArrayBuilder jbuf = NativeBuilderFactory.arrayBuilder(
+                factory, values.size());
         values.forEach(op -> op.apply(jbuf));
         return jbuf.build();
     }
 
-    static JsonObject buildObject(final Map<String, JsonOp> values) {
-        final JsonObjectBuilder jbuf = Json.createObjectBuilder();
+    static JsonArray buildArray(final List<JsonOp> values) {
+        return buildArray(defaultFactory(), values);
+    }
+
+    static JsonObject buildObject(final JsonBuilderFactory factory,
+            final Map<String, JsonOp> values) {
+        final JsonObjectBuilder jbuf = NativeBuilderFactory.objectBuilder(
+                factory, values.size());
         values.forEach((k, op) -> {
             op.apply(k, jbuf);
         });
         return jbuf.build();
     }
 
-    static JsonOp combine(final JsonOp origOp, final JsonArray ovr) {
+    static JsonObject buildObject(final Map<String, JsonOp> values) {
+        return buildObject(defaultFactory(), values);
+    }
 
-        final JsonValueOp rval;
-        if (origOp instanceof JsonValueOp) {
-            rval = new JsonValueOp((JsonValueOp) origOp, ovr);
-        } else {
-            rval = new JsonValueOp(ovr);
+    /**
+     * Check that a double has a JSON representation.
+     *
+     * @param value
+     *            the value.
+     *
+     * @return the value.
+     *
+     * @throws NumberFormatException
+     *             if the value is infinite or not a number.
+     */
+    static double checkFinite(final double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new NumberFormatException("not a JSON number: " + value);
         }
-        return rval;
+        return value;
+    }
+
+    /**
+     * Array formed by appending values to an existing array. The original
+     * array is shared rather than copied, so repeated appends are linear in
+     * the total number of elements. If the original is absent or not an
+     * array, the result holds only the appended values.
+     *
+     * @param factory
+     *            factory used to materialize the array.
+     *
+     * @param origOp
+     *            original value, may be null.
+     *
+     * @param ovr
+     *            values to append.
+     *
+     * @return combined array.
+     */
+    static JsonOp combine(final JsonBuilderFactory factory,
+            final JsonOp origOp, final JsonArray ovr) {
+
+        final ConcatOp base = ConcatOp.extending(factory, origOp);
+        return base == null ? new JsonValueOp(ovr) : base.append(ovr);
+
+    }
+
+    /**
+     * Array formed by appending the contents of an array builder to an
+     * existing array. Behaves as {@link #combine(JsonBuilderFactory, JsonOp,
+     * JsonArray)} without first materializing the appended values.
+     *
+     * @param factory
+     *            factory used to materialize the array.
+     *
+     * @param origOp
+     *            original value, may be null.
+     *
+     * @param ovr
+     *            operations to append.
+     *
+     * @return combined array.
+     */
+    static JsonOp combine(final JsonBuilderFactory factory,
+            final JsonOp origOp, final List<JsonOp> ovr) {
+
+        final ConcatOp base = ConcatOp.extending(factory, origOp);
+        return base == null ? new ArrayOp(factory, ovr) : base.append(ovr);
 
     }
 
+    /**
+     * Object formed by laying members over an existing object. Members of the
+     * overlay replace those of the same name; the original object is shared
+     * rather than copied and the layers are resolved only when the result is
+     * built or written. If the original is absent or not an object, the
+     * result holds only the overlay.
+     *
+     * @param factory
+     *            factory used to materialize the object.
+     *
+     * @param origOp
+     *            original value, may be null.
+     *
+     * @param ovr
+     *            members to lay over the original.
+     *
+     * @return combined object.
+     */
+    static JsonOp combine(final JsonBuilderFactory factory,
+            final JsonOp origOp, final JsonObject ovr) {
+        return MergeOp.extending(factory, origOp).merge(ovr);
+    }
+
+    /**
+     * Object formed by laying the contents of an object builder over an
+     * existing object. Behaves as {@link #combine(JsonBuilderFactory, JsonOp,
+     * JsonObject)} without first materializing the overlay, except that
+     * objects continued within the overlay are themselves laid over the
+     * corresponding members of the original.
+     *
+     * @param factory
+     *            factory used to materialize the object.
+     *
+     * @param origOp
+     *            original value, may be null.
+     *
+     * @param ovr
+     *            operations to lay over the original.
+     *
+     * @return combined object.
+     */
+    static JsonOp combine(final JsonBuilderFactory factory,
+            final JsonOp origOp, final Map<String, JsonOp> ovr) {
+        return MergeOp.extending(factory, origOp).merge(ovr);
+    }
+
+    static JsonOp combine(final JsonOp origOp, final JsonArray ovr) {
+        return combine(defaultFactory(), origOp, ovr);
+    }
+
     static JsonOp combine(final JsonOp origOp, final JsonObject ovr) {
+        return combine(defaultFactory(), origOp, ovr);
+    }
 
-        final JsonValueOp rval;
-        if (origOp instanceof JsonValueOp) {
-            rval = new JsonValueOp((JsonValueOp) origOp, ovr);
-        } else {
-            rval = new JsonValueOp(ovr);
-        }
-        return rval;
+    /**
+     * Builder factory used when a builder is not given one. It produces the
+     * kernel's own compact JSON values without consulting the JSON provider;
+     * give a builder a provider factory to have it produce provider values
+     * instead.
+     *
+     * @return shared builder factory.
+     */
+    static JsonBuilderFactory defaultFactory() {
+        return DefaultFactory.BUILDERS;
+    }
 
+    /**
+     * Object builder sized for an expected number of members when the
+     * factory is a kernel factory.
+     *
+     * @param factory
+     *            factory to create the builder.
+     *
+     * @param capacity
+     *            expected number of members.
+     *
+     * @return new builder.
+     */
+    static JsonObjectBuilder objectBuilder(final JsonBuilderFactory factory,
+            final int capacity) {
+        return NativeBuilderFactory.objectBuilder(factory, capacity);
     }
 
     static JsonOp of(final BigDecimal value) {
@@ -82,11 +245,11 @@ public interface JsonOp {
     }
 
     static JsonOp of(final double value) {
-        return new BigDecimalOp(value);
+        return new DoubleOp(value);
     }
 
     static JsonOp of(final int value) {
-        return new BigIntegerOp(value);
+        return new IntOp(value);
     }
 
     static JsonOp of(final JsonValue value) {
@@ -94,19 +257,284 @@ public interface JsonOp {
     }
 
     static JsonOp of(final long value) {
-        return new BigIntegerOp(value);
+        return new LongOp(value);
     }
 
     static JsonOp of(final String value) {
         return new StringOp(value);
     }
 
+    /**
+     * Run of array elements held in one op, valid only among the values of an
+     * array. The array is copied.
+     *
+     * @param values
+     *            elements, in order.
+     *
+     * @return op that adds or writes every element.
+     */
+    static JsonOp ofAll(final boolean[] values) {
+        return new PackedOp.Booleans(values.clone());
+    }
+
+    /**
+     * Run of array elements held in one op, valid only among the values of an
+     * array. The array is copied.
+     *
+     * @param values
+     *            elements, in order.
+     *
+     * @return op that adds or writes every element.
+     *
+     * @throws NumberFormatException
+     *             if any element is infinite or not a number.
+     */
+    static JsonOp ofAll(final double[] values) {
+        return new PackedOp.Doubles(values.clone());
+    }
+
+    /**
+     * Run of array elements held in one op, valid only among the values of an
+     * array. The stream is consumed immediately.
+     *
+     * @param values
+     *            elements, in order.
+     *
+     * @return op that adds or writes every element.
+     *
+     * @throws NumberFormatException
+     *             if any element is infinite or not a number.
+     */
+    static JsonOp ofAll(final DoubleStream values) {
+        return new PackedOp.Doubles(values.toArray());
+    }
+
+    /**
+     * Run of array elements held in one op, valid only among the values of an
+     * array. The array is copied.
+     *
+     * @param values
+     *            elements, in order.
+     *
+     * @return op that adds or writes every element.
+     */
+    static JsonOp ofAll(final int[] values) {
+        return new PackedOp.Ints(values.clone());
+    }
+
+    /**
+     * Run of array elements held in one op, valid only among the values of an
+     * array. The stream is consumed immediately.
+     *
+     * @param values
+     *            elements, in order.
+     *
+     * @return op that adds or writes every element.
+     */
+    static JsonOp ofAll(final IntStream values) {
+        return new PackedOp.Ints(values.toArray());
+    }
+
+    /**
+     * Elements of an array, spliced in place among the values of another
+     * array. The elements are shared rather than copied.
+     *
+     * @param values
+     *            elements, in order.
+     *
+     * @return op that adds or writes every element.
+     */
+    static JsonOp ofAll(final JsonArray values) {
+        return new PackedOp.Values(values);
+    }
+
+    /**
+     * Run of array elements held in one op, valid only among the values of an
+     * array. The array is copied.
+     *
+     * @param values
+     *            elements, in order.
+     *
+     * @return op that adds or writes every element.
+     */
+    static JsonOp ofAll(final long[] values) {
+        return new PackedOp.Longs(values.clone());
+    }
+
+    /**
+     * Run of array elements held in one op, valid only among the values of an
+     * array. The stream is consumed immediately.
+     *
+     * @param values
+     *            elements, in order.
+     *
+     * @return op that adds or writes every element.
+     */
+    static JsonOp ofAll(final LongStream values) {
+        return new PackedOp.Longs(values.toArray());
+    }
+
+    /**
+     * Run of array elements held in one op, valid only among the values of an
+     * array. The array is copied.
+     *
+     * @param values
+     *            elements, in order.
+     *
+     * @return op that adds or writes every element.
+     *
+     * @throws NullPointerException
+     *             if any element is null.
+     */
+    static JsonOp ofAll(final String[] values) {
+        return new PackedOp.Strings(values.clone());
+    }
+
+    /**
+     * Nest the contents of an array builder. The array is materialized with
+     * the factory when the enclosing structure is built and is streamed in
+     * place when the enclosing structure is written.
+     *
+     * @param factory
+     *            factory used to materialize the array.
+     *
+     * @param values
+     *            array contents. Must not be modified afterward.
+     *
+     * @return nested array operation.
+     */
+    static JsonOp ofArray(final JsonBuilderFactory factory,
+            final List<JsonOp> values) {
+        return new ArrayOp(factory, values);
+    }
+
+    /**
+     * Value produced by a completion stage. Building or writing the enclosing
+     * structure waits for the stage; use {@link #whenResolved(Collection)} to
+     * build only once it has completed. The stage must not complete with
+     * null.
+     *
+     * @param stage
+     *            produces the value. Must not be null.
+     *
+     * @return asynchronous operation.
+     */
+    static JsonOp ofAsync(final CompletionStage<? extends JsonValue> stage) {
+        return new AsyncOp(stage);
+    }
+
+    /**
+     * Value computed by a supplier only when the enclosing structure is built
+     * or written. The supplier runs each time the op is applied, at any depth,
+     * and never if the op is replaced or removed first; objects and arrays
+     * that contain it are not reused between builds. It must not return null.
+     *
+     * @param supplier
+     *            computes the value. Must not be null.
+     *
+     * @return deferred operation.
+     */
+    static JsonOp ofDeferred(final Supplier<? extends JsonValue> supplier) {
+        return new DeferredOp(supplier);
+    }
+
     static JsonOp ofNull() {
         return new NullOp();
     }
 
+    /**
+     * Nest the contents of an object builder. The object is materialized with
+     * the factory when the enclosing structure is built and is streamed in
+     * place when the enclosing structure is written.
+     *
+     * @param factory
+     *            factory used to materialize the object.
+     *
+     * @param values
+     *            object contents. Must not be modified afterward.
+     *
+     * @return nested object operation.
+     */
+    static JsonOp ofObject(final JsonBuilderFactory factory,
+            final Map<String, JsonOp> values) {
+        return new ObjectOp(factory, values);
+    }
+
+    /**
+     * Read-only array backed by operations rather than built from them.
+     * Creating the view copies nothing; each element is materialized with the
+     * factory when it is first read, and nested arrays and objects are
+     * views in turn.
+     *
+     * @param factory
+     *            factory used to materialize elements.
+     *
+     * @param values
+     *            operations, which must not change while the view is in use.
+     *
+     * @return array view.
+     */
+    static JsonArray viewArray(final JsonBuilderFactory factory,
+            final List<JsonOp> values) {
+        return new ArrayView(factory, values);
+    }
+
+    /**
+     * Read-only object backed by operations rather than built from them.
+     * Creating the view copies nothing; each member is materialized with the
+     * factory when it is first read, and nested arrays and objects are
+     * views in turn.
+     *
+     * @param factory
+     *            factory used to materialize members.
+     *
+     * @param values
+     *            operations, which must not change while the view is in use.
+     *
+     * @return object view.
+     */
+    static JsonObject viewObject(final JsonBuilderFactory factory,
+            final Map<String, JsonOp> values) {
+        return new ObjectView(factory, values);
+    }
+
+    /**
+     * Future that completes when every asynchronous value that building the
+     * ops would use has completed. Values that have been replaced or removed
+     * are not waited for, except within a continued or updated object, whose
+     * layers are all waited for. All of the values are awaited together, so
+     * the future completes with the slowest of them. It completes
+     * exceptionally if any of them does.
+     *
+     * @param ops
+     *            operations to be built.
+     *
+     * @return future of resolution.
+     */
+    static CompletableFuture<Void> whenResolved(
+            final Collection<? extends JsonOp> ops) {
+        return AsyncOp.resolved(ops);
+    }
+
+    static void writeArray(final JsonGenerator gen, final List<JsonOp> values) {
+        gen.writeStartArray();
+        values.forEach(op -> op.apply(gen));
+        gen.writeEnd();
+    }
+
+    static void writeObject(final JsonGenerator gen,
+            final Map<String, JsonOp> values) {
+        gen.writeStartObject();
+        values.forEach((k, op) -> op.apply(k, gen));
+        gen.writeEnd();
+    }
+
     void apply(JsonArrayBuilder jbuf);
 
+    void apply(JsonGenerator gen);
+
+    void apply(String key, JsonGenerator gen);
+
     void apply(String key, JsonObjectBuilder jbuf);
 
 }
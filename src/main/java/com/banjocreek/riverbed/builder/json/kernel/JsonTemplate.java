@@ -0,0 +1,481 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.kernel;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import javax.json.JsonValue;
+
+/**
+ * <p>
+ * JSON document of fixed shape with named slots. The constant parts of the
+ * document are encoded once, when the template is compiled, into UTF-8
+ * fragments. Writing a {@link Binding} copies the fragments and encodes only
+ * the values bound to its slots.
+ * </p>
+ *
+ * <p>
+ * Slots are placed in a definition with {@link #slot(String)}, anywhere a
+ * value may appear. A slot name may appear more than once; every occurrence
+ * receives the same value. A slot that is not bound is written as null.
+ * </p>
+ *
+ * <p>
+ * A template is immutable and may be shared between threads. Each binding
+ * belongs to one thread at a time.
+ * </p>
+ */
+public final class JsonTemplate {
+
+    /**
+     * Values for the slots of a template. A binding may be written any number
+     * of times and its slots may be changed between writes.
+     */
+    public final class Binding {
+
+        private final byte[] kinds;
+
+        private final long[] primitives;
+
+        private final Object[] references;
+
+        private Binding() {
+            final int n = JsonTemplate.this.names.length;
+            this.kinds = new byte[n];
+            this.primitives = new long[n];
+            this.references = new Object[n];
+        }
+
+        private Binding primitive(final String name, final byte kind,
+                final long value) {
+            final int slot = index(name);
+            this.kinds[slot] = kind;
+            this.primitives[slot] = value;
+            this.references[slot] = null;
+            return this;
+        }
+
+        private Binding reference(final String name, final byte kind,
+                final Object value) {
+            Objects.requireNonNull(value);
+            final int slot = index(name);
+            this.kinds[slot] = kind;
+            this.references[slot] = value;
+            return this;
+        }
+
+        /**
+         * Bind a number to a slot.
+         *
+         * @param name
+         *            slot name.
+         *
+         * @param value
+         *            value, must not be null.
+         *
+         * @return this binding.
+         *
+         * @throws IllegalArgumentException
+         *             if the template has no slot with the name.
+         */
+        public Binding set(final String name, final BigDecimal value) {
+            return reference(name, DECIMAL, value);
+        }
+
+        /**
+         * Bind a number to a slot.
+         *
+         * @param name
+         *            slot name.
+         *
+         * @param value
+         *            value, must not be null.
+         *
+         * @return this binding.
+         *
+         * @throws IllegalArgumentException
+         *             if the template has no slot with the name.
+         */
+        public Binding set(final String name, final BigInteger value) {
+            return reference(name, INTEGER, value);
+        }
+
+        /**
+         * Bind a boolean to a slot.
+         *
+         * @param name
+         *            slot name.
+         *
+         * @param value
+         *            value.
+         *
+         * @return this binding.
+         *
+         * @throws IllegalArgumentException
+         *             if the template has no slot with the name.
+         */
+        public Binding set(final String name, final boolean value) {
+            return primitive(name, BOOLEAN, value ? 1 : 0);
+        }
+
+        /**
+         * Bind a number to a slot.
+         *
+         * @param name
+         *            slot name.
+         *
+         * @param value
+         *            value.
+         *
+         * @return this binding.
+         *
+         * @throws IllegalArgumentException
+         *             if the template has no slot with the name.
+         *
+         * @throws NumberFormatException
+         *             if the value is infinite or not a number.
+         */
+        public Binding set(final String name, final double value) {
+            return primitive(name, DOUBLE,
+                    Double.doubleToRawLongBits(JsonOp.checkFinite(value)));
+        }
+
+        /**
+         * Bind a number to a slot.
+         *
+         * @param name
+         *            slot name.
+         *
+         * @param value
+         *            value.
+         *
+         * @return this binding.
+         *
+         * @throws IllegalArgumentException
+         *             if the template has no slot with the name.
+         */
+        public Binding set(final String name, final int value) {
+            return primitive(name, LONG, value);
+        }
+
+        /**
+         * Bind any JSON value, including an array or object, to a slot.
+         *
+         * @param name
+         *            slot name.
+         *
+         * @param value
+         *            value, must not be null.
+         *
+         * @return this binding.
+         *
+         * @throws IllegalArgumentException
+         *             if the template has no slot with the name.
+         */
+        public Binding set(final String name, final JsonValue value) {
+            return reference(name, VALUE, value);
+        }
+
+        /**
+         * Bind a number to a slot.
+         *
+         * @param name
+         *            slot name.
+         *
+         * @param value
+         *            value.
+         *
+         * @return this binding.
+         *
+         * @throws IllegalArgumentException
+         *             if the template has no slot with the name.
+         */
+        public Binding set(final String name, final long value) {
+            return primitive(name, LONG, value);
+        }
+
+        /**
+         * Bind a string to a slot.
+         *
+         * @param name
+         *            slot name.
+         *
+         * @param value
+         *            value, must not be null.
+         *
+         * @return this binding.
+         *
+         * @throws IllegalArgumentException
+         *             if the template has no slot with the name.
+         */
+        public Binding set(final String name, final String value) {
+            return reference(name, STRING, value);
+        }
+
+        /**
+         * Bind null to a slot. This is the value of every slot that has not
+         * been bound.
+         *
+         * @param name
+         *            slot name.
+         *
+         * @return this binding.
+         *
+         * @throws IllegalArgumentException
+         *             if the template has no slot with the name.
+         */
+        public Binding setNull(final String name) {
+            return primitive(name, NULL, 0);
+        }
+
+        /**
+         * Encode the document as UTF-8.
+         *
+         * @return encoded document.
+         */
+        public byte[] toBytes() {
+            final Utf8Generator gen = Utf8Generator.create();
+            write(gen);
+            return gen.toByteArray();
+        }
+
+        private void value(final int slot, final Utf8Generator gen) {
+            switch (this.kinds[slot]) {
+            case BOOLEAN:
+                gen.write(this.primitives[slot] != 0);
+                break;
+            case DECIMAL:
+                gen.write((BigDecimal) this.references[slot]);
+                break;
+            case DOUBLE:
+                gen.write(Double.longBitsToDouble(this.primitives[slot]));
+                break;
+            case INTEGER:
+                gen.write((BigInteger) this.references[slot]);
+                break;
+            case LONG:
+                gen.write(this.primitives[slot]);
+                break;
+            case STRING:
+                gen.write((String) this.references[slot]);
+                break;
+            case VALUE:
+                gen.write((JsonValue) this.references[slot]);
+                break;
+            default:
+                gen.writeNull();
+            }
+        }
+
+        private void write(final Utf8Generator gen) {
+            final byte[][] fragments = JsonTemplate.this.fragments;
+            final int[] holes = JsonTemplate.this.holes;
+            for (int i = 0; i < holes.length; i++) {
+                gen.raw(fragments[i]);
+                value(holes[i], gen);
+            }
+            gen.raw(fragments[holes.length]);
+            gen.flush();
+        }
+
+        /**
+         * Write the document into a buffer, starting at its position. The
+         * position is advanced past the document.
+         *
+         * @param out
+         *            destination buffer.
+         *
+         * @throws java.nio.BufferOverflowException
+         *             if a buffer with an accessible array has insufficient
+         *             space remaining.
+         */
+        public void writeTo(final ByteBuffer out) {
+            write(Utf8Generator.create(out));
+        }
+
+        /**
+         * Write the document to a byte stream as UTF-8. The stream is flushed
+         * but not closed.
+         *
+         * @param out
+         *            destination stream.
+         */
+        public void writeTo(final OutputStream out) {
+            write(Utf8Generator.create(out));
+        }
+
+        /**
+         * Write the document to a channel as UTF-8. The channel is not closed.
+         *
+         * @param out
+         *            destination channel.
+         */
+        public void writeTo(final WritableByteChannel out) {
+            write(Utf8Generator.create(out));
+        }
+
+    }
+
+    /*
+     * placeholder for a slot in a definition. It is null everywhere except
+     * in a compiling generator, so it is equal to every null value.
+     */
+    static final class Slot implements JsonValue {
+
+        final String name;
+
+        Slot(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof JsonValue
+                    && ((JsonValue) obj).getValueType() == ValueType.NULL;
+        }
+
+        @Override
+        public ValueType getValueType() {
+            return ValueType.NULL;
+        }
+
+        @Override
+        public int hashCode() {
+            return JsonValue.NULL.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "null";
+        }
+
+    }
+
+    private static final byte BOOLEAN = 1;
+
+    private static final byte DECIMAL = 2;
+
+    private static final byte DOUBLE = 3;
+
+    private static final byte INTEGER = 4;
+
+    private static final byte LONG = 5;
+
+    private static final byte NULL = 0;
+
+    private static final byte STRING = 6;
+
+    private static final byte VALUE = 7;
+
+    /**
+     * Compile a definition. Its output is recorded once and divided into
+     * fragments at each slot.
+     *
+     * @param definition
+     *            operation that writes the definition.
+     *
+     * @return template.
+     */
+    public static JsonTemplate compile(final JsonOp definition) {
+        final List<byte[]> fragments = new ArrayList<>();
+        final List<String> names = new ArrayList<>();
+        final List<Integer> holes = new ArrayList<>();
+        final Utf8Generator gen = Utf8Generator.recording((prefix, slot) -> {
+            int index = names.indexOf(slot.name);
+            if (index < 0) {
+                index = names.size();
+                names.add(slot.name);
+            }
+            fragments.add(prefix);
+            holes.add(index);
+        });
+        definition.apply(gen);
+        fragments.add(gen.cut());
+        return new JsonTemplate(fragments.toArray(new byte[0][]),
+                holes.stream().mapToInt(Integer::intValue).toArray(),
+                names.toArray(new String[0]));
+    }
+
+    /**
+     * Placeholder for a value supplied when the template is bound. Outside
+     * of a compiled template the placeholder is null.
+     *
+     * @param name
+     *            slot name, must not be null.
+     *
+     * @return placeholder value.
+     */
+    public static JsonValue slot(final String name) {
+        return new Slot(Objects.requireNonNull(name));
+    }
+
+    private final byte[][] fragments;
+
+    private final int[] holes;
+
+    private final String[] names;
+
+    private JsonTemplate(final byte[][] fragments, final int[] holes,
+            final String[] names) {
+        this.fragments = fragments;
+        this.holes = holes;
+        this.names = names;
+    }
+
+    /**
+     * Start binding values to the slots. Every slot is initially null.
+     *
+     * @return new binding.
+     */
+    public Binding bind() {
+        return new Binding();
+    }
+
+    private int index(final String name) {
+        final String[] names = this.names;
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] == name) {
+                return i;
+            }
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("no slot named " + name);
+    }
+
+    /**
+     * Names of the slots, in order of first appearance.
+     *
+     * @return slot names.
+     */
+    public List<String> slots() {
+        return Arrays.asList(this.names.clone());
+    }
+
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.kernel;
+
+import java.util.Map;
+
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+
+/**
+ * Compact JSON text for the kernel values' string forms.
+ */
+final class JsonText {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    static void append(final StringBuilder buf, final JsonValue value) {
+        switch (value.getValueType()) {
+        case ARRAY:
+            appendArray(buf, (JsonArray) value);
+            break;
+        case OBJECT:
+            appendObject(buf, (JsonObject) value);
+            break;
+        case STRING:
+            appendString(buf, ((JsonString) value).getString());
+            break;
+        default:
+            buf.append(value.toString());
+        }
+    }
+
+    private static void appendArray(final StringBuilder buf,
+            final JsonArray value) {
+        buf.append('[');
+        boolean first = true;
+        for (final JsonValue element : value) {
+            if (!first) {
+                buf.append(',');
+            }
+            first = false;
+            append(buf, element);
+        }
+        buf.append(']');
+    }
+
+    private static void appendObject(final StringBuilder buf,
+            final JsonObject value) {
+        buf.append('{');
+        boolean first = true;
+        for (final Map.Entry<String, JsonValue> member : value.entrySet()) {
+            if (!first) {
+                buf.append(',');
+            }
+            first = false;
+            appendString(buf, member.getKey());
+            buf.append(':');
+            append(buf, member.getValue());
+        }
+        buf.append('}');
+    }
+
+    static void appendString(final StringBuilder buf, final String value) {
+        buf.append('"');
+        final int len = value.length();
+        for (int i = 0; i < len; i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                buf.append("\\\"");
+                break;
+            case '\\':
+                buf.append("\\\\");
+                break;
+            case '\b':
+                buf.append("\\b");
+                break;
+            case '\f':
+                buf.append("\\f");
+                break;
+            case '\n':
+                buf.append("\\n");
+                break;
+            case '\r':
+                buf.append("\\r");
+                break;
+            case '\t':
+                buf.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    buf.append("\\u00").append(HEX[c >> 4])
+                            .append(HEX[c & 0xf]);
+                } else if (Character.isHighSurrogate(c) && i + 1 < len
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    buf.append(c).append(value.charAt(++i));
+                } else if (Character.isSurrogate(c)) {
+                    buf.append("\\u").append(HEX[c >> 12])
+                            .append(HEX[c >> 8 & 0xf]).append(HEX[c >> 4 & 0xf])
+                            .append(HEX[c & 0xf]);
+                } else {
+                    buf.append(c);
+                }
+            }
+        }
+        buf.append('"');
+    }
+
+    static String of(final JsonValue value) {
+        final StringBuilder buf = new StringBuilder();
+        append(buf, value);
+        return buf.toString();
+    }
+
+    private JsonText() {
+    }
+
+}
@@ -19,11 +19,9 @@ package com.banjocreek.riverbed.builder.json.kernel;
 
 import java.util.Objects;
 
-import javax.json.Json;
-import javax.json.JsonArray;
 import javax.json.JsonArrayBuilder;
-import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
+import javax.json.stream.JsonGenerator;
 import javax.json.JsonValue;
 
 final class JsonValueOp implements JsonOp {
@@ -34,32 +32,6 @@ final class JsonValueOp implements JsonOp {
         this.value = Objects.requireNonNull(value);
     }
 
-    public JsonValueOp(final JsonValueOp origOp, final JsonArray ovr) {
-
-        final JsonArrayBuilder buf = Json.createArrayBuilder();
-
-        if (origOp.value instanceof JsonArray) {
-            ((JsonArray) origOp.value).forEach(buf::add);
-        }
-        ovr.forEach(buf::add);
-
-        this.value = buf.build();
-
-    }
-
-    public JsonValueOp(final JsonValueOp origOp, final JsonObject ovr) {
-
-        final JsonObjectBuilder buf = Json.createObjectBuilder();
-
-        if (origOp.value instanceof JsonObject) {
-            ((JsonObject) origOp.value).forEach(buf::add);
-        }
-        ovr.forEach(buf::add);
-
-        this.value = buf.build();
-
-    }
-
     @Override
     public void apply(final JsonArrayBuilder jbuf) {
         jbuf.add(this.value);
@@ -70,4 +42,18 @@ final class JsonValueOp implements JsonOp {
         jbuf.add(key, this.value);
     }
 
+    @Override
+    public void apply(final JsonGenerator gen) {
+        gen.write(this.value);
+    }
+
+    @Override
+    public void apply(final String key, final JsonGenerator gen) {
+        gen.write(key, this.value);
+    }
+
+    JsonValue value() {
+        return this.value;
+    }
+
 }
@@ -0,0 +1,235 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.kernel;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonBuilderFactory;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonValue;
+import javax.json.stream.JsonGenerator;
+
+/**
+ * <p>
+ * An object formed by laying members over an earlier value. Adding a layer
+ * takes constant time and shares the earlier value and layers; the layers are
+ * resolved in a single pass only when the enclosing structure is built or
+ * written.
+ * </p>
+ *
+ * <p>
+ * A merge recorded without an earlier value, as happens when an object is
+ * continued or updated inside a continued object, is laid over the
+ * corresponding member of the enclosing merge when that is resolved.
+ * Continued objects therefore merge recursively, and members that are not
+ * changed are never copied.
+ * </p>
+ *
+ * <p>
+ * An earlier value produced by a completion stage is merged over once the
+ * stage completes; resolving the merge waits for it.
+ * </p>
+ */
+final class MergeOp implements JsonOp {
+
+    private static final class Layer {
+
+        final boolean deferred;
+
+        final int depth;
+
+        final Map<String, JsonOp> ops;
+
+        final Layer previous;
+
+        final JsonObject values;
+
+        Layer(final Layer previous, final Map<String, JsonOp> ops,
+                final JsonObject values) {
+            this.previous = previous;
+            this.depth = previous == null ? 0 : previous.depth + 1;
+            this.ops = ops;
+            this.values = values;
+            this.deferred = previous != null && previous.deferred
+                    || ops != null && DeferredOp.reachable(ops.values());
+        }
+
+    }
+
+    /**
+     * Merge that starts with an existing value.
+     *
+     * @param factory
+     *            factory used to materialize the object.
+     *
+     * @param origOp
+     *            existing value, may be null. Values that are not objects,
+     *            including stages that complete with something other than an
+     *            object, are treated as empty.
+     *
+     * @return merge that has no layers yet, or the existing value if it is
+     *         already a merge.
+     */
+    static MergeOp extending(final JsonBuilderFactory factory,
+            final JsonOp origOp) {
+        return origOp instanceof MergeOp ? (MergeOp) origOp : new MergeOp(
+                factory, origOp, null);
+    }
+
+    private final JsonOp base;
+
+    private volatile JsonObject built;
+
+    private final boolean deferred;
+
+    private final JsonBuilderFactory factory;
+
+    private final Layer top;
+
+    private MergeOp(final JsonBuilderFactory factory, final JsonOp base,
+            final Layer top) {
+        this.factory = Objects.requireNonNull(factory);
+        this.base = base;
+        this.top = top;
+        this.deferred = DeferredOp.reachable(base) || top != null
+                && top.deferred;
+    }
+
+    @Override
+    public void apply(final JsonArrayBuilder jbuf) {
+        jbuf.add(built());
+    }
+
+    @Override
+    public void apply(final JsonGenerator gen) {
+        JsonOp.writeObject(gen, resolve());
+    }
+
+    @Override
+    public void apply(final String key, final JsonGenerator gen) {
+        gen.writeStartObject(key);
+        resolve().forEach((k, op) -> op.apply(k, gen));
+        gen.writeEnd();
+    }
+
+    @Override
+    public void apply(final String key, final JsonObjectBuilder jbuf) {
+        jbuf.add(key, built());
+    }
+
+    private JsonObject built() {
+        if (this.deferred) {
+            return JsonOp.buildObject(this.factory, resolve());
+        }
+        JsonObject rval = this.built;
+        if (rval == null) {
+            synchronized (this) {
+                rval = this.built;
+                if (rval == null) {
+                    rval = JsonOp.buildObject(this.factory, resolve());
+                    this.built = rval;
+                }
+            }
+        }
+        return rval;
+    }
+
+    boolean deferred() {
+        return this.deferred;
+    }
+
+    private Layer[] layers() {
+        final Layer[] rval = new Layer[this.top == null ? 0
+                : this.top.depth + 1];
+        for (Layer l = this.top; l != null; l = l.previous) {
+            rval[l.depth] = l;
+        }
+        return rval;
+    }
+
+    MergeOp merge(final JsonObject values) {
+        return new MergeOp(this.factory, this.base, new Layer(this.top, null,
+                Objects.requireNonNull(values)));
+    }
+
+    MergeOp merge(final Map<String, JsonOp> ops) {
+        return new MergeOp(this.factory, this.base, new Layer(this.top,
+                Objects.requireNonNull(ops), null));
+    }
+
+    /*
+     * the earlier value and the operations of every layer, visited without
+     * resolving the merge.
+     */
+    void parts(final Consumer<JsonOp> action) {
+        if (this.base != null) {
+            action.accept(this.base);
+        }
+        for (Layer l = this.top; l != null; l = l.previous) {
+            if (l.ops != null) {
+                l.ops.values().forEach(action);
+            }
+        }
+    }
+
+    Map<String, JsonOp> resolve() {
+
+        final Map<String, JsonOp> rval = new LinkedHashMap<>();
+        if (this.base instanceof ObjectOp) {
+            rval.putAll(((ObjectOp) this.base).values());
+        } else if (this.base instanceof MergeOp) {
+            rval.putAll(((MergeOp) this.base).resolve());
+        } else {
+            final JsonValue value;
+            if (this.base instanceof JsonValueOp) {
+                value = ((JsonValueOp) this.base).value();
+            } else if (this.base instanceof AsyncOp) {
+                value = ((AsyncOp) this.base).value();
+            } else {
+                value = null;
+            }
+            if (value instanceof JsonObject) {
+                ((JsonObject) value).forEach((k, jv) -> rval.put(k,
+                        JsonOp.of(jv)));
+            }
+        }
+
+        for (final Layer layer : layers()) {
+            if (layer.ops == null) {
+                layer.values.forEach((k, jv) -> rval.put(k, JsonOp.of(jv)));
+            } else {
+                layer.ops.forEach((k, op) -> {
+                    if (op instanceof MergeOp && ((MergeOp) op).base == null) {
+                        rval.put(k, new MergeOp(this.factory, rval.get(k),
+                                ((MergeOp) op).top));
+                    } else {
+                        rval.put(k, op);
+                    }
+                });
+            }
+        }
+        return rval;
+
+    }
+
+}
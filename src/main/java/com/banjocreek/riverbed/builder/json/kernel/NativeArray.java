@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.kernel;
+
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+
+import javax.json.JsonValue;
+
+/**
+ * Kernel JSON array. Elements are held in a single array handed over by the
+ * builder. Equality follows the {@link List} contract, so kernel arrays are
+ * interchangeable with those of any provider.
+ */
+final class NativeArray extends AbstractJsonArray implements RandomAccess {
+
+    static final NativeArray EMPTY = new NativeArray(new JsonValue[0], 0);
+
+    private final int size;
+
+    private final JsonValue[] values;
+
+    NativeArray(final JsonValue[] values, final int size) {
+        this.values = values;
+        this.size = size;
+    }
+
+    @Override
+    public void forEach(final Consumer<? super JsonValue> action) {
+        for (int i = 0; i < this.size; i++) {
+            action.accept(this.values[i]);
+        }
+    }
+
+    @Override
+    public JsonValue get(final int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return this.values[index];
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+}
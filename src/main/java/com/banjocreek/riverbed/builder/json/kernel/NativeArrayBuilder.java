@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.kernel;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Objects;
+
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonValue;
+
+/**
+ * Builds {@link NativeArray} instances. Like the provider builders, it hands
+ * its contents to the array it builds and starts over empty.
+ */
+final class NativeArrayBuilder implements JsonArrayBuilder {
+
+    private int size;
+
+    private JsonValue[] values;
+
+    NativeArrayBuilder(final int capacity) {
+        this.values = new JsonValue[capacity];
+    }
+
+    @Override
+    public JsonArrayBuilder add(final BigDecimal value) {
+        return append(NativeNumber.of(Objects.requireNonNull(value)));
+    }
+
+    @Override
+    public JsonArrayBuilder add(final BigInteger value) {
+        return append(NativeNumber.of(Objects.requireNonNull(value)));
+    }
+
+    @Override
+    public JsonArrayBuilder add(final boolean value) {
+        return append(value ? JsonValue.TRUE : JsonValue.FALSE);
+    }
+
+    @Override
+    public JsonArrayBuilder add(final double value) {
+        return append(NativeNumber.of(value));
+    }
+
+    @Override
+    public JsonArrayBuilder add(final int value) {
+        return append(NativeNumber.of(value));
+    }
+
+    @Override
+    public JsonArrayBuilder add(final JsonArrayBuilder builder) {
+        return append(builder.build());
+    }
+
+    @Override
+    public JsonArrayBuilder add(final JsonObjectBuilder builder) {
+        return append(builder.build());
+    }
+
+    @Override
+    public JsonArrayBuilder add(final JsonValue value) {
+        return append(Objects.requireNonNull(value));
+    }
+
+    @Override
+    public JsonArrayBuilder add(final long value) {
+        return append(NativeNumber.of(value));
+    }
+
+    @Override
+    public JsonArrayBuilder add(final String value) {
+        return append(new NativeString(Objects.requireNonNull(value)));
+    }
+
+    @Override
+    public JsonArrayBuilder addNull() {
+        return append(JsonValue.NULL);
+    }
+
+    private JsonArrayBuilder append(final JsonValue value) {
+        if (this.size == this.values.length) {
+            this.values = Arrays.copyOf(this.values,
+                    Math.max(NativeObject.SMALL, this.size * 2));
+        }
+        this.values[this.size++] = value;
+        return this;
+    }
+
+    @Override
+    public JsonArray build() {
+        if (this.size == 0) {
+            return NativeArray.EMPTY;
+        }
+        final NativeArray rval = new NativeArray(this.values, this.size);
+        this.values = new JsonValue[NativeObject.SMALL];
+        this.size = 0;
+        return rval;
+    }
+
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.kernel;
+
+import java.util.Collections;
+import java.util.Map;
+
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonBuilderFactory;
+import javax.json.JsonObjectBuilder;
+
+/**
+ * Builder factory for the kernel's own JSON values. Builders it creates do not
+ * consult the JSON provider, and the values they produce hold their contents
+ * compactly.
+ */
+final class NativeBuilderFactory implements JsonBuilderFactory {
+
+    private static final int DEFAULT_CAPACITY = 8;
+
+    /**
+     * Array builder from a factory, sized for an expected number of elements
+     * when the factory is a kernel factory.
+     *
+     * @param factory
+     *            factory to create the builder.
+     *
+     * @param capacity
+     *            expected number of elements.
+     *
+     * @return new builder.
+     */
+    static JsonArrayBuilder arrayBuilder(final JsonBuilderFactory factory,
+            final int capacity) {
+        if (factory instanceof NativeBuilderFactory) {
+            return new NativeArrayBuilder(capacity);
+        }
+        return factory.createArrayBuilder();
+    }
+
+    /**
+     * Object builder from a factory, sized for an expected number of members
+     * when the factory is a kernel factory.
+     *
+     * @param factory
+     *            factory to create the builder.
+     *
+     * @param capacity
+     *            expected number of members.
+     *
+     * @return new builder.
+     */
+    static JsonObjectBuilder objectBuilder(final JsonBuilderFactory factory,
+            final int capacity) {
+        if (factory instanceof NativeBuilderFactory) {
+            return new NativeObjectBuilder(capacity);
+        }
+        return factory.createObjectBuilder();
+    }
+
+    @Override
+    public JsonArrayBuilder createArrayBuilder() {
+        return new NativeArrayBuilder(DEFAULT_CAPACITY);
+    }
+
+    @Override
+    public JsonObjectBuilder createObjectBuilder() {
+        return new NativeObjectBuilder(DEFAULT_CAPACITY);
+    }
+
+    @Override
+    public Map<String, ?> getConfigInUse() {
+        return Collections.emptyMap();
+    }
+
+}
@@ -0,0 +1,261 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.kernel;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import javax.json.JsonNumber;
+
+/**
+ * <p>
+ * Kernel JSON number. Integral values and doubles are held as primitives and
+ * only converted to {@link BigDecimal} when a caller asks for one.
+ * </p>
+ *
+ * <p>
+ * Equality and hash code follow the {@link JsonNumber} contract, comparing
+ * decimal values, so kernel numbers are interchangeable with those of any
+ * provider.
+ * </p>
+ */
+abstract class NativeNumber implements JsonNumber {
+
+    private static final class DecimalNumber extends NativeNumber {
+
+        private final BigDecimal value;
+
+        DecimalNumber(final BigDecimal value) {
+            this.value = value;
+        }
+
+        @Override
+        public BigDecimal bigDecimalValue() {
+            return this.value;
+        }
+
+        @Override
+        public double doubleValue() {
+            return this.value.doubleValue();
+        }
+
+        @Override
+        public int intValue() {
+            return this.value.intValue();
+        }
+
+        @Override
+        public long longValue() {
+            return this.value.longValue();
+        }
+
+        @Override
+        public String toString() {
+            return this.value.toString();
+        }
+
+    }
+
+    private static final class DoubleNumber extends NativeNumber {
+
+        private final double value;
+
+        DoubleNumber(final double value) {
+            this.value = value;
+        }
+
+        @Override
+        public BigDecimal bigDecimalValue() {
+            return BigDecimal.valueOf(this.value);
+        }
+
+        @Override
+        public double doubleValue() {
+            return this.value;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj instanceof DoubleNumber) {
+                return this.value == ((DoubleNumber) obj).value;
+            }
+            return super.equals(obj);
+        }
+
+        @Override
+        public int intValue() {
+            return bigDecimalValue().intValue();
+        }
+
+        @Override
+        public long longValue() {
+            return bigDecimalValue().longValue();
+        }
+
+        @Override
+        public String toString() {
+            return BigDecimal.valueOf(this.value).toString();
+        }
+
+    }
+
+    private static final class LongNumber extends NativeNumber {
+
+        private final long value;
+
+        LongNumber(final long value) {
+            this.value = value;
+        }
+
+        @Override
+        public BigDecimal bigDecimalValue() {
+            return BigDecimal.valueOf(this.value);
+        }
+
+        @Override
+        public BigInteger bigIntegerValue() {
+            return BigInteger.valueOf(this.value);
+        }
+
+        @Override
+        public BigInteger bigIntegerValueExact() {
+            return BigInteger.valueOf(this.value);
+        }
+
+        @Override
+        public double doubleValue() {
+            return this.value;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj instanceof LongNumber) {
+                return this.value == ((LongNumber) obj).value;
+            }
+            return super.equals(obj);
+        }
+
+        @Override
+        public int intValue() {
+            return (int) this.value;
+        }
+
+        @Override
+        public int intValueExact() {
+            return Math.toIntExact(this.value);
+        }
+
+        @Override
+        public boolean isIntegral() {
+            return true;
+        }
+
+        @Override
+        public long longValue() {
+            return this.value;
+        }
+
+        @Override
+        public long longValueExact() {
+            return this.value;
+        }
+
+        @Override
+        public String toString() {
+            return Long.toString(this.value);
+        }
+
+    }
+
+    static NativeNumber of(final BigDecimal value) {
+        return new DecimalNumber(value);
+    }
+
+    static NativeNumber of(final BigInteger value) {
+        return new DecimalNumber(new BigDecimal(value));
+    }
+
+    /**
+     * Number holding a double.
+     *
+     * @param value
+     *            the value.
+     *
+     * @return number.
+     *
+     * @throws NumberFormatException
+     *             if the value is infinite or not a number.
+     */
+    static NativeNumber of(final double value) {
+        return new DoubleNumber(JsonOp.checkFinite(value));
+    }
+
+    static NativeNumber of(final long value) {
+        return new LongNumber(value);
+    }
+
+    private int hash;
+
+    @Override
+    public BigInteger bigIntegerValue() {
+        return bigDecimalValue().toBigInteger();
+    }
+
+    @Override
+    public BigInteger bigIntegerValueExact() {
+        return bigDecimalValue().toBigIntegerExact();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return obj instanceof JsonNumber
+                && bigDecimalValue().equals(
+                        ((JsonNumber) obj).bigDecimalValue());
+    }
+
+    @Override
+    public ValueType getValueType() {
+        return ValueType.NUMBER;
+    }
+
+    @Override
+    public int hashCode() {
+        int rval = this.hash;
+        if (rval == 0) {
+            rval = bigDecimalValue().hashCode();
+            this.hash = rval;
+        }
+        return rval;
+    }
+
+    @Override
+    public int intValueExact() {
+        return bigDecimalValue().intValueExact();
+    }
+
+    @Override
+    public boolean isIntegral() {
+        return bigDecimalValue().scale() == 0;
+    }
+
+    @Override
+    public long longValueExact() {
+        return bigDecimalValue().longValueExact();
+    }
+
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.kernel;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import javax.json.JsonValue;
+
+/**
+ * <p>
+ * Kernel JSON object. Members are held in parallel key and value arrays handed
+ * over by the builder, in the order they were added. Small objects are
+ * searched directly; larger ones carry an open-addressed index into the
+ * arrays, also built by the builder.
+ * </p>
+ *
+ * <p>
+ * Equality follows the {@link Map} contract, so kernel objects are
+ * interchangeable with those of any provider.
+ * </p>
+ */
+final class NativeObject extends AbstractJsonObject {
+
+    static final NativeObject EMPTY = new NativeObject(new String[0],
+            new JsonValue[0], 0, null);
+
+    /**
+     * Largest object searched without an index.
+     */
+    static final int SMALL = 8;
+
+    static int find(final int[] table, final String[] keys, final Object key) {
+        final int mask = table.length - 1;
+        int slot = spread(key.hashCode()) & mask;
+        for (int entry = table[slot]; entry != 0; entry = table[slot]) {
+            if (key.equals(keys[entry - 1])) {
+                return entry - 1;
+            }
+            slot = slot + 1 & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Index of keys, sized so that it stays at most half full until the key
+     * count doubles.
+     *
+     * @param keys
+     *            keys to index.
+     *
+     * @param size
+     *            number of keys in use.
+     *
+     * @return index.
+     */
+    static int[] index(final String[] keys, final int size) {
+        int len = 4 * SMALL;
+        while (len < 4 * size) {
+            len <<= 1;
+        }
+        final int[] rval = new int[len];
+        for (int i = 0; i < size; i++) {
+            insert(rval, keys, i);
+        }
+        return rval;
+    }
+
+    static void insert(final int[] table, final String[] keys, final int i) {
+        final int mask = table.length - 1;
+        int slot = spread(keys[i].hashCode()) & mask;
+        while (table[slot] != 0) {
+            slot = slot + 1 & mask;
+        }
+        table[slot] = i + 1;
+    }
+
+    private static int spread(final int h) {
+        return h ^ h >>> 16;
+    }
+
+    private final String[] keys;
+
+    private final int size;
+
+    private final int[] table;
+
+    private final JsonValue[] values;
+
+    NativeObject(final String[] keys, final JsonValue[] values,
+            final int size, final int[] table) {
+        this.keys = keys;
+        this.values = values;
+        this.size = size;
+        this.table = table;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public Set<Map.Entry<String, JsonValue>> entrySet() {
+        return new AbstractSet<Map.Entry<String, JsonValue>>() {
+
+            @Override
+            public Iterator<Map.Entry<String, JsonValue>> iterator() {
+                return new Iterator<Map.Entry<String, JsonValue>>() {
+
+                    private int i = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return this.i < NativeObject.this.size;
+                    }
+
+                    @Override
+                    public Map.Entry<String, JsonValue> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        final int at = this.i++;
+                        return new SimpleImmutableEntry<>(
+                                NativeObject.this.keys[at],
+                                NativeObject.this.values[at]);
+                    }
+
+                };
+            }
+
+            @Override
+            public int size() {
+                return NativeObject.this.size;
+            }
+
+        };
+    }
+
+    @Override
+    public void forEach(
+            final BiConsumer<? super String, ? super JsonValue> action) {
+        for (int i = 0; i < this.size; i++) {
+            action.accept(this.keys[i], this.values[i]);
+        }
+    }
+
+    @Override
+    public JsonValue get(final Object key) {
+        final int i = indexOf(key);
+        return i < 0 ? null : this.values[i];
+    }
+
+    private int indexOf(final Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+        if (this.table != null) {
+            return find(this.table, this.keys, key);
+        }
+        for (int i = 0; i < this.size; i++) {
+            if (key.equals(this.keys[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+}
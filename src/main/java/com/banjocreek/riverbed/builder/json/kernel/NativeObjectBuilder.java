@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.kernel;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Objects;
+
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonValue;
+
+/**
+ * Builds {@link NativeObject} instances. Like the provider builders, it hands
+ * its contents to the object it builds and starts over empty.
+ */
+final class NativeObjectBuilder implements JsonObjectBuilder {
+
+    private String[] keys;
+
+    private int size;
+
+    private int[] table;
+
+    private JsonValue[] values;
+
+    NativeObjectBuilder(final int capacity) {
+        this.keys = new String[capacity];
+        this.values = new JsonValue[capacity];
+    }
+
+    @Override
+    public JsonObjectBuilder add(final String name, final BigDecimal value) {
+        return put(name, NativeNumber.of(Objects.requireNonNull(value)));
+    }
+
+    @Override
+    public JsonObjectBuilder add(final String name, final BigInteger value) {
+        return put(name, NativeNumber.of(Objects.requireNonNull(value)));
+    }
+
+    @Override
+    public JsonObjectBuilder add(final String name, final boolean value) {
+        return put(name, value ? JsonValue.TRUE : JsonValue.FALSE);
+    }
+
+    @Override
+    public JsonObjectBuilder add(final String name, final double value) {
+        return put(name, NativeNumber.of(value));
+    }
+
+    @Override
+    public JsonObjectBuilder add(final String name, final int value) {
+        return put(name, NativeNumber.of(value));
+    }
+
+    @Override
+    public JsonObjectBuilder add(final String name,
+            final JsonArrayBuilder builder) {
+        return put(name, builder.build());
+    }
+
+    @Override
+    public JsonObjectBuilder add(final String name,
+            final JsonObjectBuilder builder) {
+        return put(name, builder.build());
+    }
+
+    @Override
+    public JsonObjectBuilder add(final String name, final JsonValue value) {
+        return put(name, Objects.requireNonNull(value));
+    }
+
+    @Override
+    public JsonObjectBuilder add(final String name, final long value) {
+        return put(name, NativeNumber.of(value));
+    }
+
+    @Override
+    public JsonObjectBuilder add(final String name, final String value) {
+        return put(name, new NativeString(Objects.requireNonNull(value)));
+    }
+
+    @Override
+    public JsonObjectBuilder addNull(final String name) {
+        return put(name, JsonValue.NULL);
+    }
+
+    @Override
+    public JsonObject build() {
+        if (this.size == 0) {
+            return NativeObject.EMPTY;
+        }
+        final NativeObject rval = new NativeObject(this.keys, this.values,
+                this.size, this.table);
+        this.keys = new String[NativeObject.SMALL];
+        this.values = new JsonValue[NativeObject.SMALL];
+        this.size = 0;
+        this.table = null;
+        return rval;
+    }
+
+    private int indexOf(final String name) {
+        if (this.table != null) {
+            return NativeObject.find(this.table, this.keys, name);
+        }
+        for (int i = 0; i < this.size; i++) {
+            if (name.equals(this.keys[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private JsonObjectBuilder put(final String name, final JsonValue value) {
+        final int existing = indexOf(Objects.requireNonNull(name));
+        if (existing >= 0) {
+            this.values[existing] = value;
+            return this;
+        }
+        if (this.size == this.keys.length) {
+            final int capacity = Math.max(NativeObject.SMALL, this.size * 2);
+            this.keys = Arrays.copyOf(this.keys, capacity);
+            this.values = Arrays.copyOf(this.values, capacity);
+        }
+        this.keys[this.size] = name;
+        this.values[this.size] = value;
+        this.size++;
+        if (this.table != null && this.size * 2 <= this.table.length) {
+            NativeObject.insert(this.table, this.keys, this.size - 1);
+        } else if (this.size > NativeObject.SMALL) {
+            this.table = NativeObject.index(this.keys, this.size);
+        }
+        return this;
+    }
+
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.kernel;
+
+import javax.json.JsonString;
+
+/**
+ * Kernel JSON string. Equality and hash code follow the {@link JsonString}
+ * contract, so kernel strings are interchangeable with those of any provider.
+ */
+final class NativeString implements JsonString {
+
+    private final String value;
+
+    NativeString(final String value) {
+        this.value = value;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return obj instanceof JsonString
+                && this.value.equals(((JsonString) obj).getString());
+    }
+
+    @Override
+    public CharSequence getChars() {
+        return this.value;
+    }
+
+    @Override
+    public String getString() {
+        return this.value;
+    }
+
+    @Override
+    public ValueType getValueType() {
+        return ValueType.STRING;
+    }
+
+    @Override
+    public int hashCode() {
+        return this.value.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder buf = new StringBuilder(this.value.length() + 2);
+        JsonText.appendString(buf, this.value);
+        return buf.toString();
+    }
+
+}
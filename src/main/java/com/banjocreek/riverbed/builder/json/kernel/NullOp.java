@@ -19,6 +19,7 @@ package com.banjocreek.riverbed.builder.json.kernel;
 
 import javax.json.JsonArrayBuilder;
 import javax.json.JsonObjectBuilder;
+import javax.json.stream.JsonGenerator;
 
 final class NullOp implements JsonOp {
 
@@ -31,4 +32,14 @@ final class NullOp implements JsonOp {
     public void apply(final String key, final JsonObjectBuilder jbuf) {
         jbuf.addNull(key);
     }
+
+    @Override
+    public void apply(final JsonGenerator gen) {
+        gen.writeNull();
+    }
+
+    @Override
+    public void apply(final String key, final JsonGenerator gen) {
+        gen.writeNull(key);
+    }
 }
@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.kernel;
+
+import java.util.Map;
+import java.util.Objects;
+
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonBuilderFactory;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.stream.JsonGenerator;
+
+/**
+ * The contents of a nested object builder. The object is materialized only
+ * when the enclosing structure is first built, and unless it contains a
+ * deferred value, that instance is reused by every later build that shares
+ * this op; when written, its members are streamed in place.
+ */
+final class ObjectOp implements JsonOp {
+
+    private volatile JsonObject built;
+
+    private final boolean deferred;
+
+    private final JsonBuilderFactory factory;
+
+    private final Map<String, JsonOp> values;
+
+    public ObjectOp(final JsonBuilderFactory factory,
+            final Map<String, JsonOp> values) {
+        this.factory = Objects.requireNonNull(factory);
+        this.values = Objects.requireNonNull(values);
+        this.deferred = DeferredOp.reachable(values.values());
+    }
+
+    @Override
+    public void apply(final JsonArrayBuilder jbuf) {
+        jbuf.add(built());
+    }
+
+    @Override
+    public void apply(final JsonGenerator gen) {
+        JsonOp.writeObject(gen, this.values);
+    }
+
+    @Override
+    public void apply(final String key, final JsonGenerator gen) {
+        gen.writeStartObject(key);
+        this.values.forEach((k, op) -> op.apply(k, gen));
+        gen.writeEnd();
+    }
+
+    @Override
+    public void apply(final String key, final JsonObjectBuilder jbuf) {
+        jbuf.add(key, built());
+    }
+
+    private JsonObject built() {
+        if (this.deferred) {
+            return JsonOp.buildObject(this.factory, this.values);
+        }
+        JsonObject rval = this.built;
+        if (rval == null) {
+            synchronized (this) {
+                rval = this.built;
+                if (rval == null) {
+                    rval = JsonOp.buildObject(this.factory, this.values);
+                    this.built = rval;
+                }
+            }
+        }
+        return rval;
+    }
+
+    boolean deferred() {
+        return this.deferred;
+    }
+
+    Map<String, JsonOp> values() {
+        return this.values;
+    }
+
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.kernel;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.json.JsonBuilderFactory;
+import javax.json.JsonValue;
+import javax.json.stream.JsonGenerator;
+
+/**
+ * <p>
+ * Read-only object backed directly by the operations of a builder. Nothing is
+ * copied when the view is created. Each member is materialized the first
+ * time it is read and kept thereafter; nested arrays and objects are
+ * themselves views.
+ * </p>
+ *
+ * <p>
+ * The operations must not change while the view is in use. A view written to
+ * a {@link Utf8Generator} streams its operations without materializing any
+ * member.
+ * </p>
+ */
+final class ObjectView extends AbstractJsonObject {
+
+    private final JsonBuilderFactory factory;
+
+    private final Map<String, JsonOp> ops;
+
+    /*
+     * counted once, since the operations do not change and counting them
+     * may walk them.
+     */
+    private final int size;
+
+    private final Map<String, JsonValue> values = new ConcurrentHashMap<>();
+
+    ObjectView(final JsonBuilderFactory factory,
+            final Map<String, JsonOp> ops) {
+        this.factory = factory;
+        this.ops = ops;
+        this.size = ops.size();
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return this.ops.containsKey(key);
+    }
+
+    @Override
+    public Set<Map.Entry<String, JsonValue>> entrySet() {
+        return new AbstractSet<Map.Entry<String, JsonValue>>() {
+
+            @Override
+            public Iterator<Map.Entry<String, JsonValue>> iterator() {
+                final Iterator<String> keys = ObjectView.this.ops.keySet()
+                        .iterator();
+                return new Iterator<Map.Entry<String, JsonValue>>() {
+
+                    @Override
+                    public boolean hasNext() {
+                        return keys.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<String, JsonValue> next() {
+                        final String k = keys.next();
+                        return new SimpleImmutableEntry<>(k, get(k));
+                    }
+
+                };
+            }
+
+            @Override
+            public int size() {
+                return ObjectView.this.size;
+            }
+
+        };
+    }
+
+    @Override
+    public JsonValue get(final Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        final JsonValue rval = this.values.get(key);
+        if (rval != null) {
+            return rval;
+        }
+        final JsonOp op = this.ops.get(key);
+        if (op == null) {
+            return null;
+        }
+        final JsonValue value = ArrayView.value(this.factory, op);
+        final JsonValue prior = this.values.putIfAbsent((String) key, value);
+        return prior == null ? value : prior;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public String toString() {
+        final Utf8Generator gen = Utf8Generator.create();
+        writeTo(gen);
+        return new String(gen.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    void writeTo(final JsonGenerator gen) {
+        JsonOp.writeObject(gen, this.ops);
+    }
+
+    void writeTo(final String name, final JsonGenerator gen) {
+        gen.writeStartObject(name);
+        this.ops.forEach((k, op) -> op.apply(k, gen));
+        gen.writeEnd();
+    }
+
+}
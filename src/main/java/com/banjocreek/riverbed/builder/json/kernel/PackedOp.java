@@ -0,0 +1,277 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.kernel;
+
+import java.util.Objects;
+
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonValue;
+import javax.json.stream.JsonGenerator;
+
+/**
+ * A run of consecutive array elements held in one op. The elements are kept
+ * in a single array, of primitives where possible, and are added or written
+ * in one loop. A run has no single value, so it may appear only among the
+ * values of an array.
+ */
+abstract class PackedOp implements JsonOp {
+
+    static final class Booleans extends PackedOp {
+
+        private final boolean[] values;
+
+        Booleans(final boolean[] values) {
+            this.values = values;
+        }
+
+        @Override
+        void apply(final int index, final JsonArrayBuilder jbuf) {
+            jbuf.add(this.values[index]);
+        }
+
+        @Override
+        public void apply(final JsonArrayBuilder jbuf) {
+            for (final boolean v : this.values) {
+                jbuf.add(v);
+            }
+        }
+
+        @Override
+        void apply(final int from, final int to, final JsonGenerator gen) {
+            for (int i = from; i < to; i++) {
+                gen.write(this.values[i]);
+            }
+        }
+
+        @Override
+        int size() {
+            return this.values.length;
+        }
+
+    }
+
+    static final class Doubles extends PackedOp {
+
+        private final double[] values;
+
+        Doubles(final double[] values) {
+            for (final double v : values) {
+                JsonOp.checkFinite(v);
+            }
+            this.values = values;
+        }
+
+        @Override
+        void apply(final int index, final JsonArrayBuilder jbuf) {
+            jbuf.add(this.values[index]);
+        }
+
+        @Override
+        public void apply(final JsonArrayBuilder jbuf) {
+            for (final double v : this.values) {
+                jbuf.add(v);
+            }
+        }
+
+        @Override
+        void apply(final int from, final int to, final JsonGenerator gen) {
+            for (int i = from; i < to; i++) {
+                gen.write(this.values[i]);
+            }
+        }
+
+        @Override
+        int size() {
+            return this.values.length;
+        }
+
+    }
+
+    static final class Ints extends PackedOp {
+
+        private final int[] values;
+
+        Ints(final int[] values) {
+            this.values = values;
+        }
+
+        @Override
+        void apply(final int index, final JsonArrayBuilder jbuf) {
+            jbuf.add(this.values[index]);
+        }
+
+        @Override
+        public void apply(final JsonArrayBuilder jbuf) {
+            for (final int v : this.values) {
+                jbuf.add(v);
+            }
+        }
+
+        @Override
+        void apply(final int from, final int to, final JsonGenerator gen) {
+            for (int i = from; i < to; i++) {
+                gen.write(this.values[i]);
+            }
+        }
+
+        @Override
+        int size() {
+            return this.values.length;
+        }
+
+    }
+
+    static final class Longs extends PackedOp {
+
+        private final long[] values;
+
+        Longs(final long[] values) {
+            this.values = values;
+        }
+
+        @Override
+        void apply(final int index, final JsonArrayBuilder jbuf) {
+            jbuf.add(this.values[index]);
+        }
+
+        @Override
+        public void apply(final JsonArrayBuilder jbuf) {
+            for (final long v : this.values) {
+                jbuf.add(v);
+            }
+        }
+
+        @Override
+        void apply(final int from, final int to, final JsonGenerator gen) {
+            for (int i = from; i < to; i++) {
+                gen.write(this.values[i]);
+            }
+        }
+
+        @Override
+        int size() {
+            return this.values.length;
+        }
+
+    }
+
+    static final class Strings extends PackedOp {
+
+        private final String[] values;
+
+        Strings(final String[] values) {
+            for (final String v : values) {
+                Objects.requireNonNull(v);
+            }
+            this.values = values;
+        }
+
+        @Override
+        void apply(final int index, final JsonArrayBuilder jbuf) {
+            jbuf.add(this.values[index]);
+        }
+
+        @Override
+        public void apply(final JsonArrayBuilder jbuf) {
+            for (final String v : this.values) {
+                jbuf.add(v);
+            }
+        }
+
+        @Override
+        void apply(final int from, final int to, final JsonGenerator gen) {
+            for (int i = from; i < to; i++) {
+                gen.write(this.values[i]);
+            }
+        }
+
+        @Override
+        int size() {
+            return this.values.length;
+        }
+
+    }
+
+    static final class Values extends PackedOp {
+
+        private final JsonArray values;
+
+        Values(final JsonArray values) {
+            this.values = Objects.requireNonNull(values);
+        }
+
+        @Override
+        void apply(final int index, final JsonArrayBuilder jbuf) {
+            jbuf.add(this.values.get(index));
+        }
+
+        @Override
+        public void apply(final JsonArrayBuilder jbuf) {
+            for (final JsonValue v : this.values) {
+                jbuf.add(v);
+            }
+        }
+
+        @Override
+        void apply(final int from, final int to, final JsonGenerator gen) {
+            for (int i = from; i < to; i++) {
+                gen.write(this.values.get(i));
+            }
+        }
+
+        @Override
+        int size() {
+            return this.values.size();
+        }
+
+    }
+
+    /**
+     * Add a single element of the run.
+     */
+    abstract void apply(int index, JsonArrayBuilder jbuf);
+
+    /**
+     * Write the elements of the run from one index, inclusive, to another,
+     * exclusive.
+     */
+    abstract void apply(int from, int to, JsonGenerator gen);
+
+    @Override
+    public final void apply(final JsonGenerator gen) {
+        apply(0, size(), gen);
+    }
+
+    @Override
+    public final void apply(final String key, final JsonGenerator gen) {
+        throw new IllegalStateException("packed values belong in an array");
+    }
+
+    @Override
+    public final void apply(final String key, final JsonObjectBuilder jbuf) {
+        throw new IllegalStateException("packed values belong in an array");
+    }
+
+    /**
+     * Number of elements in the run.
+     */
+    abstract int size();
+
+}
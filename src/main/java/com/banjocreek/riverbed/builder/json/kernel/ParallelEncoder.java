@@ -0,0 +1,335 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.kernel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import javax.json.JsonArray;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+
+/**
+ * <p>
+ * Writes large documents using the threads of a {@link ForkJoinPool}. The
+ * elements of the top-level array, or the members of the top-level object,
+ * are divided into contiguous chunks. Each chunk is encoded into its own
+ * UTF-8 buffer by a pool task, and the buffers are written to the channel in
+ * order as they complete. The bytes written are exactly those of a
+ * sequential write.
+ * </p>
+ *
+ * <p>
+ * Chunks are balanced by the number of values they hold, counting the
+ * contents of nested arrays and objects, so that a few large members are
+ * spread over the pool as well as many small ones. Runs of elements added
+ * together, such as a primitive array, are divided between chunks.
+ * </p>
+ *
+ * <p>
+ * At most a few chunks per thread are outstanding at any time, so memory use
+ * is bounded by the chunk size rather than by the document.
+ * </p>
+ */
+public final class ParallelEncoder {
+
+    /*
+     * position between values: an operation and, within a run of elements,
+     * the index of an element.
+     */
+    private static final class Cut {
+
+        final int offset;
+
+        final int op;
+
+        Cut(final int op, final int offset) {
+            this.op = op;
+            this.offset = offset;
+        }
+
+        boolean same(final Cut other) {
+            return this.op == other.op && this.offset == other.offset;
+        }
+
+    }
+
+    /*
+     * writes the elements of a run from one index to another, or any other
+     * operation whole.
+     */
+    @FunctionalInterface
+    private interface Values {
+        void write(Utf8Generator gen, int op, int from, int to);
+    }
+
+    /**
+     * Fewest values given to one task.
+     */
+    private static final int MIN_CHUNK = 512;
+
+    /*
+     * positions dividing operations into chunks of about equal weight. Runs
+     * of elements, whose lengths are given, are divided at an element; other
+     * operations, whose lengths are negative, are never divided. The first
+     * chunk holds at least one value.
+     */
+    private static List<Cut> cuts(final long[] weights, final int[] runs,
+            final int limit) {
+        final int n = weights.length;
+        final long[] before = new long[n + 1];
+        for (int i = 0; i < n; i++) {
+            before[i + 1] = before[i] + weights[i];
+        }
+        final long total = before[n];
+        final int chunks = (int) Math.max(1, Math.min(total / MIN_CHUNK,
+                limit));
+        final List<Cut> rval = new ArrayList<>(chunks + 1);
+        rval.add(new Cut(0, 0));
+        int i = 0;
+        for (int k = 1; k <= chunks; k++) {
+            final long bound = total * k / chunks;
+            while (i < n && before[i + 1] <= bound) {
+                i++;
+            }
+            final Cut cut = i == n || runs[i] < 0 ? new Cut(Math.min(i + 1,
+                    n), 0) : new Cut(i, (int) (bound - before[i]));
+            if (!cut.same(rval.get(rval.size() - 1))) {
+                rval.add(cut);
+            }
+        }
+        final Cut end = new Cut(n, 0);
+        if (!end.same(rval.get(rval.size() - 1))) {
+            rval.add(end);
+        }
+        return rval;
+    }
+
+    private static void drain(final WritableByteChannel out,
+            final byte[] bytes) {
+        final ByteBuffer bb = ByteBuffer.wrap(bytes);
+        try {
+            while (bb.hasRemaining()) {
+                out.write(bb);
+            }
+        } catch (final IOException e) {
+            throw new JsonException("i/o error writing output", e);
+        }
+    }
+
+    private static void encode(final WritableByteChannel out,
+            final ForkJoinPool pool, final boolean object,
+            final long[] weights, final int[] runs, final Values values) {
+
+        final int threads = pool.getParallelism();
+        final List<Cut> cuts = cuts(weights, runs, threads * 4);
+        final int count = cuts.size() - 1;
+        final int window = threads * 2;
+        final ArrayDeque<ForkJoinTask<byte[]>> pending = new ArrayDeque<>();
+
+        drain(out, new byte[] { object ? (byte) '{' : (byte) '[' });
+        try {
+            int next = 0;
+            for (int i = 0; i < count; i++) {
+                while (next < count && next < i + window) {
+                    final Cut from = cuts.get(next);
+                    final Cut to = cuts.get(next + 1);
+                    final boolean first = next == 0;
+                    pending.addLast(pool.submit(() -> {
+                        final Utf8Generator gen = Utf8Generator.within(object,
+                                first);
+                        write(gen, from, to, runs, values);
+                        return gen.toByteArray();
+                    }));
+                    next++;
+                }
+                drain(out, pending.removeFirst().join());
+            }
+        } finally {
+            pending.forEach(task -> task.cancel(false));
+        }
+        drain(out, new byte[] { object ? (byte) '}' : (byte) ']' });
+
+    }
+
+    /*
+     * number of values an operation writes, counting the contents of arrays
+     * and objects, as an estimate of the work of encoding it.
+     */
+    private static long weight(final JsonOp op) {
+        if (op instanceof PackedOp) {
+            return ((PackedOp) op).size();
+        } else if (op instanceof ArrayOp) {
+            return 1 + weight(((ArrayOp) op).values());
+        } else if (op instanceof ConcatOp) {
+            return 1 + weight(((ConcatOp) op).flatten());
+        } else if (op instanceof ObjectOp) {
+            return 1 + weight(((ObjectOp) op).values().values());
+        } else if (op instanceof MergeOp) {
+            return 1 + weight(((MergeOp) op).resolve().values());
+        } else if (op instanceof JsonValueOp) {
+            return weight(((JsonValueOp) op).value());
+        }
+        return 1;
+    }
+
+    private static long weight(final Collection<? extends JsonOp> ops) {
+        long rval = 0;
+        for (final JsonOp op : ops) {
+            rval += weight(op);
+        }
+        return rval;
+    }
+
+    private static long weight(final JsonValue value) {
+        long rval = 1;
+        if (value instanceof JsonArray) {
+            for (final JsonValue v : (JsonArray) value) {
+                rval += weight(v);
+            }
+        } else if (value instanceof JsonObject) {
+            for (final JsonValue v : ((JsonObject) value).values()) {
+                rval += weight(v);
+            }
+        }
+        return rval;
+    }
+
+    /**
+     * Write the value of an operation. The contents of an array or object
+     * operation, including a continued or updated one, are written in
+     * parallel; any other value is written sequentially.
+     *
+     * @param root
+     *            operation producing the document.
+     *
+     * @param out
+     *            destination channel, which is not closed.
+     *
+     * @param pool
+     *            pool whose threads encode the document.
+     *
+     * @throws JsonException
+     *             if an i/o error occurs.
+     */
+    public static void write(final JsonOp root, final WritableByteChannel out,
+            final ForkJoinPool pool) {
+        if (root instanceof ArrayOp) {
+            writeArray(((ArrayOp) root).values(), out, pool);
+        } else if (root instanceof ConcatOp) {
+            writeArray(((ConcatOp) root).flatten(), out, pool);
+        } else if (root instanceof ObjectOp) {
+            writeObject(((ObjectOp) root).values(), out, pool);
+        } else if (root instanceof MergeOp) {
+            writeObject(((MergeOp) root).resolve(), out, pool);
+        } else {
+            final Utf8Generator gen = Utf8Generator.create(out);
+            root.apply(gen);
+            gen.flush();
+        }
+    }
+
+    /**
+     * Write an array, encoding runs of its elements in parallel.
+     *
+     * @param values
+     *            operations producing the elements.
+     *
+     * @param out
+     *            destination channel, which is not closed.
+     *
+     * @param pool
+     *            pool whose threads encode the document.
+     *
+     * @throws JsonException
+     *             if an i/o error occurs.
+     */
+    public static void writeArray(final List<JsonOp> values,
+            final WritableByteChannel out, final ForkJoinPool pool) {
+        final JsonOp[] ops = values.toArray(new JsonOp[values.size()]);
+        final long[] weights = new long[ops.length];
+        final int[] runs = new int[ops.length];
+        for (int i = 0; i < ops.length; i++) {
+            weights[i] = weight(ops[i]);
+            runs[i] = ops[i] instanceof PackedOp ? ((PackedOp) ops[i]).size()
+                    : -1;
+        }
+        encode(out, pool, false, weights, runs, (gen, op, from, to) -> {
+            if (runs[op] >= 0) {
+                ((PackedOp) ops[op]).apply(from, to, gen);
+            } else {
+                ops[op].apply(gen);
+            }
+        });
+    }
+
+    /**
+     * Write an object, encoding runs of its members in parallel.
+     *
+     * @param values
+     *            operations producing the members.
+     *
+     * @param out
+     *            destination channel, which is not closed.
+     *
+     * @param pool
+     *            pool whose threads encode the document.
+     *
+     * @throws JsonException
+     *             if an i/o error occurs.
+     */
+    public static void writeObject(final Map<String, JsonOp> values,
+            final WritableByteChannel out, final ForkJoinPool pool) {
+        final List<Map.Entry<String, JsonOp>> members = new ArrayList<>(
+                values.entrySet());
+        final long[] weights = new long[members.size()];
+        final int[] runs = new int[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = weight(members.get(i).getValue());
+            runs[i] = -1;
+        }
+        encode(out, pool, true, weights, runs, (gen, op, from, to) -> members
+                .get(op).getValue().apply(members.get(op).getKey(), gen));
+    }
+
+    /*
+     * write the values from one cut to the next. Only a run of elements is
+     * entered or left part way through.
+     */
+    private static void write(final Utf8Generator gen, final Cut from,
+            final Cut to, final int[] runs, final Values values) {
+        for (int op = from.op; op < to.op || op == to.op && to.offset > 0;
+                op++) {
+            values.write(gen, op, op == from.op ? from.offset : 0,
+                    op == to.op ? to.offset : runs[op]);
+        }
+    }
+
+    private ParallelEncoder() {
+    }
+
+}
@@ -0,0 +1,470 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.kernel;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * <p>
+ * Persistent hash array mapped trie. Changes produce a new map that shares all
+ * untouched structure with the original, so each change costs O(log n) and
+ * every earlier version remains valid.
+ * </p>
+ *
+ * <p>
+ * The map is itself an unmodifiable {@link Map}; the inherited mutators throw
+ * {@link UnsupportedOperationException}. Keys and values must not be null.
+ * </p>
+ *
+ * @param <K>
+ *            key type
+ *
+ * @param <V>
+ *            value type
+ */
+public final class PersistentMap<K, V> extends AbstractMap<K, V> {
+
+    private static final class Added {
+        boolean value;
+    }
+
+    /*
+     * Entries are held in pairs: a key followed by its value, or null followed
+     * by a sub-node. Collision nodes hold only key and value pairs, all with
+     * the same hash.
+     */
+    private static abstract class Node {
+
+        final Object[] array;
+
+        Node(final Object[] array) {
+            this.array = array;
+        }
+
+        abstract Object find(int shift, int hash, Object key);
+
+        final void forEach(final BiConsumer<Object, Object> action) {
+            for (int i = 0; i < this.array.length; i += 2) {
+                final Object k = this.array[i];
+                if (k == null) {
+                    ((Node) this.array[i + 1]).forEach(action);
+                } else {
+                    action.accept(k, this.array[i + 1]);
+                }
+            }
+        }
+
+        abstract Node put(int shift, int hash, Object key, Object value,
+                Added added);
+
+        abstract Node remove(int shift, int hash, Object key);
+
+    }
+
+    private static final class BitmapNode extends Node {
+
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+
+        BitmapNode(final int bitmap, final Object[] array) {
+            super(array);
+            this.bitmap = bitmap;
+        }
+
+        @Override
+        Object find(final int shift, final int hash, final Object key) {
+            final int bit = bit(hash, shift);
+            if ((this.bitmap & bit) == 0) {
+                return null;
+            }
+            final int idx = index(bit);
+            final Object k = this.array[idx];
+            final Object v = this.array[idx + 1];
+            if (k == null) {
+                return ((Node) v).find(shift + 5, hash, key);
+            }
+            return key.equals(k) ? v : null;
+        }
+
+        private int index(final int bit) {
+            return 2 * Integer.bitCount(this.bitmap & bit - 1);
+        }
+
+        @Override
+        Node put(final int shift, final int hash, final Object key,
+                final Object value, final Added added) {
+            final int bit = bit(hash, shift);
+            final int idx = index(bit);
+            if ((this.bitmap & bit) == 0) {
+                final Object[] na = new Object[this.array.length + 2];
+                System.arraycopy(this.array, 0, na, 0, idx);
+                na[idx] = key;
+                na[idx + 1] = value;
+                System.arraycopy(this.array, idx, na, idx + 2,
+                        this.array.length - idx);
+                added.value = true;
+                return new BitmapNode(this.bitmap | bit, na);
+            }
+            final Object k = this.array[idx];
+            final Object v = this.array[idx + 1];
+            if (k == null) {
+                final Node n = ((Node) v).put(shift + 5, hash, key, value,
+                        added);
+                return n == v ? this : new BitmapNode(this.bitmap, set(
+                        this.array, idx + 1, n));
+            }
+            if (key.equals(k)) {
+                return value == v ? this : new BitmapNode(this.bitmap, set(
+                        this.array, idx + 1, value));
+            }
+            added.value = true;
+            final Object[] na = set(this.array, idx + 1,
+                    pair(shift + 5, k, v, hash, key, value));
+            na[idx] = null;
+            return new BitmapNode(this.bitmap, na);
+        }
+
+        @Override
+        Node remove(final int shift, final int hash, final Object key) {
+            final int bit = bit(hash, shift);
+            if ((this.bitmap & bit) == 0) {
+                return this;
+            }
+            final int idx = index(bit);
+            final Object k = this.array[idx];
+            final Object v = this.array[idx + 1];
+            if (k == null) {
+                final Node n = ((Node) v).remove(shift + 5, hash, key);
+                if (n == v) {
+                    return this;
+                }
+                if (n != null) {
+                    return new BitmapNode(this.bitmap, set(this.array,
+                            idx + 1, n));
+                }
+            } else if (!key.equals(k)) {
+                return this;
+            }
+            if (this.bitmap == bit) {
+                return null;
+            }
+            final Object[] na = new Object[this.array.length - 2];
+            System.arraycopy(this.array, 0, na, 0, idx);
+            System.arraycopy(this.array, idx + 2, na, idx, na.length - idx);
+            return new BitmapNode(this.bitmap ^ bit, na);
+        }
+
+    }
+
+    private static final class CollisionNode extends Node {
+
+        private final int hash;
+
+        CollisionNode(final int hash, final Object[] array) {
+            super(array);
+            this.hash = hash;
+        }
+
+        @Override
+        Object find(final int shift, final int hash, final Object key) {
+            final int idx = indexOf(key);
+            return idx < 0 ? null : this.array[idx + 1];
+        }
+
+        private int indexOf(final Object key) {
+            for (int i = 0; i < this.array.length; i += 2) {
+                if (key.equals(this.array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Node put(final int shift, final int hash, final Object key,
+                final Object value, final Added added) {
+            if (hash != this.hash) {
+                /*
+                 * nest this node in a bitmap node at the current level, and
+                 * let that separate the hashes.
+                 */
+                return new BitmapNode(bit(this.hash, shift), new Object[] {
+                        null, this }).put(shift, hash, key, value, added);
+            }
+            final int idx = indexOf(key);
+            if (idx >= 0) {
+                return this.array[idx + 1] == value ? this
+                        : new CollisionNode(hash, set(this.array, idx + 1,
+                                value));
+            }
+            final Object[] na = new Object[this.array.length + 2];
+            System.arraycopy(this.array, 0, na, 0, this.array.length);
+            na[this.array.length] = key;
+            na[this.array.length + 1] = value;
+            added.value = true;
+            return new CollisionNode(hash, na);
+        }
+
+        @Override
+        Node remove(final int shift, final int hash, final Object key) {
+            final int idx = indexOf(key);
+            if (idx < 0) {
+                return this;
+            }
+            if (this.array.length == 2) {
+                return null;
+            }
+            final Object[] na = new Object[this.array.length - 2];
+            System.arraycopy(this.array, 0, na, 0, idx);
+            System.arraycopy(this.array, idx + 2, na, idx, na.length - idx);
+            return new CollisionNode(hash, na);
+        }
+
+    }
+
+    private static final class EntryIterator<K, V> implements
+            Iterator<Map.Entry<K, V>> {
+
+        private final Object[] array;
+
+        private int i = 0;
+
+        private Iterator<Map.Entry<K, V>> nested;
+
+        private Map.Entry<K, V> next;
+
+        EntryIterator(final Node node) {
+            this.array = node.array;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (this.next == null) {
+                if (this.nested != null) {
+                    if (this.nested.hasNext()) {
+                        this.next = this.nested.next();
+                        break;
+                    }
+                    this.nested = null;
+                }
+                if (this.i >= this.array.length) {
+                    return false;
+                }
+                final Object k = this.array[this.i];
+                final Object v = this.array[this.i + 1];
+                this.i += 2;
+                if (k == null) {
+                    this.nested = new EntryIterator<>((Node) v);
+                } else {
+                    this.next = entry(k, v);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Map.Entry<K, V> rval = this.next;
+            this.next = null;
+            return rval;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map.Entry<K, V> entry(final Object k, final Object v) {
+            return new SimpleImmutableEntry<>((K) k, (V) v);
+        }
+
+    }
+
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(
+            BitmapNode.EMPTY, 0);
+
+    private static int bit(final int hash, final int shift) {
+        return 1 << (hash >>> shift & 0x1f);
+    }
+
+    /**
+     * Empty map.
+     *
+     * @param <K>
+     *            key type
+     *
+     * @param <V>
+     *            value type
+     *
+     * @return the empty map.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    private static int hash(final Object key) {
+        final int h = key.hashCode();
+        return h ^ h >>> 16;
+    }
+
+    private static Node pair(final int shift, final Object k1,
+            final Object v1, final int h2, final Object k2, final Object v2) {
+        final int h1 = hash(k1);
+        if (h1 == h2) {
+            return new CollisionNode(h1, new Object[] { k1, v1, k2, v2 });
+        }
+        final Added added = new Added();
+        return BitmapNode.EMPTY.put(shift, h1, k1, v1, added).put(shift, h2,
+                k2, v2, added);
+    }
+
+    private static Object[] set(final Object[] array, final int idx,
+            final Object value) {
+        final Object[] rval = array.clone();
+        rval[idx] = value;
+        return rval;
+    }
+
+    private final Node root;
+
+    private final int size;
+
+    private PersistentMap(final Node root, final int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new EntryIterator<>(PersistentMap.this.root);
+            }
+
+            @Override
+            public int size() {
+                return PersistentMap.this.size;
+            }
+
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void forEach(final BiConsumer<? super K, ? super V> action) {
+        this.root.forEach((k, v) -> action.accept((K) k, (V) v));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V get(final Object key) {
+        return key == null ? null : (V) this.root.find(0, hash(key), key);
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Map with a key set to a value.
+     *
+     * @param key
+     *            key to set. Must not be null.
+     *
+     * @param value
+     *            value to set. Must not be null.
+     *
+     * @return map with the key set; this map if the key already has the
+     *         value.
+     *
+     * @throws NullPointerException
+     *             if key or value is null.
+     */
+    public PersistentMap<K, V> with(final K key, final V value) {
+        Objects.requireNonNull(value);
+        final Added added = new Added();
+        final Node nroot = this.root.put(0, hash(key), key, value, added);
+        return nroot == this.root ? this : new PersistentMap<>(nroot,
+                added.value ? this.size + 1 : this.size);
+    }
+
+    /**
+     * Map with all of the entries of another map set.
+     *
+     * @param entries
+     *            entries to set. Keys and values must not be null.
+     *
+     * @return map with the entries set.
+     *
+     * @throws NullPointerException
+     *             if any key or value is null.
+     */
+    public PersistentMap<K, V> withAll(
+            final Map<? extends K, ? extends V> entries) {
+        final Added added = new Added();
+        Node nroot = this.root;
+        int nsize = this.size;
+        for (final Map.Entry<? extends K, ? extends V> e : entries.entrySet()) {
+            final K key = e.getKey();
+            added.value = false;
+            nroot = nroot.put(0, hash(key), key,
+                    Objects.requireNonNull(e.getValue()), added);
+            if (added.value) {
+                nsize++;
+            }
+        }
+        return nroot == this.root ? this : new PersistentMap<>(nroot, nsize);
+    }
+
+    /**
+     * Map without a key.
+     *
+     * @param key
+     *            key to remove.
+     *
+     * @return map without the key; this map if the key is not present.
+     */
+    public PersistentMap<K, V> without(final Object key) {
+        if (key == null || this.size == 0) {
+            return this;
+        }
+        final Node nroot = this.root.remove(0, hash(key), key);
+        if (nroot == this.root) {
+            return this;
+        }
+        return nroot == null ? empty() : new PersistentMap<>(nroot,
+                this.size - 1);
+    }
+
+}
@@ -0,0 +1,242 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.kernel;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Persistent bit-partitioned vector trie with a detached tail. Appending
+ * produces a new vector that shares all existing structure with the original,
+ * costing amortized O(1) copying, while indexed reads cost O(log<sub>32</sub>
+ * n).
+ * </p>
+ *
+ * <p>
+ * The vector is itself an unmodifiable {@link java.util.List}; the inherited
+ * mutators throw {@link UnsupportedOperationException}. Elements must not be
+ * null.
+ * </p>
+ *
+ * @param <E>
+ *            element type
+ */
+public final class PersistentVector<E> extends AbstractList<E> implements
+        RandomAccess {
+
+    private static final Object[] EMPTY_NODE = new Object[32];
+
+    private static final PersistentVector<?> EMPTY = new PersistentVector<>(
+            0, 5, EMPTY_NODE, new Object[0]);
+
+    /**
+     * Empty vector.
+     *
+     * @param <E>
+     *            element type
+     *
+     * @return the empty vector.
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> empty() {
+        return (PersistentVector<E>) EMPTY;
+    }
+
+    private static Object[] newPath(final int level, final Object[] node) {
+        if (level == 0) {
+            return node;
+        }
+        final Object[] rval = new Object[32];
+        rval[0] = newPath(level - 5, node);
+        return rval;
+    }
+
+    private final int count;
+
+    private final Object[] root;
+
+    private final int shift;
+
+    private final Object[] tail;
+
+    private PersistentVector(final int count, final int shift,
+            final Object[] root, final Object[] tail) {
+        this.count = count;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    private Object[] arrayFor(final int index) {
+        if (index >= tailOffset()) {
+            return this.tail;
+        }
+        Object[] node = this.root;
+        for (int level = this.shift; level > 0; level -= 5) {
+            node = (Object[]) node[index >>> level & 0x1f];
+        }
+        return node;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void forEach(final Consumer<? super E> action) {
+        for (int i = 0; i < this.count; i += 32) {
+            final Object[] leaf = arrayFor(i);
+            final int n = Math.min(32, this.count - i);
+            for (int j = 0; j < n; j++) {
+                action.accept((E) leaf[j]);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public E get(final int index) {
+        if (index < 0 || index >= this.count) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return (E) arrayFor(index)[index & 0x1f];
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+
+            private int i = 0;
+
+            private Object[] leaf;
+
+            @Override
+            public boolean hasNext() {
+                return this.i < PersistentVector.this.count;
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if ((this.i & 0x1f) == 0) {
+                    this.leaf = arrayFor(this.i);
+                }
+                return (E) this.leaf[this.i++ & 0x1f];
+            }
+
+        };
+    }
+
+    private Object[] pushTail(final int level, final Object[] parent,
+            final Object[] tailNode) {
+        final int idx = this.count - 1 >>> level & 0x1f;
+        final Object[] rval = parent.clone();
+        if (level == 5) {
+            rval[idx] = tailNode;
+        } else {
+            final Object[] child = (Object[]) parent[idx];
+            rval[idx] = child == null ? newPath(level - 5, tailNode)
+                    : pushTail(level - 5, child, tailNode);
+        }
+        return rval;
+    }
+
+    @Override
+    public int size() {
+        return this.count;
+    }
+
+    private int tailOffset() {
+        return this.count < 32 ? 0 : this.count - 1 >>> 5 << 5;
+    }
+
+    /**
+     * Vector with an element appended.
+     *
+     * @param element
+     *            element to append. Must not be null.
+     *
+     * @return vector with the element appended.
+     *
+     * @throws NullPointerException
+     *             if element is null.
+     */
+    public PersistentVector<E> with(final E element) {
+        return withRun(new Object[] { Objects.requireNonNull(element) }, 0);
+    }
+
+    /**
+     * Vector with all elements of a collection appended, in iteration order.
+     * The elements are copied into the tail a leaf at a time, so a run of n
+     * elements allocates about n / 32 nodes rather than n.
+     *
+     * @param elements
+     *            elements to append. Must not be null.
+     *
+     * @return vector with the elements appended.
+     *
+     * @throws NullPointerException
+     *             if any element is null.
+     */
+    public PersistentVector<E> withAll(final Collection<? extends E> elements) {
+        final Object[] values = elements.toArray();
+        PersistentVector<E> rval = this;
+        int from = 0;
+        while (from < values.length) {
+            final int before = rval.count;
+            rval = rval.withRun(values, from);
+            from += rval.count - before;
+        }
+        return rval;
+    }
+
+    /*
+     * append as many values as fit in the tail, pushing a full tail into the
+     * tree first.
+     */
+    private PersistentVector<E> withRun(final Object[] values, final int from) {
+        int kept = this.count - tailOffset();
+        Object[] nroot = this.root;
+        int nshift = this.shift;
+        if (kept == 32) {
+            if (this.count >>> 5 > 1 << this.shift) {
+                nroot = new Object[32];
+                nroot[0] = this.root;
+                nroot[1] = newPath(this.shift, this.tail);
+                nshift += 5;
+            } else {
+                nroot = pushTail(this.shift, this.root, this.tail);
+            }
+            kept = 0;
+        }
+        final int n = Math.min(32 - kept, values.length - from);
+        final Object[] ntail = new Object[kept + n];
+        System.arraycopy(this.tail, 0, ntail, 0, kept);
+        for (int i = 0; i < n; i++) {
+            ntail[kept + i] = Objects.requireNonNull(values[from + i]);
+        }
+        return new PersistentVector<>(this.count + n, nshift, nroot, ntail);
+    }
+
+}
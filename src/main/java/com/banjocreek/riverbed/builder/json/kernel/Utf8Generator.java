@@ -0,0 +1,796 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.kernel;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+import javax.json.JsonArray;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+import javax.json.stream.JsonGenerationException;
+import javax.json.stream.JsonGenerator;
+
+/**
+ * <p>
+ * JSON generator that encodes UTF-8 directly into bytes, without passing
+ * through a {@link java.io.Writer}. Integers, strings and member names are
+ * encoded in place. A generator that writes many members also keeps a small
+ * cache of recently written names as tokens of the form <code>"name":</code>
+ * and copies repeated names from it. Views over builder operations
+ * are written from the operations, without materializing their contents.
+ * </p>
+ *
+ * <p>
+ * Output goes to a growable array, into a caller's {@link ByteBuffer}, or in
+ * chunks to a {@link WritableByteChannel}, {@link OutputStream} or
+ * {@link Writer}. A generator is not thread safe.
+ * </p>
+ */
+public final class Utf8Generator implements JsonGenerator {
+
+    /*
+     * decodes chunks into characters for a writer. A chunk may end within a
+     * character; its leading bytes are carried to the next chunk.
+     */
+    private static final class CharDrain implements Drain {
+
+        private final ByteBuffer carry = ByteBuffer.allocate(4);
+
+        private final CharBuffer chars = CharBuffer.allocate(CHUNK);
+
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8
+                .newDecoder();
+
+        private final Writer out;
+
+        CharDrain(final Writer out) {
+            this.out = out;
+        }
+
+        private void decode(final ByteBuffer in) throws IOException {
+            CoderResult result;
+            do {
+                result = this.decoder.decode(in, this.chars, false);
+                if (result.isError()) {
+                    result.throwException();
+                }
+                this.out.write(this.chars.array(), 0, this.chars.position());
+                this.chars.clear();
+            } while (result.isOverflow());
+        }
+
+        @Override
+        public void drain(final byte[] buf, final int len) throws IOException {
+            final ByteBuffer in = ByteBuffer.wrap(buf, 0, len);
+            while (this.carry.position() > 0 && in.hasRemaining()) {
+                this.carry.put(in.get());
+                this.carry.flip();
+                decode(this.carry);
+                this.carry.compact();
+            }
+            decode(in);
+            this.carry.put(in);
+        }
+
+    }
+
+    @FunctionalInterface
+    private interface Drain {
+        void drain(byte[] buf, int len) throws IOException;
+    }
+
+    private static final int ARRAY = 1;
+
+    private static final int CHUNK = 8192;
+
+    /*
+     * escape for each ASCII character: 0 for none, 'u' for a unicode escape,
+     * otherwise the character following the backslash.
+     */
+    private static final byte[] ESCAPES = new byte[128];
+
+    private static final byte[] FALSE = { 'f', 'a', 'l', 's', 'e' };
+
+    private static final int FIRST = 4;
+
+    private static final byte[] HEX = { '0', '1', '2', '3', '4', '5', '6',
+            '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f' };
+
+    private static final byte[] NULL = { 'n', 'u', 'l', 'l' };
+
+    private static final int OBJECT = 2;
+
+    /*
+     * number of member names written before the generator starts caching
+     * them, so that small documents allocate no cache.
+     */
+    private static final int TOKEN_CACHE_AFTER = 64;
+
+    /*
+     * slots in the cache of names; a power of two.
+     */
+    private static final int TOKEN_SLOTS = 256;
+
+    private static final byte[] TRUE = { 't', 'r', 'u', 'e' };
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = 'u';
+        }
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\f'] = 'f';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\r'] = 'r';
+        ESCAPES['\t'] = 't';
+    }
+
+    /**
+     * Generator that collects its output in a growable array.
+     *
+     * @return new generator.
+     *
+     * @see #toByteArray()
+     */
+    public static Utf8Generator create() {
+        return new Utf8Generator(new byte[256], 0, 256, null, null, null,
+                null);
+    }
+
+    /**
+     * Generator that writes into a buffer, starting at its position. The
+     * buffer's position is advanced past the output by {@link #flush()} and
+     * {@link #close()}.
+     *
+     * @param out
+     *            destination buffer.
+     *
+     * @return new generator.
+     */
+    public static Utf8Generator create(final ByteBuffer out) {
+        if (out.hasArray()) {
+            final int offset = out.arrayOffset();
+            return new Utf8Generator(out.array(), offset + out.position(),
+                    offset + out.limit(), out, null, null, null);
+        }
+        return new Utf8Generator(new byte[CHUNK], 0, CHUNK, out,
+                (buf, len) -> out.put(buf, 0, len), null, null);
+    }
+
+    /**
+     * Generator that writes to a byte stream in chunks. {@link #flush()}
+     * flushes the stream and {@link #close()} closes it.
+     *
+     * @param out
+     *            destination stream.
+     *
+     * @return new generator.
+     */
+    public static Utf8Generator create(final OutputStream out) {
+        return new Utf8Generator(new byte[CHUNK], 0, CHUNK, null,
+                (buf, len) -> out.write(buf, 0, len), out, out);
+    }
+
+    /**
+     * Generator that writes to a channel in chunks. {@link #close()} closes the
+     * channel.
+     *
+     * @param out
+     *            destination channel.
+     *
+     * @return new generator.
+     */
+    public static Utf8Generator create(final WritableByteChannel out) {
+        return new Utf8Generator(new byte[CHUNK], 0, CHUNK, null,
+                (buf, len) -> {
+                    final ByteBuffer bb = ByteBuffer.wrap(buf, 0, len);
+                    while (bb.hasRemaining()) {
+                        out.write(bb);
+                    }
+                }, null, out);
+    }
+
+    /**
+     * Generator that writes to a character stream in chunks, decoding its
+     * output so that the text is exactly that written to a byte stream.
+     * {@link #flush()} flushes the stream and {@link #close()} closes it.
+     *
+     * @param out
+     *            destination stream.
+     *
+     * @return new generator.
+     */
+    public static Utf8Generator create(final Writer out) {
+        return new Utf8Generator(new byte[CHUNK], 0, CHUNK, null,
+                new CharDrain(out), out, out);
+    }
+
+    /*
+     * text of a double as javax.json writes it, which is that of
+     * BigDecimal.valueOf. The two agree whenever Double.toString has no
+     * exponent, so the BigDecimal is needed only for very large or small
+     * magnitudes.
+     */
+    private static String decimal(final double value) {
+        JsonOp.checkFinite(value);
+        if (value == 0) {
+            return "0.0";
+        }
+        final String rval = Double.toString(value);
+        return rval.indexOf('E') < 0 ? rval : BigDecimal.valueOf(value)
+                .toString();
+    }
+
+    /**
+     * Generator that collects its output and passes each template slot it
+     * encounters to a recorder, along with the output since the previous
+     * slot.
+     */
+    static Utf8Generator recording(
+            final BiConsumer<byte[], JsonTemplate.Slot> recorder) {
+        final Utf8Generator rval = create();
+        rval.recorder = recorder;
+        return rval;
+    }
+
+    /*
+     * generator that collects the members or elements of an array or object
+     * started elsewhere. Unless it writes the first of them, each is preceded
+     * by a separator.
+     */
+    static Utf8Generator within(final boolean object, final boolean first) {
+        final Utf8Generator rval = create();
+        rval.push(object ? OBJECT : ARRAY);
+        if (!first) {
+            rval.stack[0] &= ~FIRST;
+        }
+        return rval;
+    }
+
+    private byte[] buf;
+
+    private final Closeable closeable;
+
+    private int depth;
+
+    private final byte[] digits = new byte[20];
+
+    private final Drain drain;
+
+    private int drains;
+
+    private final Flushable flushable;
+
+    private int limit;
+
+    private int mark;
+
+    private int names;
+
+    private int pos;
+
+    private BiConsumer<byte[], JsonTemplate.Slot> recorder;
+
+    private int[] stack = new int[16];
+
+    private final ByteBuffer target;
+
+    private String[] tokenNames;
+
+    private byte[][] tokens;
+
+    private Utf8Generator(final byte[] buf, final int pos, final int limit,
+            final ByteBuffer target, final Drain drain,
+            final Flushable flushable, final Closeable closeable) {
+        this.buf = buf;
+        this.pos = pos;
+        this.limit = Math.min(limit, buf.length);
+        this.target = target;
+        this.drain = drain;
+        this.flushable = flushable;
+        this.closeable = closeable;
+    }
+
+    private void ascii(final String value) {
+        final int len = value.length();
+        require(len);
+        for (int i = 0; i < len; i++) {
+            this.buf[this.pos++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void bytes(final byte[] value) {
+        int off = 0;
+        while (off < value.length) {
+            require(1);
+            final int n = Math.min(value.length - off, this.limit - this.pos);
+            System.arraycopy(value, off, this.buf, this.pos, n);
+            this.pos += n;
+            off += n;
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        if (this.closeable != null) {
+            try {
+                this.closeable.close();
+            } catch (final IOException e) {
+                throw new JsonException("i/o error closing output", e);
+            }
+        }
+    }
+
+    /**
+     * Output since the previous cut.
+     */
+    byte[] cut() {
+        final byte[] rval = Arrays.copyOfRange(this.buf, this.mark, this.pos);
+        this.mark = this.pos;
+        return rval;
+    }
+
+    private void drain() {
+        try {
+            this.drain.drain(this.buf, this.pos);
+        } catch (final IOException e) {
+            throw new JsonException("i/o error writing output", e);
+        }
+        this.drains++;
+        this.pos = 0;
+    }
+
+    @Override
+    public void flush() {
+        if (this.drain != null) {
+            drain();
+            if (this.flushable != null) {
+                try {
+                    this.flushable.flush();
+                } catch (final IOException e) {
+                    throw new JsonException("i/o error flushing output", e);
+                }
+            }
+        } else if (this.target != null) {
+            this.target.position(this.pos - this.target.arrayOffset());
+        }
+    }
+
+    private void integer(final long value) {
+        if (value == Long.MIN_VALUE) {
+            ascii(Long.toString(value));
+            return;
+        }
+        long v = value < 0 ? -value : value;
+        int n = 0;
+        do {
+            this.digits[n++] = (byte) ('0' + v % 10);
+            v /= 10;
+        } while (v != 0);
+        require(n + 1);
+        if (value < 0) {
+            this.buf[this.pos++] = '-';
+        }
+        while (n > 0) {
+            this.buf[this.pos++] = this.digits[--n];
+        }
+    }
+
+    private void named(final String name) {
+        if (this.depth == 0 || (this.stack[this.depth - 1] & OBJECT) == 0) {
+            throw new JsonGenerationException(
+                    "named value allowed only within an object");
+        }
+        separate();
+        final int slot = name.hashCode() & TOKEN_SLOTS - 1;
+        if (this.tokens != null && name.equals(this.tokenNames[slot])) {
+            bytes(this.tokens[slot]);
+            return;
+        }
+        final int start = this.pos;
+        final int drains = this.drains;
+        string(name);
+        require(1);
+        this.buf[this.pos++] = ':';
+        if (this.tokens == null) {
+            if (++this.names < TOKEN_CACHE_AFTER) {
+                return;
+            }
+            this.tokenNames = new String[TOKEN_SLOTS];
+            this.tokens = new byte[TOKEN_SLOTS][];
+        }
+        if (drains == this.drains) {
+            /*
+             * the token is still whole in the buffer.
+             */
+            this.tokenNames[slot] = name;
+            this.tokens[slot] = Arrays.copyOfRange(this.buf, start, this.pos);
+        }
+    }
+
+    private void push(final int context) {
+        if (this.depth == this.stack.length) {
+            this.stack = Arrays.copyOf(this.stack, this.depth * 2);
+        }
+        this.stack[this.depth++] = context | FIRST;
+    }
+
+    /**
+     * Copy pre-encoded output, typically a template fragment.
+     */
+    void raw(final byte[] value) {
+        bytes(value);
+    }
+
+    private void require(final int n) {
+        if (this.limit - this.pos >= n) {
+            return;
+        }
+        if (this.drain != null) {
+            drain();
+            if (this.limit >= n) {
+                return;
+            }
+        } else if (this.target != null) {
+            throw new BufferOverflowException();
+        }
+        this.buf = Arrays.copyOf(this.buf,
+                Math.max(this.buf.length * 2, this.pos + n));
+        this.limit = this.buf.length;
+    }
+
+    private void scalar(final JsonValue value) {
+        if (this.recorder != null && value instanceof JsonTemplate.Slot) {
+            this.recorder.accept(cut(), (JsonTemplate.Slot) value);
+            return;
+        }
+        switch (value.getValueType()) {
+        case STRING:
+            string(((JsonString) value).getString());
+            break;
+        case NUMBER:
+            ascii(value.toString());
+            break;
+        case TRUE:
+            bytes(TRUE);
+            break;
+        case FALSE:
+            bytes(FALSE);
+            break;
+        default:
+            bytes(NULL);
+        }
+    }
+
+    private void separate() {
+        if (this.depth > 0) {
+            final int context = this.stack[this.depth - 1];
+            if ((context & FIRST) != 0) {
+                this.stack[this.depth - 1] = context & ~FIRST;
+            } else {
+                require(1);
+                this.buf[this.pos++] = ',';
+            }
+        }
+    }
+
+    private void string(final String value) {
+        require(1);
+        this.buf[this.pos++] = '"';
+        final int len = value.length();
+        for (int i = 0; i < len; i++) {
+            final char c = value.charAt(i);
+            require(6);
+            if (c < 0x80) {
+                final byte escape = ESCAPES[c];
+                if (escape == 0) {
+                    this.buf[this.pos++] = (byte) c;
+                } else if (escape == 'u') {
+                    unicode(c);
+                } else {
+                    this.buf[this.pos++] = '\\';
+                    this.buf[this.pos++] = escape;
+                }
+            } else if (c < 0x800) {
+                this.buf[this.pos++] = (byte) (0xc0 | c >> 6);
+                this.buf[this.pos++] = (byte) (0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c) && i + 1 < len
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                final int cp = Character.toCodePoint(c, value.charAt(++i));
+                this.buf[this.pos++] = (byte) (0xf0 | cp >> 18);
+                this.buf[this.pos++] = (byte) (0x80 | cp >> 12 & 0x3f);
+                this.buf[this.pos++] = (byte) (0x80 | cp >> 6 & 0x3f);
+                this.buf[this.pos++] = (byte) (0x80 | cp & 0x3f);
+            } else if (Character.isSurrogate(c)) {
+                /*
+                 * unpaired, so not encodable as UTF-8; the escape keeps it.
+                 */
+                unicode(c);
+            } else {
+                this.buf[this.pos++] = (byte) (0xe0 | c >> 12);
+                this.buf[this.pos++] = (byte) (0x80 | c >> 6 & 0x3f);
+                this.buf[this.pos++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+        require(1);
+        this.buf[this.pos++] = '"';
+    }
+
+    /**
+     * Output collected by a generator created with {@link #create()}.
+     *
+     * @return copy of the output.
+     *
+     * @throws IllegalStateException
+     *             if the generator writes to a buffer, stream or channel.
+     */
+    public byte[] toByteArray() {
+        if (this.drain != null || this.target != null) {
+            throw new IllegalStateException("output is not collected");
+        }
+        return Arrays.copyOf(this.buf, this.pos);
+    }
+
+    private void unicode(final char c) {
+        this.buf[this.pos++] = '\\';
+        this.buf[this.pos++] = 'u';
+        this.buf[this.pos++] = HEX[c >> 12];
+        this.buf[this.pos++] = HEX[c >> 8 & 0xf];
+        this.buf[this.pos++] = HEX[c >> 4 & 0xf];
+        this.buf[this.pos++] = HEX[c & 0xf];
+    }
+
+    private void unnamed() {
+        if (this.depth > 0 && (this.stack[this.depth - 1] & ARRAY) == 0) {
+            throw new JsonGenerationException(
+                    "value within an object requires a name");
+        }
+        separate();
+    }
+
+    @Override
+    public JsonGenerator write(final BigDecimal value) {
+        unnamed();
+        ascii(value.toString());
+        return this;
+    }
+
+    @Override
+    public JsonGenerator write(final BigInteger value) {
+        unnamed();
+        ascii(value.toString());
+        return this;
+    }
+
+    @Override
+    public JsonGenerator write(final boolean value) {
+        unnamed();
+        bytes(value ? TRUE : FALSE);
+        return this;
+    }
+
+    @Override
+    public JsonGenerator write(final double value) {
+        final String text = decimal(value);
+        unnamed();
+        ascii(text);
+        return this;
+    }
+
+    @Override
+    public JsonGenerator write(final int value) {
+        unnamed();
+        integer(value);
+        return this;
+    }
+
+    @Override
+    public JsonGenerator write(final JsonValue value) {
+        if (value instanceof ObjectView) {
+            ((ObjectView) value).writeTo(this);
+            return this;
+        } else if (value instanceof ArrayView) {
+            ((ArrayView) value).writeTo(this);
+            return this;
+        }
+        switch (value.getValueType()) {
+        case ARRAY:
+            writeStartArray();
+            ((JsonArray) value).forEach(v -> write(v));
+            return writeEnd();
+        case OBJECT:
+            writeStartObject();
+            ((JsonObject) value).forEach((k, v) -> write(k, v));
+            return writeEnd();
+        default:
+            unnamed();
+            scalar(value);
+            return this;
+        }
+    }
+
+    @Override
+    public JsonGenerator write(final long value) {
+        unnamed();
+        integer(value);
+        return this;
+    }
+
+    @Override
+    public JsonGenerator write(final String value) {
+        unnamed();
+        string(value);
+        return this;
+    }
+
+    @Override
+    public JsonGenerator write(final String name, final BigDecimal value) {
+        named(name);
+        ascii(value.toString());
+        return this;
+    }
+
+    @Override
+    public JsonGenerator write(final String name, final BigInteger value) {
+        named(name);
+        ascii(value.toString());
+        return this;
+    }
+
+    @Override
+    public JsonGenerator write(final String name, final boolean value) {
+        named(name);
+        bytes(value ? TRUE : FALSE);
+        return this;
+    }
+
+    @Override
+    public JsonGenerator write(final String name, final double value) {
+        final String text = decimal(value);
+        named(name);
+        ascii(text);
+        return this;
+    }
+
+    @Override
+    public JsonGenerator write(final String name, final int value) {
+        named(name);
+        integer(value);
+        return this;
+    }
+
+    @Override
+    public JsonGenerator write(final String name, final JsonValue value) {
+        if (value instanceof ObjectView) {
+            ((ObjectView) value).writeTo(name, this);
+            return this;
+        } else if (value instanceof ArrayView) {
+            ((ArrayView) value).writeTo(name, this);
+            return this;
+        }
+        switch (value.getValueType()) {
+        case ARRAY:
+            writeStartArray(name);
+            ((JsonArray) value).forEach(v -> write(v));
+            return writeEnd();
+        case OBJECT:
+            writeStartObject(name);
+            ((JsonObject) value).forEach((k, v) -> write(k, v));
+            return writeEnd();
+        default:
+            named(name);
+            scalar(value);
+            return this;
+        }
+    }
+
+    @Override
+    public JsonGenerator write(final String name, final long value) {
+        named(name);
+        integer(value);
+        return this;
+    }
+
+    @Override
+    public JsonGenerator write(final String name, final String value) {
+        named(name);
+        string(value);
+        return this;
+    }
+
+    @Override
+    public JsonGenerator writeEnd() {
+        if (this.depth == 0) {
+            throw new JsonGenerationException("no array or object to end");
+        }
+        require(1);
+        final boolean object = (this.stack[--this.depth] & OBJECT) != 0;
+        this.buf[this.pos++] = object ? (byte) '}' : (byte) ']';
+        return this;
+    }
+
+    @Override
+    public JsonGenerator writeNull() {
+        unnamed();
+        bytes(NULL);
+        return this;
+    }
+
+    @Override
+    public JsonGenerator writeNull(final String name) {
+        named(name);
+        bytes(NULL);
+        return this;
+    }
+
+    @Override
+    public JsonGenerator writeStartArray() {
+        unnamed();
+        require(1);
+        this.buf[this.pos++] = '[';
+        push(ARRAY);
+        return this;
+    }
+
+    @Override
+    public JsonGenerator writeStartArray(final String name) {
+        named(name);
+        require(1);
+        this.buf[this.pos++] = '[';
+        push(ARRAY);
+        return this;
+    }
+
+    @Override
+    public JsonGenerator writeStartObject() {
+        unnamed();
+        require(1);
+        this.buf[this.pos++] = '{';
+        push(OBJECT);
+        return this;
+    }
+
+    @Override
+    public JsonGenerator writeStartObject(final String name) {
+        named(name);
+        require(1);
+        this.buf[this.pos++] = '{';
+        push(OBJECT);
+        return this;
+    }
+
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.mutable;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.json.JsonArray;
+import javax.json.JsonBuilderFactory;
+import javax.json.JsonObject;
+
+import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
+
+/**
+ * <p>
+ * Factory for mutable builders that learns the shape of the documents built
+ * at each named site and allocates new builders to match. Each time a
+ * builder is merged or written, the number of members or elements it holds,
+ * and for objects their names, is recorded for its site. Builders created
+ * later at the site start out large enough for the largest of the recent
+ * documents, up to a fixed limit, so a service that builds the same shape
+ * over and over stops resizing builder storage without being given size
+ * hints, and a single unusually large document is soon forgotten.
+ * </p>
+ *
+ * <p>
+ * Builders nested in a learning builder learn too, at sites named by path:
+ * <code>site.member</code> for a member and <code>site[]</code> for the
+ * elements of an array. At most a fixed number of sites are tracked; beyond
+ * that, as for objects whose member names are data, new nested sites are
+ * built without learning. The learned shapes may be read with
+ * {@link #shapes()}.
+ * </p>
+ *
+ * <p>
+ * The factory may be shared between threads. Each builder it creates must be
+ * used by one thread at a time.
+ * </p>
+ */
+public final class AdaptiveJsonBuilders {
+
+    private static final int SITE_LIMIT = 4096;
+
+    private final JsonBuilderFactory factory;
+
+    private final ConcurrentHashMap<String, ShapeStats> sites =
+            new ConcurrentHashMap<>();
+
+    private final AtomicInteger tracked = new AtomicInteger();
+
+    AdaptiveJsonBuilders(final JsonBuilderFactory factory) {
+        this.factory = factory;
+    }
+
+    private static void collect(final ShapeStats stats,
+            final Map<String, JsonShape> shapes) {
+        shapes.put(stats.path, stats.snapshot());
+        stats.children.values().forEach(c -> collect(c, shapes));
+        final ShapeStats element = stats.element.get();
+        if (element != null) {
+            collect(element, shapes);
+        }
+    }
+
+    /**
+     * Create an array builder allocated for the length learned at a site.
+     *
+     * @param site
+     *            name of the site, such as the document type. Must not be
+     *            null.
+     *
+     * @return new builder.
+     *
+     * @throws NullPointerException
+     *             if site is null.
+     */
+    public JAry<JsonArray> array(final String site) {
+        final JsonBuilderFactory f = this.factory;
+        final ShapeStats stats = site(site);
+        return new MutableJsonArrayBuilder<>(f, l -> JsonOp.buildArray(f, l),
+                stats == null ? new ListArrayState() : new LearningArrayState(
+                        this, stats));
+    }
+
+    /**
+     * Create an object builder allocated for the shape learned at a site.
+     *
+     * @param site
+     *            name of the site, such as the document type. Must not be
+     *            null.
+     *
+     * @return new builder.
+     *
+     * @throws NullPointerException
+     *             if site is null.
+     */
+    public JObj<JsonObject> object(final String site) {
+        final JsonBuilderFactory f = this.factory;
+        final ShapeStats stats = site(site);
+        return new MutableJsonObjectBuilder<>(f,
+                m -> JsonOp.buildObject(f, m), stats == null
+                        ? new MapObjectState()
+                        : new LearningObjectState(this, stats));
+    }
+
+    /**
+     * Shapes learned so far, by site path.
+     *
+     * @return snapshot of every tracked site, sorted by path.
+     */
+    public Map<String, JsonShape> shapes() {
+        final Map<String, JsonShape> rval = new TreeMap<>();
+        this.sites.values().forEach(s -> collect(s, rval));
+        return rval;
+    }
+
+    /*
+     * site of builders nested at a member, or null if no more sites may be
+     * tracked.
+     */
+    ShapeStats child(final ShapeStats parent, final String name) {
+        final ShapeStats rval = parent.children.get(name);
+        if (rval != null || !reserve()) {
+            return rval;
+        }
+        return parent.children.computeIfAbsent(name, k -> new ShapeStats(
+                parent.path + "." + k));
+    }
+
+    /*
+     * site of builders nested as elements, or null if no more sites may be
+     * tracked.
+     */
+    ShapeStats element(final ShapeStats parent) {
+        final ShapeStats rval = parent.element.get();
+        if (rval != null || !reserve()) {
+            return rval;
+        }
+        parent.element.compareAndSet(null, new ShapeStats(parent.path + "[]"));
+        return parent.element.get();
+    }
+
+    /*
+     * claim room for one more site. A site claimed by a thread that loses a
+     * race to create it is not returned, so the limit is approximate.
+     */
+    private boolean reserve() {
+        return this.tracked.get() < SITE_LIMIT
+                && this.tracked.getAndIncrement() < SITE_LIMIT;
+    }
+
+    private ShapeStats site(final String site) {
+        final ShapeStats rval = this.sites.get(site);
+        if (rval != null || !reserve()) {
+            return rval;
+        }
+        return this.sites.computeIfAbsent(site, ShapeStats::new);
+    }
+
+}
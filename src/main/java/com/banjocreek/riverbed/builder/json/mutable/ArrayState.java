@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.mutable;
+
+import java.util.List;
+
+import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
+
+/**
+ * Operations recorded by a mutable array builder. The operations are available
+ * at any point, independently of how the builder delivers its result.
+ */
+interface ArrayState {
+
+    void add(JsonOp value);
+
+    void clear();
+
+    /**
+     * State for a new array builder nested as an element.
+     */
+    default ArrayState nestedArray() {
+        return new ListArrayState();
+    }
+
+    /**
+     * State for a new object builder nested as an element.
+     */
+    default ObjectState nestedObject() {
+        return new MapObjectState();
+    }
+
+    /**
+     * Current operations. Unless the implementation says otherwise, later
+     * changes to the state do not reach the returned list.
+     */
+    List<JsonOp> ops();
+
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.mutable;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
+import com.banjocreek.riverbed.builder.json.kernel.PersistentMap;
+
+/**
+ * Object state shared by any number of threads. The defaults and values are
+ * held in persistent maps, and each change swaps in a new pair with a single
+ * compare-and-set, so writers never block one another and reading the
+ * operations takes a consistent snapshot without copying.
+ */
+final class AtomicObjectState implements ObjectState {
+
+    private static final class Maps {
+
+        final PersistentMap<String, JsonOp> defaults;
+
+        final PersistentMap<String, JsonOp> values;
+
+        Maps(final PersistentMap<String, JsonOp> defaults,
+                final PersistentMap<String, JsonOp> values) {
+            this.defaults = defaults;
+            this.values = values;
+        }
+
+    }
+
+    private static final Maps EMPTY = new Maps(PersistentMap.empty(),
+            PersistentMap.empty());
+
+    private final AtomicReference<Maps> maps = new AtomicReference<>(EMPTY);
+
+    @Override
+    public void clear() {
+        this.maps.set(EMPTY);
+    }
+
+    @Override
+    public void defaults(final Map<String, JsonOp> defaults) {
+        this.maps.updateAndGet(m -> new Maps(m.defaults.withAll(defaults),
+                m.values));
+    }
+
+    @Override
+    public Map<String, JsonOp> ops() {
+        final Maps m = this.maps.get();
+        return m.defaults.isEmpty() ? m.values : m.defaults.withAll(m.values);
+    }
+
+    @Override
+    public void remove(final String name) {
+        this.maps.updateAndGet(m -> new Maps(m.defaults, m.values
+                .without(name)));
+    }
+
+    @Override
+    public void reset() {
+        this.maps.updateAndGet(m -> new Maps(m.defaults, PersistentMap
+                .empty()));
+    }
+
+    @Override
+    public void update(final String name, final UnaryOperator<JsonOp> update) {
+        this.maps.updateAndGet(m -> new Maps(m.defaults, m.values.with(name,
+                update.apply(m.values.get(name)))));
+    }
+
+    @Override
+    public void values(final Map<String, JsonOp> values) {
+        this.maps.updateAndGet(m -> new Maps(m.defaults, m.values
+                .withAll(values)));
+    }
+
+    @Override
+    public void values(final String name, final JsonOp value) {
+        this.maps.updateAndGet(m -> new Maps(m.defaults, m.values.with(name,
+                value)));
+    }
+
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.mutable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
+
+/**
+ * <p>
+ * Array state shared by any number of adding threads. Each thread appends to
+ * a chunk of its own, without synchronizing with other threads, and starts a
+ * new chunk when its current one is full. Every chunk is linked into a shared
+ * list when it is started, so reading the operations sees the values added
+ * so far by every thread.
+ * </p>
+ *
+ * <p>
+ * Values added by one thread keep their order. Unless the state is ordered,
+ * values from different threads appear grouped by chunk. An ordered state
+ * also numbers each value from a shared counter and reads them in that
+ * order.
+ * </p>
+ */
+final class ChunkedArrayState implements ArrayState {
+
+    private static final class Chunk {
+
+        final JsonOp[] ops = new JsonOp[CHUNK];
+
+        final long[] sequence;
+
+        /*
+         * written only by the owning thread, after the slot it publishes.
+         */
+        volatile int size;
+
+        Chunk(final boolean ordered) {
+            this.sequence = ordered ? new long[CHUNK] : null;
+        }
+
+    }
+
+    /*
+     * read position within a chunk of an ordered state.
+     */
+    private static final class Cursor {
+
+        final Chunk chunk;
+
+        final int end;
+
+        int position;
+
+        Cursor(final Chunk chunk, final int end) {
+            this.chunk = chunk;
+            this.end = end;
+        }
+
+        long sequence() {
+            return this.chunk.sequence[this.position];
+        }
+
+    }
+
+    /*
+     * chunks started since the state was last cleared, and the chunk each
+     * adding thread currently appends to. Both are dropped with the
+     * generation, so no thread retains the contents of the state.
+     */
+    private static final class Generation {
+
+        final Queue<Chunk> chunks = new ConcurrentLinkedQueue<>();
+
+        final Map<Thread, Chunk> current = new ConcurrentHashMap<>();
+
+    }
+
+    private static final int CHUNK = 256;
+
+    private volatile Generation generation = new Generation();
+
+    private final AtomicLong sequence;
+
+    ChunkedArrayState(final boolean ordered) {
+        this.sequence = ordered ? new AtomicLong() : null;
+    }
+
+    @Override
+    public void add(final JsonOp value) {
+        final Generation g = this.generation;
+        final Thread thread = Thread.currentThread();
+        Chunk chunk = g.current.get(thread);
+        if (chunk == null || chunk.size == CHUNK) {
+            chunk = new Chunk(this.sequence != null);
+            g.chunks.add(chunk);
+            g.current.put(thread, chunk);
+        }
+        final int i = chunk.size;
+        chunk.ops[i] = value;
+        if (chunk.sequence != null) {
+            chunk.sequence[i] = this.sequence.getAndIncrement();
+        }
+        chunk.size = i + 1;
+    }
+
+    @Override
+    public void clear() {
+        this.generation = new Generation();
+    }
+
+    @Override
+    public List<JsonOp> ops() {
+        final List<Cursor> cursors = new ArrayList<>();
+        int total = 0;
+        for (final Chunk chunk : this.generation.chunks) {
+            final int size = chunk.size;
+            if (size > 0) {
+                cursors.add(new Cursor(chunk, size));
+                total += size;
+            }
+        }
+        final List<JsonOp> rval = new ArrayList<>(total);
+        if (this.sequence == null) {
+            for (final Cursor c : cursors) {
+                for (int i = 0; i < c.end; i++) {
+                    rval.add(c.chunk.ops[i]);
+                }
+            }
+        } else {
+            /*
+             * each chunk is already in sequence, so merge them.
+             */
+            final PriorityQueue<Cursor> pending = new PriorityQueue<>(
+                    Math.max(1, cursors.size()), (a, b) -> Long.compare(
+                            a.sequence(), b.sequence()));
+            pending.addAll(cursors);
+            while (!pending.isEmpty()) {
+                final Cursor c = pending.poll();
+                rval.add(c.chunk.ops[c.position++]);
+                if (c.position < c.end) {
+                    pending.add(c);
+                }
+            }
+        }
+        return rval;
+    }
+
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.mutable;
+
+import java.util.Objects;
+
+import javax.json.JsonArray;
+import javax.json.JsonBuilderFactory;
+import javax.json.JsonObject;
+
+import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
+
+/**
+ * <p>
+ * Factory for mutable JSON builders that may be shared between threads.
+ * </p>
+ *
+ * <p>
+ * Every change to a shared object builder is applied atomically without
+ * locking, so any number of threads may set, remove, and update members at
+ * once; an update applies to the value current at the time, as it would on a
+ * {@link java.util.concurrent.ConcurrentHashMap}. Merging or writing the
+ * builder reads a consistent snapshot of its members while writers
+ * continue.
+ * </p>
+ *
+ * <p>
+ * Each thread adding to a shared array builder appends to a buffer of its
+ * own, so adding threads do not contend. Merging or writing the builder
+ * reads the values added so far by every thread.
+ * </p>
+ *
+ * <p>
+ * Builders nested in a shared builder are not themselves shared: each is
+ * filled by one thread and merged into the shared builder at once.
+ * </p>
+ */
+public interface ConcurrentJsonBuilders {
+
+    /**
+     * Create a new shared JSON array builder. Values added by one thread keep
+     * their order; values added by different threads are grouped by thread
+     * rather than interleaved.
+     *
+     * @return new builder.
+     */
+    public static JAry<JsonArray> array() {
+        return array(JsonOp.defaultFactory());
+    }
+
+    /**
+     * Create a new shared JSON array builder, as {@link #array()} does, that
+     * produces its array, and the contents of any nested builders, through
+     * the given factory.
+     *
+     * @param factory
+     *            factory used to create javax.json builders. Must not be null.
+     *
+     * @return new builder.
+     *
+     * @throws NullPointerException
+     *             if factory is null.
+     */
+    public static JAry<JsonArray> array(final JsonBuilderFactory factory) {
+        Objects.requireNonNull(factory);
+        return new MutableJsonArrayBuilder<>(factory,
+                l -> JsonOp.buildArray(factory, l),
+                new ChunkedArrayState(false));
+    }
+
+    /**
+     * Create a new shared JSON object builder.
+     *
+     * @return new builder.
+     */
+    public static JObj<JsonObject> object() {
+        return object(JsonOp.defaultFactory());
+    }
+
+    /**
+     * Create a new shared JSON object builder that produces its object, and
+     * the contents of any nested builders, through the given factory.
+     *
+     * @param factory
+     *            factory used to create javax.json builders. Must not be null.
+     *
+     * @return new builder.
+     *
+     * @throws NullPointerException
+     *             if factory is null.
+     */
+    public static JObj<JsonObject> object(final JsonBuilderFactory factory) {
+        Objects.requireNonNull(factory);
+        return new MutableJsonObjectBuilder<>(factory,
+                m -> JsonOp.buildObject(factory, m), new AtomicObjectState());
+    }
+
+    /**
+     * Create a new shared JSON array builder that keeps the order in which
+     * values were added across all threads. Each value is numbered from a
+     * counter shared by the adding threads.
+     *
+     * @return new builder.
+     */
+    public static JAry<JsonArray> orderedArray() {
+        return orderedArray(JsonOp.defaultFactory());
+    }
+
+    /**
+     * Create a new shared JSON array builder, as {@link #orderedArray()} does,
+     * that produces its array, and the contents of any nested builders,
+     * through the given factory.
+     *
+     * @param factory
+     *            factory used to create javax.json builders. Must not be null.
+     *
+     * @return new builder.
+     *
+     * @throws NullPointerException
+     *             if factory is null.
+     */
+    public static JAry<JsonArray> orderedArray(
+            final JsonBuilderFactory factory) {
+        Objects.requireNonNull(factory);
+        return new MutableJsonArrayBuilder<>(factory,
+                l -> JsonOp.buildArray(factory, l),
+                new ChunkedArrayState(true));
+    }
+
+}
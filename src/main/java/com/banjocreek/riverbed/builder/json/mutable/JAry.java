@@ -17,6 +17,14 @@
  */
 package com.banjocreek.riverbed.builder.json.mutable;
 
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.json.stream.JsonGenerator;
+
 import com.banjocreek.riverbed.builder.MutableBuilder;
 import com.banjocreek.riverbed.builder.json.JArrayBuilder;
 
@@ -39,6 +47,21 @@ public interface JAry<P> extends JArrayBuilder<JAry<P>>, MutableBuilder<P> {
      */
     JAry<JAry<P>> array();
 
+    /**
+     * Nest an array whose number of elements is expected in advance, as with
+     * {@link #array()}. The nested builder is allocated for that many
+     * elements; more or fewer may be added.
+     *
+     * @param sizeHint
+     *            expected number of elements.
+     *
+     * @return nested array builder.
+     *
+     * @throws IllegalArgumentException
+     *             if the hint is negative.
+     */
+    JAry<JAry<P>> array(int sizeHint);
+
     /**
      * Nest an object. This initializes a new builder whose object will be
      * appended to this array when it is completed.
@@ -47,4 +70,129 @@ public interface JAry<P> extends JArrayBuilder<JAry<P>>, MutableBuilder<P> {
      */
     JObj<JAry<P>> object();
 
+    /**
+     * Nest an object whose number of members is expected in advance, as with
+     * {@link #object()}. The nested builder is allocated for that many
+     * members; more or fewer may be set.
+     *
+     * @param sizeHint
+     *            expected number of members.
+     *
+     * @return nested object builder.
+     *
+     * @throws IllegalArgumentException
+     *             if the hint is negative.
+     */
+    JObj<JAry<P>> object(int sizeHint);
+
+    /**
+     * Encode the array this builder currently describes as UTF-8 JSON text. The
+     * text is encoded directly to bytes from the builder, without materializing
+     * any intermediate JSON structures or characters.
+     *
+     * @return UTF-8 encoded JSON text.
+     */
+    byte[] toBytes();
+
+    /**
+     * Write the array this builder currently describes into a buffer as UTF-8,
+     * starting at the buffer's position. The text is encoded directly to bytes,
+     * and the position is advanced past it.
+     *
+     * @param out
+     *            destination of the JSON text.
+     *
+     * @throws java.nio.BufferOverflowException
+     *             if the text does not fit in the remaining space.
+     */
+    void writeTo(ByteBuffer out);
+
+    /**
+     * Write the array this builder currently describes as the next value of a
+     * document being generated by the caller. This lets a builder supply a
+     * fragment of a larger document without materializing any intermediate
+     * JSON structures.
+     *
+     * @param gen
+     *            generator positioned where a value may be written, such as
+     *            within an array.
+     *
+     * @throws javax.json.stream.JsonGenerationException
+     *             if a value may not be written in the generator's current
+     *             context.
+     */
+    void writeTo(JsonGenerator gen);
+
+    /**
+     * Write the array this builder currently describes to a byte stream as
+     * UTF-8. The contents are streamed from the builder without materializing
+     * any intermediate JSON structures. The stream is flushed but not closed.
+     *
+     * @param out
+     *            destination of the JSON text.
+     *
+     * @throws javax.json.JsonException
+     *             if an i/o error occurs.
+     */
+    void writeTo(OutputStream out);
+
+    /**
+     * Write the array this builder currently describes as a named member of
+     * an object being generated by the caller.
+     *
+     * @param name
+     *            member name.
+     *
+     * @param gen
+     *            generator positioned within an object.
+     *
+     * @throws javax.json.stream.JsonGenerationException
+     *             if a named value may not be written in the generator's
+     *             current context.
+     */
+    void writeTo(String name, JsonGenerator gen);
+
+    /**
+     * Write the array this builder currently describes to a channel as UTF-8.
+     * The text is encoded directly to bytes and written in chunks. The channel
+     * is not closed.
+     *
+     * @param out
+     *            destination of the JSON text.
+     *
+     * @throws javax.json.JsonException
+     *             if an i/o error occurs.
+     */
+    void writeTo(WritableByteChannel out);
+
+    /**
+     * Write the array this builder currently describes to a channel as UTF-8,
+     * encoding its elements in parallel on the threads of a pool. The bytes
+     * written are those of {@link #writeTo(WritableByteChannel)}. The channel
+     * is not closed.
+     *
+     * @param out
+     *            destination of the JSON text.
+     *
+     * @param pool
+     *            pool whose threads encode the text.
+     *
+     * @throws javax.json.JsonException
+     *             if an i/o error occurs.
+     */
+    void writeTo(WritableByteChannel out, ForkJoinPool pool);
+
+    /**
+     * Write the array this builder currently describes to a character stream.
+     * The contents are streamed from the builder without materializing any
+     * intermediate JSON structures. The writer is flushed but not closed.
+     *
+     * @param out
+     *            destination of the JSON text.
+     *
+     * @throws javax.json.JsonException
+     *             if an i/o error occurs.
+     */
+    void writeTo(Writer out);
+
 }
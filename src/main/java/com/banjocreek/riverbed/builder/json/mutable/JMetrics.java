@@ -0,0 +1,266 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.mutable;
+
+import java.io.OutputStream;
+import java.io.Writer;
+
+import javax.json.JsonObject;
+import javax.json.stream.JsonGenerator;
+
+import com.banjocreek.riverbed.builder.MutableBuilder;
+
+/**
+ * <p>
+ * Mutable builder of a JSON object of accumulated numbers, such as a metrics
+ * snapshot. Each member is a sum, maximum, or minimum of the values recorded
+ * for its name, fixed by the first operation on that name.
+ * </p>
+ *
+ * <p>
+ * Any number of threads may record values at once. Each member accumulates
+ * in striped cells, so threads updating the same member rarely contend and
+ * threads updating different members never do. Merging or writing the
+ * builder reads each member once while recording continues; the result
+ * reflects every value recorded before the merge started and possibly some
+ * recorded during it.
+ * </p>
+ *
+ * <p>
+ * To publish snapshots of a builder that keeps recording, use
+ * {@link #mergeThenReset()}, which reads and resets each member in one step
+ * so that every value appears in exactly one snapshot. Merging and then
+ * resetting loses the values recorded between the two.
+ * </p>
+ *
+ * <p>
+ * A member keeps its kind for the life of the builder, across resets. A sum
+ * of doubles whose magnitude exceeds the range of a double has no JSON
+ * representation; merging or writing the builder then throws
+ * {@link NumberFormatException}.
+ * </p>
+ */
+public interface JMetrics extends MutableBuilder<JsonObject> {
+
+    /**
+     * Add to a sum. See the class description for sums that overflow.
+     *
+     * @param name
+     *            name of the member.
+     *
+     * @param value
+     *            value to add. Must be a JSON number.
+     *
+     * @return mutated builder
+     *
+     * @throws IllegalStateException
+     *             if the member is not a sum of doubles.
+     *
+     * @throws NumberFormatException
+     *             if value is NaN or infinite.
+     *
+     * @throws NullPointerException
+     *             if name is null.
+     */
+    JMetrics add(String name, double value);
+
+    /**
+     * Add one to a count.
+     *
+     * @param name
+     *            name of the member.
+     *
+     * @return mutated builder
+     *
+     * @throws IllegalStateException
+     *             if the member is not a count.
+     *
+     * @throws NullPointerException
+     *             if name is null.
+     */
+    JMetrics increment(String name);
+
+    /**
+     * Add to a count.
+     *
+     * @param name
+     *            name of the member.
+     *
+     * @param delta
+     *            amount to add.
+     *
+     * @return mutated builder
+     *
+     * @throws IllegalStateException
+     *             if the member is not a count.
+     *
+     * @throws NullPointerException
+     *             if name is null.
+     */
+    JMetrics increment(String name, long delta);
+
+    /**
+     * Record a value in a maximum.
+     *
+     * @param name
+     *            name of the member.
+     *
+     * @param value
+     *            value to record. Must be a JSON number.
+     *
+     * @return mutated builder
+     *
+     * @throws IllegalStateException
+     *             if the member is not a maximum of doubles.
+     *
+     * @throws NumberFormatException
+     *             if value is NaN or infinite.
+     *
+     * @throws NullPointerException
+     *             if name is null.
+     */
+    JMetrics max(String name, double value);
+
+    /**
+     * Record a value in a maximum.
+     *
+     * @param name
+     *            name of the member.
+     *
+     * @param value
+     *            value to record.
+     *
+     * @return mutated builder
+     *
+     * @throws IllegalStateException
+     *             if the member is not a maximum of longs.
+     *
+     * @throws NullPointerException
+     *             if name is null.
+     */
+    JMetrics max(String name, long value);
+
+    /**
+     * Build the object and reset every member as {@link #reset()} does, in
+     * one step for each member. A value recorded concurrently appears either
+     * in this result or in the next.
+     *
+     * @return the object as it was before the reset.
+     *
+     * @throws NumberFormatException
+     *             if a sum of doubles has overflowed.
+     */
+    JsonObject mergeThenReset();
+
+    /**
+     * Record a value in a minimum.
+     *
+     * @param name
+     *            name of the member.
+     *
+     * @param value
+     *            value to record. Must be a JSON number.
+     *
+     * @return mutated builder
+     *
+     * @throws IllegalStateException
+     *             if the member is not a minimum of doubles.
+     *
+     * @throws NumberFormatException
+     *             if value is NaN or infinite.
+     *
+     * @throws NullPointerException
+     *             if name is null.
+     */
+    JMetrics min(String name, double value);
+
+    /**
+     * Record a value in a minimum.
+     *
+     * @param name
+     *            name of the member.
+     *
+     * @param value
+     *            value to record.
+     *
+     * @return mutated builder
+     *
+     * @throws IllegalStateException
+     *             if the member is not a minimum of longs.
+     *
+     * @throws NullPointerException
+     *             if name is null.
+     */
+    JMetrics min(String name, long value);
+
+    /**
+     * Reset every member: sums to zero, and maxima and minima to no value.
+     * A maximum or minimum is left out of the object until a value is next
+     * recorded for it. Members are not removed; a value recorded concurrently
+     * is either cleared by the reset or kept after it.
+     *
+     * @return mutated builder
+     */
+    JMetrics reset();
+
+    /**
+     * Encode the object this builder currently describes as UTF-8 JSON text.
+     *
+     * @return UTF-8 encoded JSON text.
+     */
+    byte[] toBytes();
+
+    /**
+     * Write the object this builder currently describes as the next value of a
+     * document being generated by the caller.
+     *
+     * @param gen
+     *            generator positioned where a value may be written, such as
+     *            within an array.
+     *
+     * @throws javax.json.stream.JsonGenerationException
+     *             if a value may not be written in the generator's current
+     *             context.
+     */
+    void writeTo(JsonGenerator gen);
+
+    /**
+     * Write the object this builder currently describes to a byte stream as
+     * UTF-8. The stream is flushed but not closed.
+     *
+     * @param out
+     *            destination of the JSON text.
+     *
+     * @throws javax.json.JsonException
+     *             if an i/o error occurs.
+     */
+    void writeTo(OutputStream out);
+
+    /**
+     * Write the object this builder currently describes to a character stream.
+     * The writer is flushed but not closed.
+     *
+     * @param out
+     *            destination of the JSON text.
+     *
+     * @throws javax.json.JsonException
+     *             if an i/o error occurs.
+     */
+    void writeTo(Writer out);
+
+}
@@ -17,6 +17,16 @@
  */
 package com.banjocreek.riverbed.builder.json.mutable;
 
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.json.stream.JsonGenerator;
+
 import com.banjocreek.riverbed.builder.MutableBuilder;
 import com.banjocreek.riverbed.builder.json.JObjectBuilder;
 
@@ -42,6 +52,24 @@ public interface JObj<P> extends JObjectBuilder<JObj<P>>, MutableBuilder<P> {
      */
     JAry<JObj<P>> array(String name);
 
+    /**
+     * Nest an array whose number of elements is expected in advance, as with
+     * {@link #array(String)}. The nested builder is allocated for that many
+     * elements; more or fewer may be added.
+     *
+     * @param name
+     *            key at which result will be set.
+     *
+     * @param sizeHint
+     *            expected number of elements.
+     *
+     * @return nested array builder.
+     *
+     * @throws IllegalArgumentException
+     *             if the hint is negative.
+     */
+    JAry<JObj<P>> array(String name, int sizeHint);
+
     /**
      * Nest an array. If one has already been started at the given path, the
      * builder continues to operate on it. Otherwise, a new array is operated
@@ -54,6 +82,33 @@ public interface JObj<P> extends JObjectBuilder<JObj<P>>, MutableBuilder<P> {
      */
     JAry<JObj<P>> continueArray(String name);
 
+    /**
+     * Merge once every value set with
+     * {@link #setAsync(String, CompletionStage) setAsync} in this builder or
+     * the objects and arrays merged into it has completed. The values are
+     * awaited together, so the merge happens as soon as the slowest of them
+     * completes, on the thread that completes it or on the caller if all have
+     * completed. The builder must not be changed until then.
+     *
+     * @return stage that completes with the result of {@link #merge()}, or
+     *         exceptionally if any value does.
+     */
+    CompletionStage<P> mergeAsync();
+
+    /**
+     * Merge on an executor once every value set with
+     * {@link #setAsync(String, CompletionStage) setAsync} in this builder or
+     * the objects and arrays merged into it has completed, as
+     * {@link #mergeAsync()} does.
+     *
+     * @param executor
+     *            executor on which to merge.
+     *
+     * @return stage that completes with the result of {@link #merge()}, or
+     *         exceptionally if any value does.
+     */
+    CompletionStage<P> mergeAsync(Executor executor);
+
     /**
      * Nest an object. If one has already been started at the given path, the
      * builder continues to operate on it. Otherwise a new object is operated
@@ -76,4 +131,133 @@ public interface JObj<P> extends JObjectBuilder<JObj<P>>, MutableBuilder<P> {
      * @return nested object builder.
      */
     JObj<JObj<P>> object(String name);
+
+    /**
+     * Nest an object whose number of members is expected in advance, as with
+     * {@link #object(String)}. The nested builder is allocated for that many
+     * members; more or fewer may be set.
+     *
+     * @param name
+     *            key at which result will be set.
+     *
+     * @param sizeHint
+     *            expected number of members.
+     *
+     * @return nested object builder.
+     *
+     * @throws IllegalArgumentException
+     *             if the hint is negative.
+     */
+    JObj<JObj<P>> object(String name, int sizeHint);
+
+    /**
+     * Encode the object this builder currently describes as UTF-8 JSON text.
+     * The text is encoded directly to bytes from the builder, without
+     * materializing any intermediate JSON structures or characters.
+     *
+     * @return UTF-8 encoded JSON text.
+     */
+    byte[] toBytes();
+
+    /**
+     * Write the object this builder currently describes into a buffer as UTF-8,
+     * starting at the buffer's position. The text is encoded directly to bytes,
+     * and the position is advanced past it.
+     *
+     * @param out
+     *            destination of the JSON text.
+     *
+     * @throws java.nio.BufferOverflowException
+     *             if the text does not fit in the remaining space.
+     */
+    void writeTo(ByteBuffer out);
+
+    /**
+     * Write the object this builder currently describes as the next value of a
+     * document being generated by the caller. This lets a builder supply a
+     * fragment of a larger document without materializing any intermediate
+     * JSON structures.
+     *
+     * @param gen
+     *            generator positioned where a value may be written, such as
+     *            within an array.
+     *
+     * @throws javax.json.stream.JsonGenerationException
+     *             if a value may not be written in the generator's current
+     *             context.
+     */
+    void writeTo(JsonGenerator gen);
+
+    /**
+     * Write the object this builder currently describes to a byte stream as
+     * UTF-8. The contents are streamed from the builder without materializing
+     * any intermediate JSON structures. The stream is flushed but not closed.
+     *
+     * @param out
+     *            destination of the JSON text.
+     *
+     * @throws javax.json.JsonException
+     *             if an i/o error occurs.
+     */
+    void writeTo(OutputStream out);
+
+    /**
+     * Write the object this builder currently describes as a named member of
+     * an object being generated by the caller.
+     *
+     * @param name
+     *            member name.
+     *
+     * @param gen
+     *            generator positioned within an object.
+     *
+     * @throws javax.json.stream.JsonGenerationException
+     *             if a named value may not be written in the generator's
+     *             current context.
+     */
+    void writeTo(String name, JsonGenerator gen);
+
+    /**
+     * Write the object this builder currently describes to a channel as UTF-8.
+     * The text is encoded directly to bytes and written in chunks. The channel
+     * is not closed.
+     *
+     * @param out
+     *            destination of the JSON text.
+     *
+     * @throws javax.json.JsonException
+     *             if an i/o error occurs.
+     */
+    void writeTo(WritableByteChannel out);
+
+    /**
+     * Write the object this builder currently describes to a channel as
+     * UTF-8, encoding its members in parallel on the threads of a pool. The
+     * bytes written are those of {@link #writeTo(WritableByteChannel)}. The
+     * channel is not closed.
+     *
+     * @param out
+     *            destination of the JSON text.
+     *
+     * @param pool
+     *            pool whose threads encode the text.
+     *
+     * @throws javax.json.JsonException
+     *             if an i/o error occurs.
+     */
+    void writeTo(WritableByteChannel out, ForkJoinPool pool);
+
+    /**
+     * Write the object this builder currently describes to a character stream.
+     * The contents are streamed from the builder without materializing any
+     * intermediate JSON structures. The writer is flushed but not closed.
+     *
+     * @param out
+     *            destination of the JSON text.
+     *
+     * @throws javax.json.JsonException
+     *             if an i/o error occurs.
+     */
+    void writeTo(Writer out);
+
 }
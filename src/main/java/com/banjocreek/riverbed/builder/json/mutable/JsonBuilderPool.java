@@ -0,0 +1,226 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.mutable;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.json.JsonArray;
+import javax.json.JsonBuilderFactory;
+import javax.json.JsonObject;
+
+import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
+
+/**
+ * <p>
+ * Bounded pool of mutable builders for documents built over and over, such as
+ * per-request responses. A builder taken from the pool is empty; when it is
+ * returned, it is cleared but keeps the capacity it grew while in use, so a
+ * steady stream of similar documents stops allocating builder storage.
+ * </p>
+ *
+ * <p>
+ * The pool may be shared by any number of threads, including virtual
+ * threads: it holds idle builders in a fixed array updated with
+ * compare-and-set, never blocks, and does not rely on thread-local storage.
+ * When the pool is empty a new builder is created, and when it is full a
+ * returned builder is dropped.
+ * </p>
+ *
+ * <p>
+ * A pooled builder must be used by one thread at a time and must not be used
+ * after it is returned.
+ * </p>
+ *
+ * <p>
+ * Only the outermost builder is retained. Builders nested in a pooled builder,
+ * with {@link JObj#object(String)} or {@link JAry#array()} for example, are
+ * created and grow their storage afresh for every document, because the
+ * values they produce may outlive the document. The pool therefore saves
+ * most for documents whose members are mostly simple values; nested
+ * structures cost what they would without it.
+ * </p>
+ */
+public final class JsonBuilderPool {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final AtomicReferenceArray<MutableJsonArrayBuilder<JsonArray>>
+            arrays;
+
+    private final JsonBuilderFactory factory;
+
+    private final AtomicReferenceArray<MutableJsonObjectBuilder<JsonObject>>
+            objects;
+
+    JsonBuilderPool(final JsonBuilderFactory factory, final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: "
+                    + capacity);
+        }
+        this.factory = factory;
+        this.arrays = new AtomicReferenceArray<>(capacity);
+        this.objects = new AtomicReferenceArray<>(capacity);
+    }
+
+    /*
+     * slot at which a thread starts its search, so that threads tend to use
+     * different slots.
+     */
+    private static int start(final int length) {
+        final long id = Thread.currentThread().getId();
+        return (int) ((id * 0x9E3779B97F4A7C15L >>> 33) % length);
+    }
+
+    private static <T> boolean offer(final AtomicReferenceArray<T> slots,
+            final T item) {
+        final int length = slots.length();
+        final int start = start(length);
+        for (int i = 0; i < length; i++) {
+            final int slot = (start + i) % length;
+            if (slots.get(slot) == null
+                    && slots.compareAndSet(slot, null, item)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <T> T poll(final AtomicReferenceArray<T> slots) {
+        final int length = slots.length();
+        final int start = start(length);
+        for (int i = 0; i < length; i++) {
+            final int slot = (start + i) % length;
+            final T rval = slots.get(slot);
+            if (rval != null && slots.compareAndSet(slot, rval, null)) {
+                return rval;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Take an empty array builder from the pool, or create one if none is
+     * idle.
+     *
+     * @return empty builder.
+     */
+    public JAry<JsonArray> array() {
+        final MutableJsonArrayBuilder<JsonArray> rval = poll(this.arrays);
+        if (rval == null) {
+            final JsonBuilderFactory f = this.factory;
+            return new MutableJsonArrayBuilder<>(f,
+                    l -> JsonOp.buildArray(f, l), new RetainedArrayState(this,
+                            INITIAL_CAPACITY));
+        }
+        ((RetainedArrayState) rval.state()).idle.set(false);
+        return rval;
+    }
+
+    /**
+     * Take an empty object builder from the pool, or create one if none is
+     * idle.
+     *
+     * @return empty builder.
+     */
+    public JObj<JsonObject> object() {
+        final MutableJsonObjectBuilder<JsonObject> rval = poll(this.objects);
+        if (rval == null) {
+            final JsonBuilderFactory f = this.factory;
+            return new MutableJsonObjectBuilder<>(f,
+                    m -> JsonOp.buildObject(f, m), new RetainedObjectState(
+                            this, INITIAL_CAPACITY));
+        }
+        ((RetainedObjectState) rval.state()).idle.set(false);
+        return rval;
+    }
+
+    /**
+     * Return an array builder to the pool. It is cleared and must not be used
+     * again.
+     *
+     * @param builder
+     *            builder taken from this pool.
+     *
+     * @throws IllegalArgumentException
+     *             if the builder was not taken from this pool.
+     *
+     * @throws IllegalStateException
+     *             if the builder has already been returned.
+     */
+    public void release(final JAry<JsonArray> builder) {
+        final MutableJsonArrayBuilder<JsonArray> pooled = owned(builder);
+        final RetainedArrayState state = (RetainedArrayState) pooled.state();
+        if (!state.idle.compareAndSet(false, true)) {
+            throw new IllegalStateException("builder already released");
+        }
+        state.clear();
+        offer(this.arrays, pooled);
+    }
+
+    /**
+     * Return an object builder to the pool. It is cleared and must not be
+     * used again.
+     *
+     * @param builder
+     *            builder taken from this pool.
+     *
+     * @throws IllegalArgumentException
+     *             if the builder was not taken from this pool.
+     *
+     * @throws IllegalStateException
+     *             if the builder has already been returned.
+     */
+    public void release(final JObj<JsonObject> builder) {
+        final MutableJsonObjectBuilder<JsonObject> pooled = owned(builder);
+        final RetainedObjectState state = (RetainedObjectState) pooled.state();
+        if (!state.idle.compareAndSet(false, true)) {
+            throw new IllegalStateException("builder already released");
+        }
+        state.clear();
+        offer(this.objects, pooled);
+    }
+
+    @SuppressWarnings("unchecked")
+    private MutableJsonArrayBuilder<JsonArray> owned(
+            final JAry<JsonArray> builder) {
+        if (builder instanceof MutableJsonArrayBuilder) {
+            final ArrayState state = ((MutableJsonArrayBuilder<?>) builder)
+                    .state();
+            if (state instanceof RetainedArrayState
+                    && ((RetainedArrayState) state).owner == this) {
+                return (MutableJsonArrayBuilder<JsonArray>) builder;
+            }
+        }
+        throw new IllegalArgumentException("builder not from this pool");
+    }
+
+    @SuppressWarnings("unchecked")
+    private MutableJsonObjectBuilder<JsonObject> owned(
+            final JObj<JsonObject> builder) {
+        if (builder instanceof MutableJsonObjectBuilder) {
+            final ObjectState state = ((MutableJsonObjectBuilder<?>) builder)
+                    .state();
+            if (state instanceof RetainedObjectState
+                    && ((RetainedObjectState) state).owner == this) {
+                return (MutableJsonObjectBuilder<JsonObject>) builder;
+            }
+        }
+        throw new IllegalArgumentException("builder not from this pool");
+    }
+
+}
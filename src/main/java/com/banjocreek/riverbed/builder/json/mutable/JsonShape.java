@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.mutable;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Shape learned for the builders created at one site of an
+ * {@link AdaptiveJsonBuilders}, as observed so far. A shape is a snapshot and
+ * does not change as more documents are observed.
+ */
+public final class JsonShape {
+
+    private final Set<String> keys;
+
+    private final long observations;
+
+    private final int size;
+
+    private final boolean stable;
+
+    JsonShape(final long observations, final int size,
+            final Set<String> keys, final boolean stable) {
+        this.observations = observations;
+        this.size = size;
+        this.keys = keys;
+        this.stable = stable;
+    }
+
+    /**
+     * Member names common to every object observed, if their key set has
+     * been stable.
+     *
+     * @return stable member names, or an empty set for arrays and for objects
+     *         whose members have varied.
+     */
+    public Set<String> keys() {
+        return this.stable ? this.keys : Collections.emptySet();
+    }
+
+    /**
+     * Number of documents observed.
+     *
+     * @return observation count.
+     */
+    public long observations() {
+        return this.observations;
+    }
+
+    /**
+     * Largest number of members or elements among the most recent documents
+     * observed. New builders at the site are allocated for this many, up to
+     * a fixed limit.
+     *
+     * @return learned size.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Whether every object observed at the site had the same member names.
+     *
+     * @return true if the key set is stable, false for arrays.
+     */
+    public boolean stable() {
+        return this.stable;
+    }
+
+    @Override
+    public String toString() {
+        return "JsonShape[observations=" + this.observations + ", size="
+                + this.size + ", keys=" + keys() + "]";
+    }
+
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.mutable;
+
+import java.util.List;
+
+import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
+
+/**
+ * Array state that is allocated for the length learned at its site and
+ * reports its own length there whenever its operations are read.
+ */
+final class LearningArrayState implements ArrayState {
+
+    private final AdaptiveJsonBuilders builders;
+
+    private final SizedArrayState delegate;
+
+    private final ShapeStats stats;
+
+    LearningArrayState(final AdaptiveJsonBuilders builders,
+            final ShapeStats stats) {
+        this.builders = builders;
+        this.stats = stats;
+        this.delegate = new SizedArrayState(stats.expected());
+    }
+
+    @Override
+    public void add(final JsonOp value) {
+        this.delegate.add(value);
+    }
+
+    @Override
+    public void clear() {
+        this.delegate.clear();
+    }
+
+    @Override
+    public ArrayState nestedArray() {
+        final ShapeStats child = this.builders.element(this.stats);
+        return child == null ? new ListArrayState() : new LearningArrayState(
+                this.builders, child);
+    }
+
+    @Override
+    public ObjectState nestedObject() {
+        final ShapeStats child = this.builders.element(this.stats);
+        return child == null ? new MapObjectState() : new LearningObjectState(
+                this.builders, child);
+    }
+
+    @Override
+    public List<JsonOp> ops() {
+        final List<JsonOp> rval = this.delegate.ops();
+        this.stats.observe(rval.size());
+        return rval;
+    }
+
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.mutable;
+
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
+
+/**
+ * Object state that is allocated for the shape learned at its site and
+ * reports its own shape there whenever its operations are read.
+ */
+final class LearningObjectState implements ObjectState {
+
+    private final AdaptiveJsonBuilders builders;
+
+    private final SizedObjectState delegate;
+
+    private final ShapeStats stats;
+
+    LearningObjectState(final AdaptiveJsonBuilders builders,
+            final ShapeStats stats) {
+        this.builders = builders;
+        this.stats = stats;
+        this.delegate = new SizedObjectState(stats.expected());
+    }
+
+    @Override
+    public void clear() {
+        this.delegate.clear();
+    }
+
+    @Override
+    public void defaults(final Map<String, JsonOp> defaults) {
+        this.delegate.defaults(defaults);
+    }
+
+    @Override
+    public ArrayState nestedArray(final String name) {
+        final ShapeStats child = this.builders.child(this.stats, name);
+        return child == null ? new ListArrayState() : new LearningArrayState(
+                this.builders, child);
+    }
+
+    @Override
+    public ObjectState nestedObject(final String name) {
+        final ShapeStats child = this.builders.child(this.stats, name);
+        return child == null ? new MapObjectState() : new LearningObjectState(
+                this.builders, child);
+    }
+
+    @Override
+    public Map<String, JsonOp> ops() {
+        final Map<String, JsonOp> rval = this.delegate.ops();
+        this.stats.observe(rval);
+        return rval;
+    }
+
+    @Override
+    public void remove(final String name) {
+        this.delegate.remove(name);
+    }
+
+    @Override
+    public void reset() {
+        this.delegate.reset();
+    }
+
+    @Override
+    public void update(final String name, final UnaryOperator<JsonOp> update) {
+        this.delegate.update(name, update);
+    }
+
+    @Override
+    public void values(final Map<String, JsonOp> values) {
+        this.delegate.values(values);
+    }
+
+    @Override
+    public void values(final String name, final JsonOp value) {
+        this.delegate.values(name, value);
+    }
+
+}
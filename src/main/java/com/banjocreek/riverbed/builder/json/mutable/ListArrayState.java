@@ -0,0 +1,55 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.mutable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
+import com.banjocreek.riverbed.builder.list.AbstractMutableListBuilder;
+
+/**
+ * Array state for a builder used by one thread at a time.
+ */
+final class ListArrayState extends
+        AbstractMutableListBuilder<JsonOp, List<JsonOp>> implements ArrayState {
+
+    ListArrayState() {
+        super(ArrayList::new);
+    }
+
+    @Override
+    public void add(final JsonOp value) {
+        doAdd(value);
+    }
+
+    @Override
+    public void clear() {
+        doClear();
+    }
+
+    @Override
+    public List<JsonOp> ops() {
+        /*
+         * merged through a copy so that later changes to this builder do not
+         * reach operations already handed to an enclosing builder.
+         */
+        return merge();
+    }
+
+}
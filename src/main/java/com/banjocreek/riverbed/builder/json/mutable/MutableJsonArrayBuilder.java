@@ -17,22 +17,48 @@
  */
 package com.banjocreek.riverbed.builder.json.mutable;
 
+import java.io.OutputStream;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
 import javax.json.JsonArray;
+import javax.json.JsonBuilderFactory;
 import javax.json.JsonValue;
+import javax.json.stream.JsonGenerator;
 
 import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
-import com.banjocreek.riverbed.builder.list.AbstractMutableListBuilder;
+import com.banjocreek.riverbed.builder.json.kernel.ParallelEncoder;
+import com.banjocreek.riverbed.builder.json.kernel.Utf8Generator;
 
-final class MutableJsonArrayBuilder<P> extends
-        AbstractMutableListBuilder<JsonOp, P> implements JAry<P> {
+final class MutableJsonArrayBuilder<P> implements JAry<P> {
 
-    protected MutableJsonArrayBuilder(final Function<JsonArray, P> constructor) {
-        super(l -> constructor.apply(JsonOp.buildArray(l)));
+    private final Function<List<JsonOp>, P> constructor;
+
+    private final JsonBuilderFactory factory;
+
+    private final ArrayState state;
+
+    protected MutableJsonArrayBuilder(final JsonBuilderFactory factory,
+            final Function<List<JsonOp>, P> constructor) {
+        this(factory, constructor, new ListArrayState());
+    }
+
+    MutableJsonArrayBuilder(final JsonBuilderFactory factory,
+            final Function<List<JsonOp>, P> constructor,
+            final ArrayState state) {
+        this.constructor = constructor;
+        this.factory = factory;
+        this.state = state;
     }
 
     @Override
@@ -83,6 +109,60 @@ final class MutableJsonArrayBuilder<P> extends
         return this;
     }
 
+    @Override
+    public JAry<P> add(final Supplier<? extends JsonValue> value) {
+        doAdd(JsonOp.ofDeferred(value));
+        return this;
+    }
+
+    @Override
+    public JAry<P> addAll(final boolean[] values) {
+        doAdd(JsonOp.ofAll(values));
+        return this;
+    }
+
+    @Override
+    public JAry<P> addAll(final double[] values) {
+        doAdd(JsonOp.ofAll(values));
+        return this;
+    }
+
+    @Override
+    public JAry<P> addAll(final DoubleStream values) {
+        doAdd(JsonOp.ofAll(values));
+        return this;
+    }
+
+    @Override
+    public JAry<P> addAll(final int[] values) {
+        doAdd(JsonOp.ofAll(values));
+        return this;
+    }
+
+    @Override
+    public JAry<P> addAll(final IntStream values) {
+        doAdd(JsonOp.ofAll(values));
+        return this;
+    }
+
+    @Override
+    public JAry<P> addAll(final long[] values) {
+        doAdd(JsonOp.ofAll(values));
+        return this;
+    }
+
+    @Override
+    public JAry<P> addAll(final LongStream values) {
+        doAdd(JsonOp.ofAll(values));
+        return this;
+    }
+
+    @Override
+    public JAry<P> addAll(final String[] values) {
+        doAdd(JsonOp.ofAll(values));
+        return this;
+    }
+
     @Override
     public JAry<P> addNull() {
         doAdd(JsonOp.ofNull());
@@ -91,24 +171,103 @@ final class MutableJsonArrayBuilder<P> extends
 
     @Override
     public JAry<JAry<P>> array() {
-        return new MutableJsonArrayBuilder<>(this::add);
+        return new MutableJsonArrayBuilder<>(this.factory, l -> doAdd(JsonOp
+                .ofArray(this.factory, l)), this.state.nestedArray());
+    }
+
+    @Override
+    public JAry<JAry<P>> array(final int sizeHint) {
+        return new MutableJsonArrayBuilder<>(this.factory, l -> doAdd(JsonOp
+                .ofArray(this.factory, l)), new SizedArrayState(sizeHint));
     }
 
     @Override
     public JAry<P> clear() {
-        doClear();
+        this.state.clear();
         return this;
     }
 
     @Override
     public JAry<P> concat(final JsonArray jary) {
-        doAddAll(jary.stream().map(JsonOp::of).collect(Collectors.toList()));
+        doAdd(JsonOp.ofAll(jary));
         return this;
     }
 
+    @Override
+    public P merge() {
+        return this.constructor.apply(this.state.ops());
+    }
+
     @Override
     public JObj<JAry<P>> object() {
-        return new MutableJsonObjectBuilder<>(this::add);
+        return new MutableJsonObjectBuilder<>(this.factory, m -> doAdd(JsonOp
+                .ofObject(this.factory, m)), this.state.nestedObject());
+    }
+
+    @Override
+    public JObj<JAry<P>> object(final int sizeHint) {
+        return new MutableJsonObjectBuilder<>(this.factory, m -> doAdd(JsonOp
+                .ofObject(this.factory, m)), new SizedObjectState(sizeHint));
+    }
+
+    @Override
+    public byte[] toBytes() {
+        final Utf8Generator gen = Utf8Generator.create();
+        writeTo(gen);
+        return gen.toByteArray();
+    }
+
+    @Override
+    public void writeTo(final ByteBuffer out) {
+        final JsonGenerator gen = Utf8Generator.create(out);
+        writeTo(gen);
+        gen.flush();
+    }
+
+    @Override
+    public void writeTo(final JsonGenerator gen) {
+        JsonOp.writeArray(gen, this.state.ops());
+    }
+
+    @Override
+    public void writeTo(final OutputStream out) {
+        final JsonGenerator gen = Utf8Generator.create(out);
+        writeTo(gen);
+        gen.flush();
+    }
+
+    @Override
+    public void writeTo(final String name, final JsonGenerator gen) {
+        JsonOp.ofArray(this.factory, this.state.ops()).apply(name, gen);
+    }
+
+    @Override
+    public void writeTo(final WritableByteChannel out) {
+        final JsonGenerator gen = Utf8Generator.create(out);
+        writeTo(gen);
+        gen.flush();
+    }
+
+    @Override
+    public void writeTo(final WritableByteChannel out,
+            final ForkJoinPool pool) {
+        ParallelEncoder.writeArray(this.state.ops(), out, pool);
+    }
+
+    @Override
+    public void writeTo(final Writer out) {
+        final JsonGenerator gen = Utf8Generator.create(out);
+        writeTo(gen);
+        gen.flush();
+    }
+
+    ArrayState state() {
+        return this.state;
+    }
+
+    private JAry<P> doAdd(final JsonOp value) {
+        this.state.add(value);
+        return this;
     }
 
 }
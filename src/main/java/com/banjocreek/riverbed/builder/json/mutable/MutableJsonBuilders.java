@@ -17,23 +17,171 @@
  */
 package com.banjocreek.riverbed.builder.json.mutable;
 
-import java.util.function.Function;
+import java.util.Objects;
 
 import javax.json.JsonArray;
+import javax.json.JsonBuilderFactory;
 import javax.json.JsonObject;
 
+import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
+
 /**
  * Factory for mutable JSON builders.
  */
 public interface MutableJsonBuilders {
 
+    /**
+     * Create a factory of builders that learns the shape of the documents
+     * built at each of its sites and allocates new builders to match.
+     *
+     * @return new factory.
+     */
+    public static AdaptiveJsonBuilders adaptive() {
+        return adaptive(JsonOp.defaultFactory());
+    }
+
+    /**
+     * Create a factory of builders that learns document shapes and whose
+     * builders produce their results through the given factory.
+     *
+     * @param factory
+     *            factory used to create javax.json builders. Must not be null.
+     *
+     * @return new factory.
+     *
+     * @throws NullPointerException
+     *             if factory is null.
+     */
+    public static AdaptiveJsonBuilders adaptive(
+            final JsonBuilderFactory factory) {
+        return new AdaptiveJsonBuilders(Objects.requireNonNull(factory));
+    }
+
     /**
      * Create a new mutable JSON array builder.
      *
      * @return new builder.
      */
     public static JAry<JsonArray> array() {
-        return new MutableJsonArrayBuilder<>(Function.identity());
+        return array(JsonOp.defaultFactory());
+    }
+
+    /**
+     * Create a new mutable JSON array builder that produces its array, and the
+     * contents of any nested builders, through the given factory.
+     *
+     * @param factory
+     *            factory used to create javax.json builders. Must not be null.
+     *
+     * @return new builder.
+     *
+     * @throws NullPointerException
+     *             if factory is null.
+     */
+    public static JAry<JsonArray> array(final JsonBuilderFactory factory) {
+        Objects.requireNonNull(factory);
+        return new MutableJsonArrayBuilder<>(factory,
+                l -> JsonOp.buildArray(factory, l));
+    }
+
+    /**
+     * Create a new mutable JSON array builder for an expected number of
+     * elements. The builder is allocated for that many elements up front;
+     * more or fewer may be added.
+     *
+     * @param expectedElements
+     *            expected number of elements.
+     *
+     * @return new builder.
+     *
+     * @throws IllegalArgumentException
+     *             if expectedElements is negative.
+     */
+    public static JAry<JsonArray> array(final int expectedElements) {
+        return array(JsonOp.defaultFactory(), expectedElements);
+    }
+
+    /**
+     * Create a new mutable JSON array builder for an expected number of
+     * elements that produces its array through the given factory.
+     *
+     * @param factory
+     *            factory used to create javax.json builders. Must not be null.
+     *
+     * @param expectedElements
+     *            expected number of elements.
+     *
+     * @return new builder.
+     *
+     * @throws IllegalArgumentException
+     *             if expectedElements is negative.
+     *
+     * @throws NullPointerException
+     *             if factory is null.
+     */
+    public static JAry<JsonArray> array(final JsonBuilderFactory factory,
+            final int expectedElements) {
+        Objects.requireNonNull(factory);
+        return new MutableJsonArrayBuilder<>(factory,
+                l -> JsonOp.buildArray(factory, l), new SizedArrayState(
+                        expectedElements));
+    }
+
+    /**
+     * Create a new mutable JSON array builder whose merged result is a
+     * read-only view of the builder's contents at the time of the merge,
+     * rather than a copy of their values. Elements are materialized
+     * individually when first read.
+     *
+     * @return new builder.
+     */
+    public static JAry<JsonArray> arrayView() {
+        return arrayView(JsonOp.defaultFactory());
+    }
+
+    /**
+     * Create a new mutable JSON array builder whose merged result is a
+     * read-only view of the builder's contents, as {@link #arrayView()} does,
+     * with elements materialized through the given factory.
+     *
+     * @param factory
+     *            factory used to create javax.json builders. Must not be null.
+     *
+     * @return new builder.
+     *
+     * @throws NullPointerException
+     *             if factory is null.
+     */
+    public static JAry<JsonArray> arrayView(final JsonBuilderFactory factory) {
+        Objects.requireNonNull(factory);
+        return new MutableJsonArrayBuilder<>(factory,
+                l -> JsonOp.viewArray(factory, l));
+    }
+
+    /**
+     * Create a new builder of accumulated numbers, such as metrics, that may
+     * be shared between threads.
+     *
+     * @return new builder.
+     */
+    public static JMetrics metrics() {
+        return metrics(JsonOp.defaultFactory());
+    }
+
+    /**
+     * Create a new builder of accumulated numbers that produces its object
+     * through the given factory.
+     *
+     * @param factory
+     *            factory used to create javax.json builders. Must not be null.
+     *
+     * @return new builder.
+     *
+     * @throws NullPointerException
+     *             if factory is null.
+     */
+    public static JMetrics metrics(final JsonBuilderFactory factory) {
+        return new MutableJsonMetricsBuilder(Objects.requireNonNull(factory));
     }
 
     /**
@@ -42,7 +190,138 @@ public interface MutableJsonBuilders {
      * @return new builder.
      */
     public static JObj<JsonObject> object() {
-        return new MutableJsonObjectBuilder<>(Function.identity());
+        return object(JsonOp.defaultFactory());
+    }
+
+    /**
+     * Create a new mutable JSON object builder that produces its object, and
+     * the contents of any nested builders, through the given factory.
+     *
+     * @param factory
+     *            factory used to create javax.json builders. Must not be null.
+     *
+     * @return new builder.
+     *
+     * @throws NullPointerException
+     *             if factory is null.
+     */
+    public static JObj<JsonObject> object(final JsonBuilderFactory factory) {
+        Objects.requireNonNull(factory);
+        return new MutableJsonObjectBuilder<>(factory,
+                m -> JsonOp.buildObject(factory, m));
+    }
+
+    /**
+     * Create a new mutable JSON object builder for an expected number of
+     * members. The builder is allocated for that many members up front; more
+     * or fewer may be set.
+     *
+     * @param expectedFields
+     *            expected number of members.
+     *
+     * @return new builder.
+     *
+     * @throws IllegalArgumentException
+     *             if expectedFields is negative.
+     */
+    public static JObj<JsonObject> object(final int expectedFields) {
+        return object(JsonOp.defaultFactory(), expectedFields);
+    }
+
+    /**
+     * Create a new mutable JSON object builder for an expected number of
+     * members that produces its object through the given factory.
+     *
+     * @param factory
+     *            factory used to create javax.json builders. Must not be null.
+     *
+     * @param expectedFields
+     *            expected number of members.
+     *
+     * @return new builder.
+     *
+     * @throws IllegalArgumentException
+     *             if expectedFields is negative.
+     *
+     * @throws NullPointerException
+     *             if factory is null.
+     */
+    public static JObj<JsonObject> object(final JsonBuilderFactory factory,
+            final int expectedFields) {
+        Objects.requireNonNull(factory);
+        return new MutableJsonObjectBuilder<>(factory,
+                m -> JsonOp.buildObject(factory, m), new SizedObjectState(
+                        expectedFields));
+    }
+
+    /**
+     * Create a new mutable JSON object builder whose merged result is a
+     * read-only view of the builder's contents at the time of the merge,
+     * rather than a copy of their values. Members are materialized
+     * individually when first read.
+     *
+     * @return new builder.
+     */
+    public static JObj<JsonObject> objectView() {
+        return objectView(JsonOp.defaultFactory());
+    }
+
+    /**
+     * Create a new mutable JSON object builder whose merged result is a
+     * read-only view of the builder's contents, as {@link #objectView()}
+     * does, with members materialized through the given factory.
+     *
+     * @param factory
+     *            factory used to create javax.json builders. Must not be null.
+     *
+     * @return new builder.
+     *
+     * @throws NullPointerException
+     *             if factory is null.
+     */
+    public static JObj<JsonObject> objectView(
+            final JsonBuilderFactory factory) {
+        Objects.requireNonNull(factory);
+        return new MutableJsonObjectBuilder<>(factory,
+                m -> JsonOp.viewObject(factory, m));
+    }
+
+    /**
+     * Create a pool of reusable builders.
+     *
+     * @param capacity
+     *            greatest number of idle builders of each kind to keep.
+     *
+     * @return new pool.
+     *
+     * @throws IllegalArgumentException
+     *             if capacity is not positive.
+     */
+    public static JsonBuilderPool pool(final int capacity) {
+        return pool(JsonOp.defaultFactory(), capacity);
+    }
+
+    /**
+     * Create a pool of reusable builders that produce their results through
+     * the given factory.
+     *
+     * @param factory
+     *            factory used to create javax.json builders. Must not be null.
+     *
+     * @param capacity
+     *            greatest number of idle builders of each kind to keep.
+     *
+     * @return new pool.
+     *
+     * @throws IllegalArgumentException
+     *             if capacity is not positive.
+     *
+     * @throws NullPointerException
+     *             if factory is null.
+     */
+    public static JsonBuilderPool pool(final JsonBuilderFactory factory,
+            final int capacity) {
+        return new JsonBuilderPool(Objects.requireNonNull(factory), capacity);
     }
 
 }
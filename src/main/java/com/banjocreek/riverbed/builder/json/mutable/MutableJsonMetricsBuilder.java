@@ -0,0 +1,331 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.mutable;
+
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.LongAccumulator;
+
+import javax.json.JsonBuilderFactory;
+import javax.json.JsonObject;
+import javax.json.stream.JsonGenerator;
+
+import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
+import com.banjocreek.riverbed.builder.json.kernel.Utf8Generator;
+
+final class MutableJsonMetricsBuilder implements JMetrics {
+
+    private static final class DoubleMetric extends Metric {
+
+        final DoubleAccumulator cell;
+
+        DoubleMetric(final Kind kind, final double first) {
+            super(kind);
+            switch (kind) {
+            case MAX:
+                this.cell = new DoubleAccumulator(Math::max,
+                        Double.NEGATIVE_INFINITY);
+                break;
+            case MIN:
+                this.cell = new DoubleAccumulator(Math::min,
+                        Double.POSITIVE_INFINITY);
+                break;
+            default:
+                this.cell = new DoubleAccumulator(Double::sum, 0);
+                break;
+            }
+            this.cell.accumulate(first);
+        }
+
+        /*
+         * a maximum or minimum is infinite only if nothing has been recorded
+         * since it was reset, as recorded values are finite.
+         */
+        private JsonOp op(final double value) {
+            return this.kind != Kind.SUM && Double.isInfinite(value) ? null
+                    : JsonOp.of(value);
+        }
+
+        @Override
+        void reset() {
+            this.cell.reset();
+        }
+
+        @Override
+        JsonOp value() {
+            return op(this.cell.get());
+        }
+
+        @Override
+        JsonOp valueThenReset() {
+            return op(this.cell.getThenReset());
+        }
+
+    }
+
+    private enum Kind {
+        MAX, MIN, SUM
+    }
+
+    private static final class LongMetric extends Metric {
+
+        final LongAccumulator cell;
+
+        private final long identity;
+
+        LongMetric(final Kind kind, final long first) {
+            super(kind);
+            switch (kind) {
+            case MAX:
+                this.identity = Long.MIN_VALUE;
+                this.cell = new LongAccumulator(Math::max, this.identity);
+                break;
+            case MIN:
+                this.identity = Long.MAX_VALUE;
+                this.cell = new LongAccumulator(Math::min, this.identity);
+                break;
+            default:
+                this.identity = 0;
+                this.cell = new LongAccumulator(Long::sum, this.identity);
+                break;
+            }
+            this.cell.accumulate(first);
+        }
+
+        /*
+         * a maximum or minimum holding its identity is taken to have had
+         * nothing recorded since it was reset; recording the identity itself
+         * is indistinguishable from that and leaves the member out.
+         */
+        private JsonOp op(final long value) {
+            return this.kind != Kind.SUM && value == this.identity ? null
+                    : JsonOp.of(value);
+        }
+
+        @Override
+        void reset() {
+            this.cell.reset();
+        }
+
+        @Override
+        JsonOp value() {
+            return op(this.cell.get());
+        }
+
+        @Override
+        JsonOp valueThenReset() {
+            return op(this.cell.getThenReset());
+        }
+
+    }
+
+    /*
+     * a member's cells. A metric is published only after its first value is
+     * recorded and is never removed, so a thread that has looked one up
+     * always records into the cells that are read. After a reset, a maximum
+     * or minimum has no value, and is left out, until one is recorded.
+     */
+    private static abstract class Metric {
+
+        final Kind kind;
+
+        Metric(final Kind kind) {
+            this.kind = kind;
+        }
+
+        abstract void reset();
+
+        /*
+         * current value, or null if there is none.
+         */
+        abstract JsonOp value();
+
+        /*
+         * current value, or null if there is none, and reset. Each recorded
+         * value is read by exactly one such call.
+         */
+        abstract JsonOp valueThenReset();
+
+    }
+
+    private final JsonBuilderFactory factory;
+
+    private final ConcurrentHashMap<String, Metric> metrics =
+            new ConcurrentHashMap<>();
+
+    MutableJsonMetricsBuilder(final JsonBuilderFactory factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public JMetrics add(final String name, final double value) {
+        record(name, Kind.SUM, JsonOp.checkFinite(value));
+        return this;
+    }
+
+    @Override
+    public JMetrics increment(final String name) {
+        record(name, Kind.SUM, 1L);
+        return this;
+    }
+
+    @Override
+    public JMetrics increment(final String name, final long delta) {
+        record(name, Kind.SUM, delta);
+        return this;
+    }
+
+    @Override
+    public JMetrics max(final String name, final double value) {
+        record(name, Kind.MAX, JsonOp.checkFinite(value));
+        return this;
+    }
+
+    @Override
+    public JMetrics max(final String name, final long value) {
+        record(name, Kind.MAX, value);
+        return this;
+    }
+
+    @Override
+    public JsonObject merge() {
+        return JsonOp.buildObject(this.factory, ops(false));
+    }
+
+    @Override
+    public JsonObject mergeThenReset() {
+        return JsonOp.buildObject(this.factory, ops(true));
+    }
+
+    @Override
+    public JMetrics min(final String name, final double value) {
+        record(name, Kind.MIN, JsonOp.checkFinite(value));
+        return this;
+    }
+
+    @Override
+    public JMetrics min(final String name, final long value) {
+        record(name, Kind.MIN, value);
+        return this;
+    }
+
+    @Override
+    public JMetrics reset() {
+        this.metrics.values().forEach(Metric::reset);
+        return this;
+    }
+
+    @Override
+    public byte[] toBytes() {
+        final Utf8Generator gen = Utf8Generator.create();
+        writeTo(gen);
+        return gen.toByteArray();
+    }
+
+    @Override
+    public void writeTo(final JsonGenerator gen) {
+        JsonOp.writeObject(gen, ops(false));
+    }
+
+    @Override
+    public void writeTo(final OutputStream out) {
+        final JsonGenerator gen = Utf8Generator.create(out);
+        writeTo(gen);
+        gen.flush();
+    }
+
+    @Override
+    public void writeTo(final Writer out) {
+        final JsonGenerator gen = Utf8Generator.create(out);
+        writeTo(gen);
+        gen.flush();
+    }
+
+    private <M extends Metric> M checked(final String name,
+            final Class<M> type, final Kind kind, final Metric metric) {
+        if (metric.kind != kind || !type.isInstance(metric)) {
+            throw new IllegalStateException("metric " + name
+                    + " was not recorded as " + kind);
+        }
+        return type.cast(metric);
+    }
+
+    /*
+     * the metric for a name if it exists with the given kind and type, or
+     * null if there was none and one has been created with the first value.
+     */
+    private <M extends Metric> M existing(final String name,
+            final Class<M> type, final Kind kind, final M created) {
+        final Metric rval = this.metrics.putIfAbsent(name, created);
+        if (rval == null) {
+            return null;
+        }
+        return checked(name, type, kind, rval);
+    }
+
+    /*
+     * members that have values, named in order, each read once and reset if
+     * asked.
+     */
+    private Map<String, JsonOp> ops(final boolean reset) {
+        final Map<String, JsonOp> rval = new TreeMap<>();
+        this.metrics.forEach((k, m) -> {
+            final JsonOp op = reset ? m.valueThenReset() : m.value();
+            if (op != null) {
+                rval.put(k, op);
+            }
+        });
+        return rval;
+    }
+
+    private void record(final String name, final Kind kind,
+            final double value) {
+        final Metric metric = this.metrics.get(Objects.requireNonNull(name));
+        if (metric != null) {
+            checked(name, DoubleMetric.class, kind, metric).cell
+                    .accumulate(value);
+        } else {
+            final DoubleMetric prior = existing(name, DoubleMetric.class,
+                    kind, new DoubleMetric(kind, value));
+            if (prior != null) {
+                prior.cell.accumulate(value);
+            }
+        }
+    }
+
+    private void record(final String name, final Kind kind,
+            final long value) {
+        final Metric metric = this.metrics.get(Objects.requireNonNull(name));
+        if (metric != null) {
+            checked(name, LongMetric.class, kind, metric).cell
+                    .accumulate(value);
+        } else {
+            final LongMetric prior = existing(name, LongMetric.class, kind,
+                    new LongMetric(kind, value));
+            if (prior != null) {
+                prior.cell.accumulate(value);
+            }
+        }
+    }
+
+}
@@ -17,61 +17,126 @@
  */
 package com.banjocreek.riverbed.builder.json.mutable;
 
+import java.io.OutputStream;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import javax.json.JsonArray;
+import javax.json.JsonBuilderFactory;
 import javax.json.JsonObject;
 import javax.json.JsonValue;
+import javax.json.stream.JsonGenerator;
 
 import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
-import com.banjocreek.riverbed.builder.map.AbstractMutableMapBuilder;
+import com.banjocreek.riverbed.builder.json.kernel.ParallelEncoder;
+import com.banjocreek.riverbed.builder.json.kernel.Utf8Generator;
 
-final class MutableJsonObjectBuilder<P> extends
-        AbstractMutableMapBuilder<String, JsonOp, P> implements JObj<P> {
+final class MutableJsonObjectBuilder<P> implements JObj<P> {
 
-    protected MutableJsonObjectBuilder(final Function<JsonObject, P> constructor) {
-        super(m -> constructor.apply(JsonOp.buildObject(m)));
+    private final Function<Map<String, JsonOp>, P> constructor;
+
+    private final JsonBuilderFactory factory;
+
+    private final ObjectState state;
+
+    protected MutableJsonObjectBuilder(final JsonBuilderFactory factory,
+            final Function<Map<String, JsonOp>, P> constructor) {
+        this(factory, constructor, new MapObjectState());
+    }
+
+    MutableJsonObjectBuilder(final JsonBuilderFactory factory,
+            final Function<Map<String, JsonOp>, P> constructor,
+            final ObjectState state) {
+        this.constructor = constructor;
+        this.factory = factory;
+        this.state = state;
     }
 
     @Override
     public JAry<JObj<P>> array(final String name) {
-        return new MutableJsonArrayBuilder<>(jary -> set(name, jary));
+        return new MutableJsonArrayBuilder<>(this.factory, l -> doValues(name,
+                JsonOp.ofArray(this.factory, l)), this.state.nestedArray(name));
+    }
+
+    @Override
+    public JAry<JObj<P>> array(final String name, final int sizeHint) {
+        return new MutableJsonArrayBuilder<>(this.factory, l -> doValues(name,
+                JsonOp.ofArray(this.factory, l)),
+                new SizedArrayState(sizeHint));
     }
 
     @Override
     public JObj<P> clear() {
-        doClear();
+        this.state.clear();
         return this;
     }
 
     @Override
     public JAry<JObj<P>> continueArray(final String name) {
-        return new MutableJsonArrayBuilder<>(jary -> update(name, jary));
+        return new MutableJsonArrayBuilder<>(this.factory, l -> doUpdate(
+                name, l));
     }
 
     @Override
     public JObj<JObj<P>> continueObject(final String name) {
-        return new MutableJsonObjectBuilder<>(jobj -> update(name, jobj));
+        return new MutableJsonObjectBuilder<>(this.factory, m -> doUpdate(
+                name, m));
+    }
+
+    @Override
+    public P merge() {
+        return this.constructor.apply(this.state.ops());
+    }
+
+    @Override
+    public CompletionStage<P> mergeAsync() {
+        final Map<String, JsonOp> ops = this.state.snapshot();
+        return JsonOp.whenResolved(ops.values()).thenApply(
+                v -> this.constructor.apply(ops));
+    }
+
+    @Override
+    public CompletionStage<P> mergeAsync(final Executor executor) {
+        final Map<String, JsonOp> ops = this.state.snapshot();
+        return JsonOp.whenResolved(ops.values()).thenApplyAsync(
+                v -> this.constructor.apply(ops), executor);
     }
 
     @Override
     public JObj<JObj<P>> object(final String name) {
 
-        return new MutableJsonObjectBuilder<>(jobj -> set(name, jobj));
+        return new MutableJsonObjectBuilder<>(this.factory, m -> doValues(
+                name, JsonOp.ofObject(this.factory, m)), this.state
+                .nestedObject(name));
+    }
+
+    @Override
+    public JObj<JObj<P>> object(final String name, final int sizeHint) {
+        return new MutableJsonObjectBuilder<>(this.factory, m -> doValues(
+                name, JsonOp.ofObject(this.factory, m)), new SizedObjectState(
+                sizeHint));
     }
 
     @Override
     public JObj<P> remove(final String name) {
-        doRemove(name);
+        this.state.remove(name);
         return this;
     }
 
     @Override
     public JObj<P> reset() {
-        doReset();
+        this.state.reset();
         return this;
     }
 
@@ -123,21 +188,42 @@ final class MutableJsonObjectBuilder<P> extends
         return this;
     }
 
+    @Override
+    public JObj<P> set(final String name,
+            final Supplier<? extends JsonValue> value) {
+        doValues(name, JsonOp.ofDeferred(value));
+        return this;
+    }
+
+    @Override
+    public JObj<P> setAsync(final String name,
+            final CompletionStage<? extends JsonValue> value) {
+        doValues(name, JsonOp.ofAsync(value));
+        return this;
+    }
+
     @Override
     public JObj<P> setNull(final String name) {
         doValues(name, JsonOp.ofNull());
         return this;
     }
 
+    @Override
+    public byte[] toBytes() {
+        final Utf8Generator gen = Utf8Generator.create();
+        writeTo(gen);
+        return gen.toByteArray();
+    }
+
     @Override
     public JObj<P> update(final String key, final JsonArray jobj) {
-        doUpdates(key, jop -> JsonOp.combine(jop, jobj));
+        this.state.update(key, jop -> JsonOp.combine(this.factory, jop, jobj));
         return this;
     }
 
     @Override
     public JObj<P> update(final String key, final JsonObject jobj) {
-        doUpdates(key, jop -> JsonOp.combine(jop, jobj));
+        this.state.update(key, jop -> JsonOp.combine(this.factory, jop, jobj));
         return this;
     }
 
@@ -145,7 +231,7 @@ final class MutableJsonObjectBuilder<P> extends
     public JObj<P> withDefault(final JsonObject jobj) {
         final HashMap<String, JsonOp> defaults = new HashMap<>();
         jobj.forEach((k, jv) -> defaults.put(k, JsonOp.of(jv)));
-        doDefaults(defaults);
+        this.state.defaults(defaults);
         return this;
     }
 
@@ -153,7 +239,73 @@ final class MutableJsonObjectBuilder<P> extends
     public JObj<P> withValue(final JsonObject jobj) {
         final HashMap<String, JsonOp> values = new HashMap<>();
         jobj.forEach((k, jv) -> values.put(k, JsonOp.of(jv)));
-        doValues(values);
+        this.state.values(values);
+        return this;
+    }
+
+    @Override
+    public void writeTo(final ByteBuffer out) {
+        final JsonGenerator gen = Utf8Generator.create(out);
+        writeTo(gen);
+        gen.flush();
+    }
+
+    @Override
+    public void writeTo(final JsonGenerator gen) {
+        JsonOp.writeObject(gen, this.state.ops());
+    }
+
+    @Override
+    public void writeTo(final OutputStream out) {
+        final JsonGenerator gen = Utf8Generator.create(out);
+        writeTo(gen);
+        gen.flush();
+    }
+
+    @Override
+    public void writeTo(final String name, final JsonGenerator gen) {
+        JsonOp.ofObject(this.factory, this.state.ops()).apply(name, gen);
+    }
+
+    @Override
+    public void writeTo(final WritableByteChannel out) {
+        final JsonGenerator gen = Utf8Generator.create(out);
+        writeTo(gen);
+        gen.flush();
+    }
+
+    @Override
+    public void writeTo(final WritableByteChannel out,
+            final ForkJoinPool pool) {
+        ParallelEncoder.writeObject(this.state.ops(), out, pool);
+    }
+
+    @Override
+    public void writeTo(final Writer out) {
+        final JsonGenerator gen = Utf8Generator.create(out);
+        writeTo(gen);
+        gen.flush();
+    }
+
+    ObjectState state() {
+        return this.state;
+    }
+
+    private JObj<P> doUpdate(final String name, final List<JsonOp> values) {
+        this.state.update(name,
+                jop -> JsonOp.combine(this.factory, jop, values));
+        return this;
+    }
+
+    private JObj<P> doUpdate(final String name,
+            final Map<String, JsonOp> values) {
+        this.state.update(name,
+                jop -> JsonOp.combine(this.factory, jop, values));
+        return this;
+    }
+
+    private JObj<P> doValues(final String name, final JsonOp value) {
+        this.state.values(name, value);
         return this;
     }
 
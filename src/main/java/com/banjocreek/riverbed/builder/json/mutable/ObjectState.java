@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.mutable;
+
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
+
+/**
+ * Operations recorded by a mutable object builder. The operations are
+ * available at any point, independently of how the builder delivers its
+ * result.
+ */
+interface ObjectState {
+
+    void clear();
+
+    void defaults(Map<String, JsonOp> defaults);
+
+    /**
+     * State for a new array builder nested at a key.
+     */
+    default ArrayState nestedArray(final String name) {
+        return new ListArrayState();
+    }
+
+    /**
+     * State for a new object builder nested at a key.
+     */
+    default ObjectState nestedObject(final String name) {
+        return new MapObjectState();
+    }
+
+    /**
+     * Current operations. Unless the implementation says otherwise, later
+     * changes to the state do not reach the returned map.
+     */
+    Map<String, JsonOp> ops();
+
+    void remove(String name);
+
+    void reset();
+
+    /**
+     * Current operations, which later changes to the state never reach,
+     * whatever {@link #ops()} does.
+     */
+    default Map<String, JsonOp> snapshot() {
+        return ops();
+    }
+
+    /**
+     * Replace the value at a key with a function of the current value. The
+     * function may be called more than once and must not have side effects.
+     */
+    void update(String name, UnaryOperator<JsonOp> update);
+
+    void values(Map<String, JsonOp> values);
+
+    void values(String name, JsonOp value);
+
+}
@@ -0,0 +1,195 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.mutable;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
+
+/**
+ * Operations by name, in the order the names were first set, held in arrays
+ * that are kept when the table is cleared. Once a table has grown to fit a
+ * document, filling it again with a document of the same size allocates
+ * nothing.
+ */
+final class OpTable {
+
+    private static final int REMOVED = -1;
+
+    /*
+     * index size for a number of entries, at most three-eighths full.
+     */
+    private static int slots(final int entries) {
+        int rval = 8;
+        while (rval * 3 < entries * 4) {
+            rval <<= 1;
+        }
+        return rval << 1;
+    }
+
+    private static int spread(final int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /*
+     * number of entries appended, including removed entries.
+     */
+    private int count;
+
+    /*
+     * hash index of entry position plus one; zero when empty.
+     */
+    private int[] index;
+
+    private String[] keys;
+
+    private int live;
+
+    private JsonOp[] ops;
+
+    /*
+     * index slots in use, including removed entries.
+     */
+    private int used;
+
+    OpTable(final int capacity) {
+        final int entries = Math.max(4, capacity);
+        this.keys = new String[entries];
+        this.ops = new JsonOp[entries];
+        this.index = new int[slots(entries)];
+    }
+
+    void clear() {
+        Arrays.fill(this.keys, 0, this.count, null);
+        Arrays.fill(this.ops, 0, this.count, null);
+        Arrays.fill(this.index, 0);
+        this.count = 0;
+        this.live = 0;
+        this.used = 0;
+    }
+
+    void forEach(final BiConsumer<? super String, ? super JsonOp> action) {
+        for (int i = 0; i < this.count; i++) {
+            if (this.keys[i] != null) {
+                action.accept(this.keys[i], this.ops[i]);
+            }
+        }
+    }
+
+    JsonOp get(final Object key) {
+        final int slot = find(key);
+        return slot < 0 ? null : this.ops[this.index[slot] - 1];
+    }
+
+    void put(final String key, final JsonOp op) {
+        final int slot = find(key);
+        if (slot >= 0) {
+            this.ops[this.index[slot] - 1] = op;
+            return;
+        }
+        if (this.count == this.keys.length
+                || (this.used + 1) * 4 > this.index.length * 3) {
+            rebuild(this.live + 1);
+        }
+        this.keys[this.count] = key;
+        this.ops[this.count] = op;
+        this.count++;
+        this.live++;
+        this.used++;
+        this.index[empty(key.hashCode())] = this.count;
+    }
+
+    void remove(final String key) {
+        final int slot = find(key);
+        if (slot >= 0) {
+            final int entry = this.index[slot] - 1;
+            this.keys[entry] = null;
+            this.ops[entry] = null;
+            this.index[slot] = REMOVED;
+            this.live--;
+        }
+    }
+
+    int size() {
+        return this.live;
+    }
+
+    private int empty(final int hash) {
+        final int mask = this.index.length - 1;
+        int slot = spread(hash) & mask;
+        while (this.index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /*
+     * index slot holding a key, or -1.
+     */
+    private int find(final Object key) {
+        if (key == null) {
+            return -1;
+        }
+        final int mask = this.index.length - 1;
+        int slot = spread(key.hashCode()) & mask;
+        int entry;
+        while ((entry = this.index[slot]) != 0) {
+            if (entry != REMOVED && key.equals(this.keys[entry - 1])) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /*
+     * drop removed entries and make room for at least the given number,
+     * never shrinking.
+     */
+    private void rebuild(final int needed) {
+        int n = 0;
+        for (int i = 0; i < this.count; i++) {
+            if (this.keys[i] != null) {
+                this.keys[n] = this.keys[i];
+                this.ops[n] = this.ops[i];
+                n++;
+            }
+        }
+        Arrays.fill(this.keys, n, this.count, null);
+        Arrays.fill(this.ops, n, this.count, null);
+        if (needed > this.keys.length) {
+            final int capacity = Math.max(needed, this.keys.length * 2);
+            this.keys = Arrays.copyOf(this.keys, capacity);
+            this.ops = Arrays.copyOf(this.ops, capacity);
+        }
+        final int slots = Math.max(this.index.length, slots(this.keys.length));
+        if (slots == this.index.length) {
+            Arrays.fill(this.index, 0);
+        } else {
+            this.index = new int[slots];
+        }
+        this.count = n;
+        this.live = n;
+        this.used = n;
+        for (int i = 0; i < n; i++) {
+            this.index[empty(this.keys[i].hashCode())] = i + 1;
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.mutable;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
+
+/**
+ * <p>
+ * Array state for a pooled builder, kept in an array that survives clearing
+ * so that a reused builder does not grow it again.
+ * </p>
+ *
+ * <p>
+ * As with {@link RetainedObjectState}, the operations are a live view valid
+ * only until the state next changes, so this state is used only by outermost
+ * builders.
+ * </p>
+ */
+final class RetainedArrayState implements ArrayState {
+
+    private final class Ops extends AbstractList<JsonOp> implements
+            RandomAccess {
+
+        @Override
+        public void forEach(final Consumer<? super JsonOp> action) {
+            for (int i = 0; i < RetainedArrayState.this.size; i++) {
+                action.accept(RetainedArrayState.this.elements[i]);
+            }
+        }
+
+        @Override
+        public JsonOp get(final int index) {
+            if (index >= RetainedArrayState.this.size) {
+                throw new IndexOutOfBoundsException(Integer.toString(index));
+            }
+            return RetainedArrayState.this.elements[index];
+        }
+
+        @Override
+        public int size() {
+            return RetainedArrayState.this.size;
+        }
+
+    }
+
+    private JsonOp[] elements;
+
+    /*
+     * set while the owning builder waits in a pool.
+     */
+    final AtomicBoolean idle = new AtomicBoolean();
+
+    private final Ops ops = new Ops();
+
+    final Object owner;
+
+    private int size;
+
+    RetainedArrayState(final Object owner, final int capacity) {
+        this.owner = owner;
+        this.elements = new JsonOp[Math.max(4, capacity)];
+    }
+
+    @Override
+    public void add(final JsonOp value) {
+        if (this.size == this.elements.length) {
+            this.elements = Arrays.copyOf(this.elements, this.size * 2);
+        }
+        this.elements[this.size++] = value;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(this.elements, 0, this.size, null);
+        this.size = 0;
+    }
+
+    @Override
+    public List<JsonOp> ops() {
+        return this.ops;
+    }
+
+}
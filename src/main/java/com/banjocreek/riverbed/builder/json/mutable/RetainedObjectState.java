@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.mutable;
+
+import java.util.AbstractMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+
+import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
+
+/**
+ * <p>
+ * Object state for a pooled builder, kept in tables whose arrays survive
+ * clearing so that a reused builder does not grow them again.
+ * </p>
+ *
+ * <p>
+ * Unlike other states, the operations are a live view rather than a copy;
+ * they are valid only until the state next changes. This state is therefore
+ * used only by outermost builders, whose results are built or written from
+ * the operations at once; a result delivered later is built from a
+ * {@link #snapshot()}.
+ * </p>
+ */
+final class RetainedObjectState implements ObjectState {
+
+    /*
+     * values laid over defaults.
+     */
+    private final class Ops extends AbstractMap<String, JsonOp> {
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Set<Map.Entry<String, JsonOp>> entrySet() {
+            final Map<String, JsonOp> rval = new LinkedHashMap<>();
+            forEach(rval::put);
+            return rval.entrySet();
+        }
+
+        @Override
+        public void forEach(
+                final BiConsumer<? super String, ? super JsonOp> action) {
+            final OpTable values = RetainedObjectState.this.values;
+            values.forEach(action);
+            if (RetainedObjectState.this.defaults.size() > 0) {
+                RetainedObjectState.this.defaults.forEach((k, op) -> {
+                    if (values.get(k) == null) {
+                        action.accept(k, op);
+                    }
+                });
+            }
+        }
+
+        @Override
+        public JsonOp get(final Object key) {
+            final JsonOp rval = RetainedObjectState.this.values.get(key);
+            return rval == null ? RetainedObjectState.this.defaults.get(key)
+                    : rval;
+        }
+
+        @Override
+        public int size() {
+            if (RetainedObjectState.this.defaults.size() == 0) {
+                return RetainedObjectState.this.values.size();
+            }
+            return super.size();
+        }
+
+    }
+
+    private final OpTable defaults = new OpTable(0);
+
+    /*
+     * set while the owning builder waits in a pool.
+     */
+    final AtomicBoolean idle = new AtomicBoolean();
+
+    private final Ops ops = new Ops();
+
+    final Object owner;
+
+    private final OpTable values;
+
+    RetainedObjectState(final Object owner, final int capacity) {
+        this.owner = owner;
+        this.values = new OpTable(capacity);
+    }
+
+    @Override
+    public void clear() {
+        this.defaults.clear();
+        this.values.clear();
+    }
+
+    @Override
+    public void defaults(final Map<String, JsonOp> defaults) {
+        defaults.forEach(this.defaults::put);
+    }
+
+    @Override
+    public Map<String, JsonOp> ops() {
+        return this.ops;
+    }
+
+    @Override
+    public void remove(final String name) {
+        this.values.remove(name);
+    }
+
+    @Override
+    public void reset() {
+        this.values.clear();
+    }
+
+    @Override
+    public Map<String, JsonOp> snapshot() {
+        final Map<String, JsonOp> rval = new LinkedHashMap<>();
+        this.ops.forEach(rval::put);
+        return rval;
+    }
+
+    @Override
+    public void update(final String name, final UnaryOperator<JsonOp> update) {
+        this.values.put(name, update.apply(this.values.get(name)));
+    }
+
+    @Override
+    public void values(final Map<String, JsonOp> values) {
+        values.forEach(this.values::put);
+    }
+
+    @Override
+    public void values(final String name, final JsonOp value) {
+        this.values.put(name, value);
+    }
+
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.mutable;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics gathered at one site of an {@link AdaptiveJsonBuilders}. They are
+ * updated by any number of threads without locking, and an observation of a
+ * document whose shape has already been learned allocates nothing.
+ *
+ * <p>
+ * The learned size is the largest of the most recent observations, so an
+ * outlier stops affecting new builders once enough ordinary documents have
+ * followed it.
+ * </p>
+ */
+final class ShapeStats {
+
+    /*
+     * most storage allocated up front for a new builder, however large the
+     * recent documents; larger builders grow as usual.
+     */
+    private static final int MAX_EXPECTED = 4096;
+
+    /*
+     * size assumed before anything has been observed.
+     */
+    private static final int UNKNOWN_SIZE = 10;
+
+    /*
+     * number of recent observations kept, a power of two.
+     */
+    private static final int WINDOW = 16;
+
+    /*
+     * marks a key set that has varied, compared by identity.
+     */
+    private static final Set<String> UNSTABLE = Collections
+            .unmodifiableSet(new HashSet<>());
+
+    /*
+     * sites of builders nested here, by member name.
+     */
+    final ConcurrentHashMap<String, ShapeStats> children =
+            new ConcurrentHashMap<>();
+
+    /*
+     * position in the window of the next observation.
+     */
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    /*
+     * site of builders nested here as elements.
+     */
+    final AtomicReference<ShapeStats> element = new AtomicReference<>();
+
+    private final AtomicReference<Set<String>> keys = new AtomicReference<>();
+
+    private final LongAdder observations = new LongAdder();
+
+    final String path;
+
+    /*
+     * sizes of the most recent observations.
+     */
+    private final AtomicIntegerArray recent = new AtomicIntegerArray(WINDOW);
+
+    ShapeStats(final String path) {
+        this.path = path;
+    }
+
+    /*
+     * number of members or elements for which a new builder is allocated.
+     */
+    int expected() {
+        return this.observations.sum() == 0 ? UNKNOWN_SIZE : Math.min(
+                size(), MAX_EXPECTED);
+    }
+
+    void observe(final int count) {
+        this.recent.set(this.cursor.getAndIncrement() & WINDOW - 1, count);
+        this.observations.increment();
+    }
+
+    void observe(final Map<String, ?> members) {
+        Set<String> known = this.keys.get();
+        if (known == null) {
+            this.keys.compareAndSet(null, Collections
+                    .unmodifiableSet(new HashSet<>(members.keySet())));
+            known = this.keys.get();
+        }
+        if (known != UNSTABLE && !known.equals(members.keySet())) {
+            this.keys.set(UNSTABLE);
+        }
+        observe(members.size());
+    }
+
+    JsonShape snapshot() {
+        final Set<String> known = this.keys.get();
+        return new JsonShape(this.observations.sum(), size(), known,
+                known != null && known != UNSTABLE);
+    }
+
+    /*
+     * largest of the recent observations.
+     */
+    private int size() {
+        int rval = 0;
+        for (int i = 0; i < WINDOW; i++) {
+            rval = Math.max(rval, this.recent.get(i));
+        }
+        return rval;
+    }
+
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.mutable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
+
+/**
+ * Array state for a builder used by one thread at a time whose final size is
+ * expected in advance. The list of operations is allocated at that size, so
+ * it does not grow while the builder is filled.
+ */
+final class SizedArrayState implements ArrayState {
+
+    private final ArrayList<JsonOp> elements;
+
+    SizedArrayState(final int expected) {
+        if (expected < 0) {
+            throw new IllegalArgumentException(
+                    "size hint must not be negative: " + expected);
+        }
+        this.elements = new ArrayList<>(expected);
+    }
+
+    @Override
+    public void add(final JsonOp value) {
+        this.elements.add(value);
+    }
+
+    @Override
+    public void clear() {
+        this.elements.clear();
+    }
+
+    @Override
+    public List<JsonOp> ops() {
+        /*
+         * exact-size copy, for the same reason as ListArrayState.
+         */
+        return new ArrayList<>(this.elements);
+    }
+
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.banjocreek.riverbed.builder.json.mutable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
+
+/**
+ * Object state for a builder used by one thread at a time whose number of
+ * members is expected in advance. The map of values is allocated at that size,
+ * and each copy of the operations at the size it needs, so neither is
+ * rehashed.
+ */
+final class SizedObjectState implements ObjectState {
+
+    /*
+     * table size at which a hash map holds the given number of entries
+     * without resizing.
+     */
+    private static int tableSize(final int entries) {
+        return (int) (entries / 0.75f) + 1;
+    }
+
+    private final Map<String, JsonOp> defaults = new HashMap<>();
+
+    private final Map<String, JsonOp> values;
+
+    SizedObjectState(final int expected) {
+        if (expected < 0) {
+            throw new IllegalArgumentException(
+                    "size hint must not be negative: " + expected);
+        }
+        this.values = new HashMap<>(tableSize(expected));
+    }
+
+    @Override
+    public void clear() {
+        this.defaults.clear();
+        this.values.clear();
+    }
+
+    @Override
+    public void defaults(final Map<String, JsonOp> defaults) {
+        this.defaults.putAll(defaults);
+    }
+
+    @Override
+    public Map<String, JsonOp> ops() {
+        /*
+         * copied, for the same reason as MapObjectState.
+         */
+        final Map<String, JsonOp> rval = new HashMap<>(tableSize(
+                this.defaults.size() + this.values.size()));
+        rval.putAll(this.defaults);
+        rval.putAll(this.values);
+        return rval;
+    }
+
+    @Override
+    public void remove(final String name) {
+        this.values.remove(name);
+    }
+
+    @Override
+    public void reset() {
+        this.values.clear();
+    }
+
+    @Override
+    public void update(final String name, final UnaryOperator<JsonOp> update) {
+        this.values.put(name, update.apply(this.values.get(name)));
+    }
+
+    @Override
+    public void values(final Map<String, JsonOp> values) {
+        this.values.putAll(values);
+    }
+
+    @Override
+    public void values(final String name, final JsonOp value) {
+        this.values.put(name, value);
+    }
+
+}
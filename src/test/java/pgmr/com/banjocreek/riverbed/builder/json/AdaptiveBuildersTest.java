@@ -0,0 +1,170 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pgmr.com.banjocreek.riverbed.builder.json;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.banjocreek.riverbed.builder.json.mutable.AdaptiveJsonBuilders;
+import com.banjocreek.riverbed.builder.json.mutable.JAry;
+import com.banjocreek.riverbed.builder.json.mutable.JObj;
+import com.banjocreek.riverbed.builder.json.mutable.JsonShape;
+import com.banjocreek.riverbed.builder.json.mutable.MutableJsonBuilders;
+
+public class AdaptiveBuildersTest {
+
+    private AdaptiveJsonBuilders builders;
+
+    @Before
+    public void setup() {
+        this.builders = MutableJsonBuilders.adaptive();
+    }
+
+    @Test
+    public void testMergeAsyncObservedOnce() throws Exception {
+
+        /*
+         * given an adaptive object builder with an asynchronous value
+         */
+        // SETUP
+        final CompletableFuture<JsonValue> pending = new CompletableFuture<>();
+        final JObj<JsonObject> b = this.builders.object("reply")
+                .set("a", 1).setAsync("b", pending);
+
+        /*
+         * when it is merged asynchronously and the value completes
+         */
+        final CompletionStage<JsonObject> merged = b.mergeAsync();
+        pending.complete(JsonValue.TRUE);
+
+        /*
+         * the document is observed once
+         */
+        assertEquals(Json.createObjectBuilder().add("a", 1).add("b", true)
+                .build(), merged.toCompletableFuture().get());
+        assertEquals(1, this.builders.shapes().get("reply").observations());
+    }
+
+    @Test
+    public void testNestedShapes() {
+
+        /*
+         * given arrays of objects built repeatedly at one site
+         */
+        // SETUP
+        JsonArray last = null;
+        for (int d = 0; d < 3; d++) {
+
+            /*
+             * when each is filled and merged
+             */
+            final JAry<JsonArray> users = this.builders.array("users");
+            for (int i = 0; i < 5; i++) {
+                users.object().set("id", i).set("name", "n" + i)
+                        .array("roles").add("r").merge().merge();
+            }
+            last = users.merge();
+        }
+
+        /*
+         * the result is unaffected and a shape is learned for every level
+         */
+        assertEquals(5, last.size());
+        assertEquals(Json.createObjectBuilder().add("id", 4).add("name", "n4")
+                .add("roles", Json.createArrayBuilder().add("r")).build(),
+                last.get(4));
+        final Map<String, JsonShape> shapes = this.builders.shapes();
+        assertEquals(new HashSet<>(Arrays.asList("users", "users[]",
+                "users[].roles")), shapes.keySet());
+        assertEquals(3, shapes.get("users").observations());
+        assertEquals(5, shapes.get("users").size());
+        assertEquals(15, shapes.get("users[]").observations());
+        assertEquals(3, shapes.get("users[]").size());
+        assertEquals(new HashSet<>(Arrays.asList("id", "name", "roles")),
+                shapes.get("users[]").keys());
+        assertEquals(1, shapes.get("users[].roles").size());
+    }
+
+    @Test
+    public void testOutlierForgotten() {
+
+        /*
+         * given one very large array built at a site
+         */
+        // SETUP
+        final JAry<JsonArray> outlier = this.builders.array("export");
+        for (int i = 0; i < 100000; i++) {
+            outlier.add(i);
+        }
+        outlier.merge();
+        assertEquals(100000, this.builders.shapes().get("export").size());
+
+        /*
+         * when many ordinary arrays are built there afterwards
+         */
+        for (int i = 0; i < 100; i++) {
+            this.builders.array("export").add(1).add(2).add(3).merge();
+        }
+
+        /*
+         * the size learned is that of the ordinary arrays
+         */
+        assertEquals(3, this.builders.shapes().get("export").size());
+    }
+
+    @Test
+    public void testUnstableKeys() {
+
+        /*
+         * given objects with differing members built at one site
+         */
+        // SETUP
+        this.builders.object("event").set("a", 1).set("b", 2).merge();
+
+        /*
+         * when another with different members is merged
+         */
+        final JsonObject actual = this.builders.object("event").set("a", 1)
+                .set("c", 3).set("d", 4).merge();
+
+        /*
+         * the key set is not stable and the largest size is learned
+         */
+        assertEquals(Json.createObjectBuilder().add("a", 1).add("c", 3)
+                .add("d", 4).build(), actual);
+        final JsonShape shape = this.builders.shapes().get("event");
+        assertFalse(shape.stable());
+        assertTrue(shape.keys().isEmpty());
+        assertEquals(3, shape.size());
+        assertEquals(2, shape.observations());
+    }
+
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pgmr.com.banjocreek.riverbed.builder.json;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+
+import org.junit.Test;
+
+import com.banjocreek.riverbed.builder.json.immutable.ImmutableJsonBuilders;
+import com.banjocreek.riverbed.builder.json.mutable.JObj;
+import com.banjocreek.riverbed.builder.json.mutable.MutableJsonBuilders;
+
+public class BuilderAsyncTest {
+
+    private static JsonValue number(final int value) {
+        return Json.createArrayBuilder().add(value).build().get(0);
+    }
+
+    @Test
+    public void testBuildAsyncNested() throws Exception {
+
+        /*
+         * given incomplete values at the root and in a nested object, and one
+         * that is replaced
+         */
+        // SETUP
+        final CompletableFuture<JsonValue> a = new CompletableFuture<>();
+        final CompletableFuture<JsonValue> b = new CompletableFuture<>();
+        final CompletableFuture<JsonValue> replaced = new CompletableFuture<>();
+
+        /*
+         * when the object is built asynchronously
+         */
+        final CompletionStage<JsonObject> stage = ImmutableJsonBuilders
+                .object().setAsync("a", a).setAsync("c", replaced).set("c", 3)
+                .object("n").setAsync("b", b).done().buildAsync();
+
+        /*
+         * the object is built once the values in use have completed
+         */
+        final CompletableFuture<JsonObject> result = stage
+                .toCompletableFuture();
+        b.complete(number(2));
+        assertFalse(result.isDone());
+        a.complete(number(1));
+        assertTrue(result.isDone());
+        final JsonObject expected = Json.createObjectBuilder().add("a", 1)
+                .add("c", 3).add("n", Json.createObjectBuilder().add("b", 2))
+                .build();
+        assertEquals(expected, result.get());
+    }
+
+    @Test
+    public void testContinueAsync() throws Exception {
+
+        /*
+         * given incomplete values continued in a mutable and an immutable
+         * builder
+         */
+        // SETUP
+        final CompletableFuture<JsonValue> o = new CompletableFuture<>();
+        final CompletableFuture<JsonValue> a = new CompletableFuture<>();
+        final JObj<JsonObject> mutable = MutableJsonBuilders.object();
+        mutable.setAsync("o", o).setAsync("a", a).continueObject("o")
+                .set("y", 2).merge().continueArray("a").add(3).merge();
+
+        /*
+         * when both are built asynchronously and the values complete
+         */
+        final CompletableFuture<JsonObject> merged = mutable.mergeAsync()
+                .toCompletableFuture();
+        final CompletableFuture<JsonObject> built = ImmutableJsonBuilders
+                .object().setAsync("o", o).setAsync("a", a)
+                .continueObject("o").set("y", 2).done().continueArray("a")
+                .add(3).done().buildAsync().toCompletableFuture();
+        o.complete(Json.createObjectBuilder().add("x", 1).build());
+        assertFalse(merged.isDone());
+        a.complete(Json.createArrayBuilder().add(1).add(2).build());
+
+        /*
+         * the continued values are combined with the completed ones
+         */
+        final JsonObject expected = Json.createObjectBuilder()
+                .add("o", Json.createObjectBuilder().add("x", 1).add("y", 2))
+                .add("a", Json.createArrayBuilder().add(1).add(2).add(3))
+                .build();
+        assertEquals(expected, merged.get());
+        assertEquals(expected, built.get());
+        assertEquals(expected, mutable.merge());
+    }
+
+    @Test
+    public void testMergeAsyncFailure() {
+
+        /*
+         * given a builder with a value that fails
+         */
+        // SETUP
+        final CompletableFuture<JsonValue> a = new CompletableFuture<>();
+        final JObj<JsonObject> builder = MutableJsonBuilders.object();
+        builder.setAsync("a", a);
+
+        /*
+         * when the builder is merged asynchronously and the value fails
+         */
+        final CompletableFuture<JsonObject> result = builder.mergeAsync()
+                .toCompletableFuture();
+        a.completeExceptionally(new IllegalStateException());
+
+        /*
+         * the merge fails
+         */
+        assertTrue(result.isCompletedExceptionally());
+    }
+
+    @Test
+    public void testMergeAsyncOnExecutor() throws Exception {
+
+        /*
+         * given values completed by other threads
+         */
+        // SETUP
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final JObj<JsonObject> builder = MutableJsonBuilders.object();
+            builder.setAsync("a",
+                    CompletableFuture.supplyAsync(() -> number(1), executor))
+                    .object("n")
+                    .setAsync("b", CompletableFuture.supplyAsync(
+                            () -> number(2), executor)).merge();
+
+            /*
+             * when the builder is merged asynchronously on an executor
+             */
+            final JsonObject actual = builder.mergeAsync(executor)
+                    .toCompletableFuture().get(10, TimeUnit.SECONDS);
+
+            /*
+             * the result holds the resolved values
+             */
+            final JsonObject expected = Json.createObjectBuilder()
+                    .add("a", 1)
+                    .add("n", Json.createObjectBuilder().add("b", 2)).build();
+            assertEquals(expected, actual);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
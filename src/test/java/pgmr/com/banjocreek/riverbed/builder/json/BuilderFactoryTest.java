@@ -0,0 +1,249 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pgmr.com.banjocreek.riverbed.builder.json;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.Map;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonBuilderFactory;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.banjocreek.riverbed.builder.json.immutable.ImmutableJsonBuilders;
+import com.banjocreek.riverbed.builder.json.immutable.JObj;
+import com.banjocreek.riverbed.builder.json.mutable.MutableJsonBuilders;
+
+public class BuilderFactoryTest {
+
+    private static final class CountingFactory implements JsonBuilderFactory {
+
+        private final JsonBuilderFactory delegate = Json
+                .createBuilderFactory(Collections.emptyMap());
+
+        int arrays;
+
+        int objects;
+
+        @Override
+        public JsonArrayBuilder createArrayBuilder() {
+            this.arrays++;
+            return this.delegate.createArrayBuilder();
+        }
+
+        @Override
+        public JsonObjectBuilder createObjectBuilder() {
+            this.objects++;
+            return this.delegate.createObjectBuilder();
+        }
+
+        @Override
+        public Map<String, ?> getConfigInUse() {
+            return this.delegate.getConfigInUse();
+        }
+
+    }
+
+    private CountingFactory factory;
+
+    @Before
+    public void setup() {
+        this.factory = new CountingFactory();
+    }
+
+    @Test
+    public void testImmutableBuildReusesResults() {
+
+        /*
+         * given an immutable builder with a nested object that has been built
+         */
+        // SETUP
+        final JObj<JsonObject, JsonObject> base = ImmutableJsonBuilders
+                .object(this.factory).object("a").set("b", "B").done();
+        final JsonObject first = base.build();
+
+        /*
+         * when it is built again and a derived builder is built
+         */
+        final JsonObject second = base.build();
+        final JsonObject derived = base.set("c", 1).build();
+
+        /*
+         * the same instances are returned and only the derived root is new
+         */
+        assertSame(first, second);
+        assertSame(first.get("a"), derived.get("a"));
+        assertEquals(1, derived.getInt("c"));
+        assertEquals(3, this.factory.objects);
+
+    }
+
+    @Test
+    public void testImmutableNestedUsesFactory() {
+
+        /*
+         * given an immutable builder created with a factory
+         */
+        // SETUP
+
+        /*
+         * when nested values are built
+         */
+        final JsonObject actual = ImmutableJsonBuilders.object(this.factory)
+                .object("a").set("b", "B").done().array("c").add(1).done()
+                .build();
+
+        /*
+         * the nested and root instances come from the factory
+         */
+        final JsonObject expected = Json
+                .createObjectBuilder()
+                .add("a", Json.createObjectBuilder().add("b", "B"))
+                .add("c", Json.createArrayBuilder().add(1)).build();
+        assertEquals(expected, actual);
+        assertEquals(2, this.factory.objects);
+        assertEquals(1, this.factory.arrays);
+
+    }
+
+    @Test
+    public void testMutableNestedUsesFactory() {
+
+        /*
+         * given a mutable builder created with a factory
+         */
+        // SETUP
+
+        /*
+         * when nested values are built
+         */
+        final JsonArray actual = MutableJsonBuilders.array(this.factory)
+                .object().set("b", "B").merge().array().add(1).merge()
+                .merge();
+
+        /*
+         * the nested and root instances come from the factory
+         */
+        final JsonArray expected = Json.createArrayBuilder()
+                .add(Json.createObjectBuilder().add("b", "B"))
+                .add(Json.createArrayBuilder().add(1)).build();
+        assertEquals(expected, actual);
+        assertEquals(1, this.factory.objects);
+        assertEquals(2, this.factory.arrays);
+
+    }
+
+    @Test
+    public void testRepeatedAppendsMaterializeOnce() {
+
+        /*
+         * given an immutable builder created with a factory and an array at a
+         * key
+         */
+        // SETUP
+        JObj<JsonObject, JsonObject> b = ImmutableJsonBuilders
+                .object(this.factory).array("k").add(-1).done();
+
+        /*
+         * when the array is extended many times
+         */
+        for (int i = 0; i < 10000; i++) {
+            if (i % 2 == 0) {
+                b = b.update("k", Json.createArrayBuilder().add(i).build());
+            } else {
+                b = b.continueArray("k").add(i).done();
+            }
+        }
+        final JsonObject actual = b.build();
+
+        /*
+         * all values are present in order and the array is materialized once
+         */
+        final JsonArray k = actual.getJsonArray("k");
+        assertEquals(10001, k.size());
+        for (int i = 0; i < 10001; i++) {
+            assertEquals(i - 1, k.getInt(i));
+        }
+        assertEquals(1, this.factory.arrays);
+
+    }
+
+    @Test
+    public void testUpdateUsesFactory() {
+
+        /*
+         * given a mutable builder created with a factory and an array at a
+         * key
+         */
+        // SETUP
+        final JsonArray v1 = Json.createArrayBuilder().add("A").build();
+        final JsonArray v2 = Json.createArrayBuilder().add("B").build();
+
+        /*
+         * when the array is updated
+         */
+        final JsonObject actual = MutableJsonBuilders.object(this.factory)
+                .set("k", v1).update("k", v2).merge();
+
+        /*
+         * the combined array comes from the factory
+         */
+        final JsonObject expected = Json.createObjectBuilder()
+                .add("k", Json.createArrayBuilder().add("A").add("B"))
+                .build();
+        assertEquals(expected, actual);
+        assertEquals(1, this.factory.arrays);
+
+    }
+
+    @Test
+    public void testViewsUseFactory() {
+
+        /*
+         * given mutable and immutable view builders created with a factory
+         */
+        // SETUP
+        final JsonObject mutable = MutableJsonBuilders
+                .objectView(this.factory).set("n", 1).merge();
+        final JsonArray immutable = ImmutableJsonBuilders
+                .arrayView(this.factory).add(2).build();
+
+        /*
+         * when their values are read
+         */
+        final int n = mutable.getInt("n");
+        final int e = immutable.getInt(0);
+
+        /*
+         * each value is materialized through the factory
+         */
+        assertEquals(1, n);
+        assertEquals(2, e);
+        assertEquals(2, this.factory.arrays);
+        assertEquals(0, this.factory.objects);
+
+    }
+
+}
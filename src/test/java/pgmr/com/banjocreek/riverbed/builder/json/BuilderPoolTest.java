@@ -0,0 +1,229 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pgmr.com.banjocreek.riverbed.builder.json;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.banjocreek.riverbed.builder.json.mutable.JAry;
+import com.banjocreek.riverbed.builder.json.mutable.JObj;
+import com.banjocreek.riverbed.builder.json.mutable.JsonBuilderPool;
+import com.banjocreek.riverbed.builder.json.mutable.MutableJsonBuilders;
+
+public class BuilderPoolTest {
+
+    private static final String[] KEYS = new String[20];
+
+    static {
+        for (int i = 0; i < KEYS.length; i++) {
+            KEYS[i] = "field" + i;
+        }
+    }
+
+    /*
+     * reader of the bytes allocated by a thread, or null if the runtime does
+     * not report them.
+     */
+    private static Method allocatedBytes() {
+        try {
+            final Class<?> type = Class
+                    .forName("com.sun.management.ThreadMXBean");
+            if (type.isInstance(ManagementFactory.getThreadMXBean())) {
+                return type.getMethod("getThreadAllocatedBytes", long.class);
+            }
+        } catch (final ReflectiveOperationException e) {
+            // not reported by this runtime
+        }
+        return null;
+    }
+
+    /*
+     * bytes allocated by this thread per document written from builders
+     * taken from a source, measured after warming up.
+     */
+    private static long allocatedPerDocument(final Method allocated,
+            final Supplier<JObj<JsonObject>> take,
+            final Consumer<JObj<JsonObject>> release) throws Exception {
+        final Object threads = ManagementFactory.getThreadMXBean();
+        final long id = Thread.currentThread().getId();
+        final ByteBuffer out = ByteBuffer.allocate(4096);
+        final int documents = 20000;
+        long before = 0;
+        for (int round = 0; round < 2; round++) {
+            before = (Long) allocated.invoke(threads, id);
+            for (int d = 0; d < documents; d++) {
+                final JObj<JsonObject> builder = take.get();
+                for (int i = 0; i < KEYS.length; i++) {
+                    builder.set(KEYS[i], i);
+                }
+                out.clear();
+                builder.writeTo(out);
+                release.accept(builder);
+            }
+        }
+        return ((Long) allocated.invoke(threads, id) - before) / documents;
+    }
+
+    private JsonBuilderPool pool;
+
+    @Before
+    public void setup() {
+        this.pool = MutableJsonBuilders.pool(2);
+    }
+
+    @Test
+    public void testReleaseBeforeAsyncMerge() throws Exception {
+
+        /*
+         * given a pooled builder merged asynchronously while a value is
+         * pending
+         */
+        // SETUP
+        final CompletableFuture<JsonValue> pending = new CompletableFuture<>();
+        final JObj<JsonObject> first = this.pool.object();
+        final CompletionStage<JsonObject> merged = first.set("k", 1)
+                .setAsync("pending", pending).mergeAsync();
+
+        /*
+         * when the builder is returned and reused before the value completes
+         */
+        this.pool.release(first);
+        final JObj<JsonObject> second = this.pool.object();
+        second.set("other", 9);
+        pending.complete(JsonValue.TRUE);
+
+        /*
+         * the merge holds the first document only
+         */
+        assertSame(first, second);
+        assertEquals(Json.createObjectBuilder().add("k", 1)
+                .add("pending", true).build(), merged.toCompletableFuture()
+                .get());
+    }
+
+    @Test
+    public void testReleaseTwice() {
+
+        /*
+         * given a builder returned to the pool
+         */
+        // SETUP
+        final JAry<JsonArray> builder = this.pool.array();
+        this.pool.release(builder);
+
+        /*
+         * when it is returned again, it is rejected
+         */
+        try {
+            this.pool.release(builder);
+            fail("released twice");
+        } catch (final IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReleaseUnpooled() {
+
+        /*
+         * given a builder not taken from the pool
+         */
+        // SETUP
+        final JObj<JsonObject> builder = MutableJsonBuilders.object();
+
+        /*
+         * when it is returned to the pool, it is rejected
+         */
+        this.pool.release(builder);
+    }
+
+    @Test
+    public void testReuse() {
+
+        /*
+         * given a pooled builder that has been used and returned
+         */
+        // SETUP
+        final JObj<JsonObject> first = this.pool.object();
+        first.set("a", 1).withDefault(
+                Json.createObjectBuilder().add("b", 2).build());
+        assertEquals(
+                Json.createObjectBuilder().add("a", 1).add("b", 2).build(),
+                first.merge());
+        this.pool.release(first);
+
+        /*
+         * when a builder is taken again
+         */
+        final JObj<JsonObject> second = this.pool.object();
+
+        /*
+         * the same builder is handed out, empty
+         */
+        assertSame(first, second);
+        assertEquals(Json.createObjectBuilder().build(), second.merge());
+        assertEquals(Json.createObjectBuilder().add("c", 3).build(), second
+                .set("c", 3).merge());
+    }
+
+    @Test
+    public void testSteadyStateAllocation() throws Exception {
+
+        /*
+         * given a runtime that reports allocation per thread
+         */
+        // SETUP
+        final Method allocated = allocatedBytes();
+        assumeTrue(allocated != null);
+        assumeTrue((Long) allocated.invoke(ManagementFactory
+                .getThreadMXBean(), Thread.currentThread().getId()) >= 0);
+
+        /*
+         * when many documents are written from pooled and from new builders
+         */
+        final long pooled = allocatedPerDocument(allocated,
+                this.pool::object, this.pool::release);
+        final long fresh = allocatedPerDocument(allocated,
+                MutableJsonBuilders::object, b -> {
+                });
+
+        /*
+         * pooled builders allocate much less: new builders allocate their
+         * maps and entries for every document
+         */
+        assertTrue("pooled " + pooled + " fresh " + fresh,
+                pooled * 2 < fresh);
+    }
+
+}
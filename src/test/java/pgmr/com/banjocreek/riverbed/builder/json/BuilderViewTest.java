@@ -0,0 +1,181 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pgmr.com.banjocreek.riverbed.builder.json;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+
+import org.junit.Test;
+
+import com.banjocreek.riverbed.builder.json.immutable.ImmutableJsonBuilders;
+import com.banjocreek.riverbed.builder.json.mutable.JAry;
+import com.banjocreek.riverbed.builder.json.mutable.JObj;
+import com.banjocreek.riverbed.builder.json.mutable.MutableJsonBuilders;
+
+public class BuilderViewTest {
+
+    @Test
+    public void testArrayViewWithRuns() {
+
+        /*
+         * given a mutable array builder with single values and runs of values
+         */
+        // SETUP
+        final JAry<JsonArray> b = MutableJsonBuilders.arrayView().add("a")
+                .addAll(new int[] { 1, 2, 3 }).addAll(new long[0])
+                .addAll(new String[] { "x", "y" }).object().set("k", 1)
+                .merge().concat(Json.createArrayBuilder().add(true).build());
+
+        /*
+         * when the view is merged and the builder is then changed
+         */
+        final JsonArray actual = b.merge();
+        b.add("later");
+
+        /*
+         * the view reads every element in place and matches the array built
+         * from the same values
+         */
+        final JsonArray expected = Json.createArrayBuilder().add("a").add(1)
+                .add(2).add(3).add("x").add("y")
+                .add(Json.createObjectBuilder().add("k", 1)).add(true)
+                .build();
+        assertEquals(8, actual.size());
+        assertEquals(3, actual.getInt(3));
+        assertEquals("y", actual.getString(5));
+        assertEquals(1, actual.getJsonObject(6).getInt("k"));
+        assertTrue(actual.getBoolean(7));
+        assertEquals(expected, actual);
+        assertEquals(expected.hashCode(), actual.hashCode());
+
+    }
+
+    @Test
+    public void testContinuedMembersAreViews() {
+
+        /*
+         * given an object view builder with a continued object and an
+         * updated array, each holding a value that counts when it is computed
+         */
+        // SETUP
+        final AtomicInteger calls = new AtomicInteger();
+        final Supplier<JsonValue> counted = () -> Json.createArrayBuilder()
+                .add(calls.incrementAndGet()).build();
+        final JObj<JsonObject> b = MutableJsonBuilders.objectView();
+        b.object("c").set("x", 1).merge().continueObject("c")
+                .set("y", counted).merge().array("a").add(counted).merge()
+                .update("a", Json.createArrayBuilder().add(2).build());
+
+        /*
+         * when the view is merged and its members are read
+         */
+        final JsonObject view = b.merge();
+        final JsonObject c = view.getJsonObject("c");
+        final JsonArray a = view.getJsonArray("a");
+
+        /*
+         * the members are views: nothing is computed until it is read
+         */
+        assertEquals(0, calls.get());
+        assertEquals(1, c.getInt("x"));
+        assertEquals(2, a.getInt(1));
+        assertEquals(0, calls.get());
+        assertEquals(Json.createArrayBuilder().add(1).build(), c.get("y"));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testObjectView() {
+
+        /*
+         * given an immutable view builder with nested values
+         */
+        // SETUP
+        final JsonObject actual = ImmutableJsonBuilders.objectView()
+                .set("name", "Café").set("n", 2.5).object("nested")
+                .set("x", 1).array("list").add(1).add("two").done().done()
+                .setNull("none").build();
+
+        /*
+         * when members are read
+         */
+        final JsonObject nested = actual.getJsonObject("nested");
+
+        /*
+         * each is materialized once and the view behaves as the built object
+         */
+        final JsonObject expected = ImmutableJsonBuilders.object()
+                .set("name", "Café").set("n", 2.5).object("nested")
+                .set("x", 1).array("list").add(1).add("two").done().done()
+                .setNull("none").build();
+        assertSame(nested, actual.getJsonObject("nested"));
+        assertEquals("two", nested.getJsonArray("list").getString(1));
+        assertTrue(actual.isNull("none"));
+        assertFalse(actual.containsKey("missing"));
+        assertEquals(expected, actual);
+        assertEquals(actual, expected);
+        assertEquals(expected,
+                Json.createReader(new StringReader(actual.toString()))
+                        .readObject());
+
+    }
+
+    @Test
+    public void testViewWrittenFromOps() {
+
+        /*
+         * given a view embedded as a value in another builder
+         */
+        // SETUP
+        final JsonObject view = ImmutableJsonBuilders.objectView()
+                .set("a", 1).array("b").addAll(new double[] { 0.5, 1e21 })
+                .done().build();
+        final JAry<JsonArray> outer = MutableJsonBuilders.array().add(view)
+                .add(view);
+
+        /*
+         * when the enclosing builder is encoded
+         */
+        final byte[] actual = outer.toBytes();
+
+        /*
+         * the text describes the view's contents
+         */
+        final JsonArray expected = Json
+                .createArrayBuilder()
+                .add(Json.createObjectBuilder().add("a", 1)
+                        .add("b", Json.createArrayBuilder().add(0.5).add(1e21)))
+                .add(Json.createObjectBuilder().add("a", 1)
+                        .add("b", Json.createArrayBuilder().add(0.5).add(1e21)))
+                .build();
+        assertEquals(expected,
+                Json.createReader(new ByteArrayInputStream(actual))
+                        .readArray());
+
+    }
+
+}
@@ -0,0 +1,250 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pgmr.com.banjocreek.riverbed.builder.json;
+
+import static org.junit.Assert.*;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.banjocreek.riverbed.builder.json.mutable.ConcurrentJsonBuilders;
+import com.banjocreek.riverbed.builder.json.mutable.JAry;
+import com.banjocreek.riverbed.builder.json.mutable.JObj;
+
+public class ConcurrentBuilderTest {
+
+    @FunctionalInterface
+    private interface IntTask {
+        void run(int id) throws Exception;
+    }
+
+    private static final int PER_THREAD = 500;
+
+    private static final int THREADS = 8;
+
+    /*
+     * add a value to a new shared array builder on a thread of the executor,
+     * leaving nothing referring to the builder.
+     */
+    private static WeakReference<JsonArray> addAndDrop(
+            final ExecutorService executor) throws Exception {
+        final JAry<JsonArray> array = ConcurrentJsonBuilders.array();
+        final JsonArray value = Json.createArrayBuilder().add(1).build();
+        executor.submit(() -> array.add(value)).get();
+        return new WeakReference<>(value);
+    }
+
+    private JObj<JsonObject> builder;
+
+    @Before
+    public void setup() {
+        this.builder = ConcurrentJsonBuilders.object();
+    }
+
+    /*
+     * run a task on several threads at once and wait for all of them.
+     */
+    private void concurrently(final IntTask task) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<>();
+        final List<Throwable> failures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int id = t;
+            final Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    task.run(id);
+                } catch (final Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(new ArrayList<Throwable>(), failures);
+    }
+
+    @Test
+    public void testArrayConcurrentAdd() throws Exception {
+
+        /*
+         * given a shared array builder
+         */
+        // SETUP
+        final JAry<JsonArray> array = ConcurrentJsonBuilders.array();
+
+        /*
+         * when many threads add at once and take snapshots
+         */
+        concurrently(id -> {
+            for (int i = 0; i < PER_THREAD; i++) {
+                array.add(id * PER_THREAD + i);
+                if (i % 100 == 0) {
+                    array.merge();
+                }
+            }
+        });
+
+        /*
+         * every value is present and each thread's values keep their order
+         */
+        final JsonArray actual = array.merge();
+        assertEquals(THREADS * PER_THREAD, actual.size());
+        final int[] last = new int[THREADS];
+        for (int i = 0; i < actual.size(); i++) {
+            final int v = actual.getInt(i);
+            assertTrue(v >= last[v / PER_THREAD]);
+            last[v / PER_THREAD] = v;
+        }
+    }
+
+    @Test
+    public void testArrayOrdered() throws Exception {
+
+        /*
+         * given a shared array builder that keeps order
+         */
+        // SETUP
+        final JAry<JsonArray> array = ConcurrentJsonBuilders.orderedArray();
+
+        /*
+         * when values are added alternately by this thread and others
+         */
+        for (int i = 0; i < 10; i += 2) {
+            array.add(i);
+            final int next = i + 1;
+            final Thread other = new Thread(() -> array.add(next));
+            other.start();
+            other.join();
+        }
+
+        /*
+         * the values are in the order they were added
+         */
+        final JsonArrayBuilder expected = Json.createArrayBuilder();
+        for (int i = 0; i < 10; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected.build(), array.merge());
+
+        /*
+         * and clearing removes them all
+         */
+        final JsonArray cleared = array.clear().add(10).merge();
+        assertEquals(Json.createArrayBuilder().add(10).build(), cleared);
+    }
+
+    @Test
+    public void testArrayReleasedByThreads() throws Exception {
+
+        /*
+         * given a thread that outlives a shared array builder
+         */
+        // SETUP
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+
+            /*
+             * when the thread adds a value and the builder is dropped
+             */
+            final WeakReference<JsonArray> added = addAndDrop(executor);
+
+            /*
+             * the builder's contents can be collected while the thread lives
+             */
+            for (int i = 0; i < 50 && added.get() != null; i++) {
+                System.gc();
+                Thread.sleep(10);
+            }
+            assertNull(added.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testConcurrentSet() throws Exception {
+
+        /*
+         * given a shared builder
+         */
+        // SETUP
+
+        /*
+         * when many threads set distinct members at once
+         */
+        concurrently(id -> {
+            for (int i = 0; i < PER_THREAD; i++) {
+                this.builder.set("t" + id + "-" + i, i);
+            }
+        });
+
+        /*
+         * every member is present
+         */
+        final JsonObject actual = this.builder.merge();
+        assertEquals(THREADS * PER_THREAD, actual.size());
+        assertEquals(PER_THREAD - 1, actual.getInt("t0-" + (PER_THREAD - 1)));
+    }
+
+    @Test
+    public void testConcurrentUpdate() throws Exception {
+
+        /*
+         * given a shared builder
+         */
+        // SETUP
+
+        /*
+         * when many threads append to the same array and take snapshots
+         */
+        concurrently(id -> {
+            for (int i = 0; i < PER_THREAD; i++) {
+                this.builder.continueArray("log").add(id).merge();
+                if (i % 100 == 0) {
+                    this.builder.merge();
+                }
+            }
+        });
+
+        /*
+         * no update is lost
+         */
+        final JsonObject actual = this.builder.merge();
+        assertEquals(THREADS * PER_THREAD, actual.getJsonArray("log").size());
+    }
+
+}
@@ -19,11 +19,14 @@ package pgmr.com.banjocreek.riverbed.builder.json;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 
 import javax.json.Json;
 import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
 import javax.json.JsonValue;
 
 import org.junit.Before;
@@ -41,6 +44,48 @@ public class ImmutableArrayBuilderOpTest {
         this.builder = ImmutableJsonBuilders.array();
     }
 
+    @Test
+    public void testAddAll() {
+
+        /*
+         * given a builder with a value and arrays of each primitive type
+         */
+        // SETUP
+        final JAry<JsonArray, JsonArray> b1 = this.builder.add("first");
+        final int[] ints = { 1, -2, Integer.MAX_VALUE };
+        final long[] longs = { Long.MIN_VALUE, 0L };
+        final double[] doubles = { 0.25, -0.0, 1e-9, 6.02e23 };
+        final boolean[] booleans = { true, false };
+        final String[] strings = { "a", "\u00e9" };
+
+        /*
+         * when the arrays are added in bulk and the source arrays are then
+         * changed
+         */
+        final JAry<JsonArray, JsonArray> b2 = b1.addAll(ints).addAll(longs)
+                .addAll(doubles).addAll(booleans).addAll(strings)
+                .add("last");
+        ints[0] = 100;
+        strings[0] = "z";
+
+        /*
+         * the values are appended in order, as added one at a time, and the
+         * builder holds its own copy
+         */
+        final JsonArray expected = this.builder.add("first").add(1).add(-2)
+                .add(Integer.MAX_VALUE).add(Long.MIN_VALUE).add(0L)
+                .add(0.25).add(-0.0).add(1e-9).add(6.02e23).add(true)
+                .add(false).add("a").add("\u00e9").add("last").build();
+        assertEquals(expected, b2.build());
+        assertEquals(
+                Json.createReader(new StringReader(expected.toString()))
+                        .readArray(),
+                Json.createReader(
+                        new ByteArrayInputStream(b2.toBytes()))
+                        .readArray());
+
+    }
+
     @Test
     public void testAddBigDecimal() {
 
@@ -303,4 +348,40 @@ public class ImmutableArrayBuilderOpTest {
 
     }
 
+    @Test
+    public void testEdit() {
+
+        /*
+         * given a builder with values spanning more than one leaf
+         */
+        // SETUP
+        JAry<JsonArray, JsonArray> b1 = this.builder;
+        for (int i = 0; i < 40; i++) {
+            b1 = b1.add(i);
+        }
+        final JAry<JsonArray, JsonArray> before = b1;
+
+        /*
+         * when a batch of values is added in one edit
+         */
+        final JAry<JsonArray, JsonArray> b2 = b1.edit(e -> {
+            for (int i = 40; i < 140; i++) {
+                e.add(i);
+            }
+            e.concat(Json.createArrayBuilder().add("x").build()).addNull();
+        });
+
+        /*
+         * the batch is appended in order and the original is unchanged
+         */
+        final JsonArrayBuilder expected = Json.createArrayBuilder();
+        for (int i = 0; i < 140; i++) {
+            expected.add(i);
+        }
+        expected.add("x").addNull();
+        assertEquals(expected.build(), b2.build());
+        assertEquals(40, before.build().size());
+
+    }
+
 }
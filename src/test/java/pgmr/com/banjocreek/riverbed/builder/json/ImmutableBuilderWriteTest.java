@@ -0,0 +1,336 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pgmr.com.banjocreek.riverbed.builder.json;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.stream.JsonGenerator;
+
+import org.junit.Test;
+
+import com.banjocreek.riverbed.builder.json.immutable.ImmutableJsonBuilders;
+import com.banjocreek.riverbed.builder.json.immutable.JAry;
+import com.banjocreek.riverbed.builder.json.immutable.JObj;
+
+public class ImmutableBuilderWriteTest {
+
+    @Test
+    public void testArrayWriter() {
+
+        /*
+         * given an array builder with nested values
+         */
+        // SETUP
+        final JAry<JsonArray, JsonArray> b = ImmutableJsonBuilders.array()
+                .add(1).add("two").object().set("three", 3.5).done().array()
+                .addNull().add(true).done();
+
+        /*
+         * when it is written to a character stream
+         */
+        final StringWriter out = new StringWriter();
+        b.writeTo(out);
+
+        /*
+         * the text describes the same array as the built instance
+         */
+        final JsonArray actual = Json.createReader(
+                new StringReader(out.toString())).readArray();
+        assertEquals(b.build(), actual);
+
+    }
+
+    @Test
+    public void testByteArray() {
+
+        /*
+         * given a builder with escapes and text outside of the basic plane
+         */
+        // SETUP
+        final JObj<JsonObject, JsonObject> b = ImmutableJsonBuilders.object()
+                .set("name", "Café ☕ 😀").set("ctl", "a\"b\\c\n\u0001")
+                .set("n", -1234567890123L).set("d", 0.125).array("e")
+                .add(Integer.MIN_VALUE).addNull().done();
+
+        /*
+         * when it is encoded as bytes
+         */
+        final byte[] actual = b.toBytes();
+
+        /*
+         * the bytes are UTF-8 text describing the built instance
+         */
+        assertEquals(b.build(),
+                Json.createReader(new ByteArrayInputStream(actual))
+                        .readObject());
+
+    }
+
+    @Test
+    public void testByteBuffer() {
+
+        /*
+         * given a builder and a buffer holding a prefix
+         */
+        // SETUP
+        final JAry<JsonArray, JsonArray> b = ImmutableJsonBuilders.array()
+                .add("x").object().set("y", 1).done();
+        final ByteBuffer out = ByteBuffer.allocate(64);
+        out.put((byte) ' ');
+
+        /*
+         * when it is written to the buffer
+         */
+        b.writeTo(out);
+
+        /*
+         * the text follows the prefix and the position is after it
+         */
+        final byte[] expected = b.toBytes();
+        assertEquals(1 + expected.length, out.position());
+        final byte[] actual = new byte[expected.length];
+        out.flip();
+        out.get();
+        out.get(actual);
+        assertArrayEquals(expected, actual);
+
+    }
+
+    @Test(expected = BufferOverflowException.class)
+    public void testByteBufferOverflow() {
+
+        /*
+         * given a builder and a buffer too small for its text
+         */
+        // SETUP
+        final JAry<JsonArray, JsonArray> b = ImmutableJsonBuilders.array()
+                .add("a value that will not fit");
+        final ByteBuffer out = ByteBuffer.allocate(8);
+
+        /*
+         * when it is written to the buffer
+         */
+        b.writeTo(out);
+
+        /*
+         * the buffer overflows
+         */
+
+    }
+
+    @Test
+    public void testChannel() {
+
+        /*
+         * given a builder larger than the encoding buffer
+         */
+        // SETUP
+        JAry<JsonArray, JsonArray> b = ImmutableJsonBuilders.array();
+        for (int i = 0; i < 2000; i++) {
+            b = b.object().set("index", i).set("label", "é" + i).done();
+        }
+
+        /*
+         * when it is written to a channel
+         */
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        b.writeTo(Channels.newChannel(out));
+
+        /*
+         * every byte reaches the channel
+         */
+        assertArrayEquals(b.toBytes(), out.toByteArray());
+        assertEquals(b.build(),
+                Json.createReader(new ByteArrayInputStream(out.toByteArray()))
+                        .readArray());
+
+    }
+
+    @Test
+    public void testGeneratorFragments() {
+
+        /*
+         * given an object builder, an array builder and a generator that has
+         * started a document
+         */
+        // SETUP
+        final JObj<JsonObject, JsonObject> obj = ImmutableJsonBuilders
+                .object().set("a", "A").array("b").add(1).done();
+        final JAry<JsonArray, JsonArray> ary = ImmutableJsonBuilders.array()
+                .add("x").object().set("y", true).done();
+        final StringWriter out = new StringWriter();
+        final JsonGenerator gen = Json.createGenerator(out);
+        gen.writeStartObject().write("status", "ok");
+
+        /*
+         * when the builders are written as a member and as an element
+         */
+        obj.writeTo("payload", gen);
+        gen.writeStartArray("items");
+        ary.writeTo(gen);
+        gen.writeEnd().writeEnd().close();
+
+        /*
+         * the builders' instances are embedded in the document
+         */
+        final JsonObject actual = Json.createReader(
+                new StringReader(out.toString())).readObject();
+        final JsonObject expected = Json
+                .createObjectBuilder()
+                .add("status", "ok")
+                .add("payload", obj.build())
+                .add("items", Json.createArrayBuilder().add(ary.build()))
+                .build();
+        assertEquals(expected, actual);
+
+    }
+
+    @Test
+    public void testNestedWritesRoot() {
+
+        /*
+         * given a nested builder
+         */
+        // SETUP
+        final JObj<JsonObject, ?> b = ImmutableJsonBuilders.object()
+                .set("a", "A").object("b").set("c", "C");
+
+        /*
+         * when the nested builder is written
+         */
+        final StringWriter out = new StringWriter();
+        b.writeTo(out);
+
+        /*
+         * the text describes the root instance
+         */
+        final JsonObject actual = Json.createReader(
+                new StringReader(out.toString())).readObject();
+        final JsonObject expected = Json.createObjectBuilder().add("a", "A")
+                .add("b", Json.createObjectBuilder().add("c", "C")).build();
+        assertEquals(expected, actual);
+
+    }
+
+    @Test
+    public void testParallelObject() {
+
+        /*
+         * given an object builder with many members and one with a single
+         * member
+         */
+        // SETUP
+        final JObj<JsonObject, JsonObject> large = ImmutableJsonBuilders
+                .object().edit(e -> {
+                    for (int i = 0; i < 5000; i++) {
+                        e.set("key" + i, i);
+                    }
+                });
+        final JObj<JsonObject, JsonObject> small = ImmutableJsonBuilders
+                .object().set("only", true);
+
+        /*
+         * when they are written in parallel
+         */
+        final ByteArrayOutputStream largeOut = new ByteArrayOutputStream();
+        final ByteArrayOutputStream smallOut = new ByteArrayOutputStream();
+        large.writeTo(Channels.newChannel(largeOut), ForkJoinPool.commonPool());
+        small.writeTo(Channels.newChannel(smallOut), ForkJoinPool.commonPool());
+
+        /*
+         * the bytes are those of a sequential write
+         */
+        assertArrayEquals(large.toBytes(), largeOut.toByteArray());
+        assertArrayEquals(small.toBytes(), smallOut.toByteArray());
+
+    }
+
+    @Test
+    public void testObjectWriter() {
+
+        /*
+         * given an object builder with nested, continued and default values
+         */
+        // SETUP
+        final JObj<JsonObject, JsonObject> b = ImmutableJsonBuilders.object()
+                .set("a", 1L).array("b").add("B1").done().continueArray("b")
+                .add("B2").done().object("c").set("d", "D").done()
+                .withDefault(Json.createObjectBuilder().add("e", "E").build());
+
+        /*
+         * when it is written to a character stream
+         */
+        final StringWriter out = new StringWriter();
+        b.writeTo(out);
+
+        /*
+         * the text describes the same object as the built instance
+         */
+        final JsonObject actual = Json.createReader(
+                new StringReader(out.toString())).readObject();
+        assertEquals(b.build(), actual);
+
+    }
+
+    @Test
+    public void testWriterMatchesBytes() {
+
+        /*
+         * given an object builder with doubles of every magnitude and text
+         * outside of ASCII spanning more than one chunk
+         */
+        // SETUP
+        JAry<JsonObject, JObj<JsonObject, JsonObject>> b = ImmutableJsonBuilders
+                .object().set("d", 1e20).set("e", 1.5e-9).set("f", 0.1)
+                .set("g", -0.0).array("h");
+        for (int i = 0; i < 5000; i++) {
+            b = b.add("é☕\uD83D\uDE00" + i).add(i * 1e17);
+        }
+        final JObj<JsonObject, JsonObject> o = b.done();
+
+        /*
+         * when it is written to a character stream
+         */
+        final StringWriter out = new StringWriter();
+        o.writeTo(out);
+
+        /*
+         * the text is that of the bytes and reads back as the built instance
+         */
+        assertEquals(new String(o.toBytes(), StandardCharsets.UTF_8),
+                out.toString());
+        final JsonObject actual = Json.createReader(
+                new StringReader(out.toString())).readObject();
+        assertEquals(o.build(), actual);
+
+    }
+
+}
@@ -171,6 +171,42 @@ public class ImmutableObjectBuilderNestTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    public void testContinuedObjectNested() {
+
+        /*
+         * given a built builder with objects nested two deep and an object
+         * alongside them
+         */
+        // SETUP
+        final JObj<JsonObject, JsonObject> b1 = this.builder.object("a")
+                .object("b").set("x", 1).set("y", 2).done().set("c", 3)
+                .done().object("d").set("e", 4).done();
+        final JsonObject before = b1.build();
+
+        /*
+         * when the deeper object is continued through its parent
+         */
+        final JsonObject actual = b1.continueObject("a").continueObject("b")
+                .set("y", 20).set("z", 30).done().done().build();
+
+        /*
+         * the changes are merged at each level and the untouched object is
+         * reused
+         */
+        final JsonObject expected = Json
+                .createObjectBuilder()
+                .add("a",
+                        Json.createObjectBuilder()
+                                .add("b",
+                                        Json.createObjectBuilder().add("x", 1)
+                                                .add("y", 20).add("z", 30))
+                                .add("c", 3))
+                .add("d", Json.createObjectBuilder().add("e", 4)).build();
+        assertEquals(expected, actual);
+        assertSame(before.get("d"), actual.get("d"));
+    }
+
     @Test
     public void testNestedArrayBuild() {
 
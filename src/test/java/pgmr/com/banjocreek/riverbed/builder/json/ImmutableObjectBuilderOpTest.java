@@ -21,6 +21,8 @@ import static org.junit.Assert.*;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import javax.json.Json;
 import javax.json.JsonObject;
@@ -117,6 +119,39 @@ public class ImmutableObjectBuilderOpTest {
 
     }
 
+    @Test
+    public void testEdit() {
+
+        /*
+         * given a builder with values
+         */
+        // SETUP
+        final JObj<JsonObject, JsonObject> b1 = this.builder.set("a", 1)
+                .set("b", "B").array("c").add(1).done();
+
+        /*
+         * when a batch of changes is applied in one edit
+         */
+        final JObj<JsonObject, JsonObject> b2 = b1.edit(e -> e.set("d", 4L)
+                .set("e", true).remove("a").set("a", 10)
+                .update("c", Json.createArrayBuilder().add(2).build())
+                .setNull("f").remove("b"));
+
+        /*
+         * the result is that of applying the changes one at a time and the
+         * original is unchanged
+         */
+        final JsonObject expected = b1.set("d", 4L).set("e", true)
+                .remove("a").set("a", 10)
+                .update("c", Json.createArrayBuilder().add(2).build())
+                .setNull("f").remove("b").build();
+        assertEquals(expected, b2.build());
+        assertEquals(Json.createObjectBuilder().add("a", 1).add("b", "B")
+                .add("c", Json.createArrayBuilder().add(1)).build(),
+                b1.build());
+
+    }
+
     @Test
     public void testRemove() {
 
@@ -402,6 +437,40 @@ public class ImmutableObjectBuilderOpTest {
 
     }
 
+    @Test
+    public void testSetSupplier() {
+
+        /*
+         * given a builder, keys, and a counting supplier
+         */
+        // SETUP
+        final String k1 = "Key1", k2 = "Key2";
+        final AtomicInteger calls = new AtomicInteger();
+        final Supplier<JsonValue> never = () -> {
+            throw new AssertionError("removed value computed");
+        };
+
+        /*
+         * when the supplier is set at both keys and one key is removed
+         */
+        final JObj<?, JsonObject> mutated = this.builder.set(k1, () -> Json
+                .createArrayBuilder().add(calls.incrementAndGet()).build())
+                .set(k2, never).remove(k2);
+
+        /*
+         * the supplier is not called until the builder is built, then once
+         * per build
+         */
+        assertEquals(0, calls.get());
+        final JsonObject actual = mutated.done();
+        final JsonObject expected = Json.createObjectBuilder()
+                .add(k1, Json.createArrayBuilder().add(1)).build();
+        assertEquals(expected, actual);
+        mutated.done();
+        assertEquals(2, calls.get());
+
+    }
+
     @Test
     public void testUpdateArray() {
 
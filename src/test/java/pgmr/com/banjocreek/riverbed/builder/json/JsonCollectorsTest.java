@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pgmr.com.banjocreek.riverbed.builder.json;
+
+import static org.junit.Assert.*;
+
+import java.util.stream.IntStream;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+
+import org.junit.Test;
+
+import com.banjocreek.riverbed.builder.json.JsonCollectors;
+
+public class JsonCollectorsTest {
+
+    @Test
+    public void testArrayParallel() {
+
+        /*
+         * given a parallel stream of many elements
+         */
+        // SETUP
+        final int n = 100000;
+
+        /*
+         * when the stream is collected to an array
+         */
+        final JsonArray actual = IntStream.range(0, n).parallel().boxed()
+                .collect(JsonCollectors.toJsonArray(i -> Json
+                        .createArrayBuilder().add(i).build().get(0)));
+
+        /*
+         * the array holds every element in encounter order
+         */
+        final JsonArrayBuilder expected = Json.createArrayBuilder();
+        IntStream.range(0, n).forEach(expected::add);
+        assertEquals(expected.build(), actual);
+    }
+
+    @Test
+    public void testObjectLastWins() {
+
+        /*
+         * given a parallel stream whose keys repeat
+         */
+        // SETUP
+        final int n = 10000;
+
+        /*
+         * when the stream is collected to an object
+         */
+        final JsonObject actual = IntStream.range(0, n).parallel().boxed()
+                .collect(JsonCollectors.toJsonObject(i -> "k" + i % 100,
+                        i -> Json.createArrayBuilder().add(i).build().get(0)));
+
+        /*
+         * each member holds the value last encountered for its name
+         */
+        final JsonObjectBuilder expected = Json.createObjectBuilder();
+        IntStream.range(n - 100, n).forEach(
+                i -> expected.add("k" + i % 100, i));
+        assertEquals(expected.build(), actual);
+    }
+
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pgmr.com.banjocreek.riverbed.builder.json;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.banjocreek.riverbed.builder.json.immutable.ImmutableJsonBuilders;
+import com.banjocreek.riverbed.builder.json.kernel.JsonTemplate;
+
+public class JsonTemplateTest {
+
+    private JsonTemplate template;
+
+    private static JsonObject read(final byte[] bytes) {
+        return Json.createReader(new ByteArrayInputStream(bytes))
+                .readObject();
+    }
+
+    @Before
+    public void setup() {
+        this.template = ImmutableJsonBuilders.object()
+                .set("status", "ok")
+                .set("user", JsonTemplate.slot("userId"))
+                .object("detail").set("name", JsonTemplate.slot("name"))
+                .set("score", JsonTemplate.slot("score"))
+                .array("refs").add(JsonTemplate.slot("userId")).add(1)
+                .done().done().set("version", 3).compile();
+    }
+
+    @Test
+    public void testBoundSlots() {
+
+        /*
+         * given a binding for the template
+         */
+        // SETUP
+        final JsonTemplate.Binding binding = this.template.bind();
+
+        /*
+         * when every slot is bound
+         */
+        final byte[] actual = binding.set("userId", 17)
+                .set("name", "Zoë \"Z\"")
+                .set("score", new BigDecimal("12.50")).toBytes();
+
+        /*
+         * the document has the constant parts and the bound values, with a
+         * repeated slot filled everywhere it appears
+         */
+        final JsonObject expected = ImmutableJsonBuilders.object()
+                .set("status", "ok").set("user", 17).object("detail")
+                .set("name", "Zoë \"Z\"")
+                .set("score", new BigDecimal("12.50")).array("refs")
+                .add(17).add(1).done().done().set("version", 3).build();
+        assertEquals(expected, read(actual));
+        assertEquals(new HashSet<>(Arrays.asList("userId", "name", "score")),
+                new HashSet<>(this.template.slots()));
+
+    }
+
+    @Test
+    public void testPlaceholderIsNull() {
+
+        /*
+         * given a placeholder and null
+         */
+        // SETUP
+        final JsonValue slot = JsonTemplate.slot("name");
+
+        /*
+         * when they are compared
+         */
+        final boolean equal = slot.equals(JsonValue.NULL);
+        final boolean reverse = JsonValue.NULL.equals(slot);
+
+        /*
+         * they are equal both ways, and so are documents holding them
+         */
+        assertTrue(equal);
+        assertTrue(reverse);
+        assertEquals(JsonValue.NULL.hashCode(), slot.hashCode());
+        assertEquals(
+                ImmutableJsonBuilders.object().setNull("name").build(),
+                ImmutableJsonBuilders.object().set("name", slot).build());
+
+    }
+
+    @Test
+    public void testRebinding() {
+
+        /*
+         * given a binding that has been written
+         */
+        // SETUP
+        final JsonTemplate.Binding binding = this.template.bind()
+                .set("userId", 1).set("name", "first").set("score", 2.5);
+        binding.toBytes();
+
+        /*
+         * when a slot is rebound and the binding is written to a buffer and
+         * to a stream
+         */
+        binding.set("name", JsonTemplate.slot("ignored")).setNull("score")
+                .set("userId", Json.createArrayBuilder().add(true).build());
+        final ByteBuffer buffer = ByteBuffer.allocate(256);
+        binding.writeTo(buffer);
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        binding.writeTo(stream);
+
+        /*
+         * both outputs hold the new values
+         */
+        final byte[] fromBuffer = Arrays.copyOf(buffer.array(),
+                buffer.position());
+        assertArrayEquals(stream.toByteArray(), fromBuffer);
+        final JsonObject actual = read(fromBuffer);
+        assertTrue(actual.getJsonObject("detail").isNull("name"));
+        assertTrue(actual.getJsonObject("detail").isNull("score"));
+        assertEquals(Json.createArrayBuilder().add(true).build(),
+                actual.getJsonArray("user"));
+
+    }
+
+    @Test
+    public void testUnboundSlots() {
+
+        /*
+         * given a fresh binding
+         */
+        // SETUP
+        final JsonTemplate.Binding binding = this.template.bind();
+
+        /*
+         * when it is written without binding any slot
+         */
+        final byte[] actual = binding.toBytes();
+
+        /*
+         * the document matches the definition, whose slots are null
+         */
+        final JsonObject expected = ImmutableJsonBuilders.object()
+                .set("status", "ok").setNull("user").object("detail")
+                .setNull("name").setNull("score").array("refs").addNull()
+                .add(1).done().done().set("version", 3).build();
+        assertEquals(expected, read(actual));
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownSlot() {
+
+        /*
+         * given a binding for the template
+         */
+        // SETUP
+        final JsonTemplate.Binding binding = this.template.bind();
+
+        /*
+         * when a name that is not a slot is bound
+         */
+        binding.set("status", "failed");
+
+        /*
+         * the binding is rejected
+         */
+
+    }
+
+}
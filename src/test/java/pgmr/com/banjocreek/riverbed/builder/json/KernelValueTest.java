@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pgmr.com.banjocreek.riverbed.builder.json;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonValue;
+
+import org.junit.Test;
+
+import com.banjocreek.riverbed.builder.json.immutable.ImmutableJsonBuilders;
+import com.banjocreek.riverbed.builder.json.kernel.JsonOp;
+
+public class KernelValueTest {
+
+    @Test
+    public void testInterchangeableWithProvider() {
+
+        /*
+         * given an object built by the kernel and the same object built by
+         * the provider
+         */
+        // SETUP
+        final JsonObject actual = ImmutableJsonBuilders.object()
+                .set("i", 1).set("l", 1L << 40).set("d", 2.5)
+                .set("b", new BigDecimal("3.25")).set("s", "tab\there")
+                .set("t", true).setNull("n").array("a").add(1).add("x")
+                .done().build();
+        final JsonObject expected = Json.createObjectBuilder().add("i", 1)
+                .add("l", 1L << 40).add("d", 2.5)
+                .add("b", new BigDecimal("3.25")).add("s", "tab\there")
+                .add("t", true).addNull("n")
+                .add("a", Json.createArrayBuilder().add(1).add("x")).build();
+
+        /*
+         * when they are compared
+         */
+        final boolean forward = actual.equals(expected);
+        final boolean backward = expected.equals(actual);
+
+        /*
+         * they are equal either way, hash alike and read back identically
+         */
+        assertTrue(forward);
+        assertTrue(backward);
+        assertEquals(expected.hashCode(), actual.hashCode());
+        assertEquals(expected.getJsonArray("a").hashCode(), actual
+                .getJsonArray("a").hashCode());
+        assertEquals(expected,
+                Json.createReader(new StringReader(actual.toString()))
+                        .readObject());
+
+    }
+
+    @Test
+    public void testLargeObjectLookup() {
+
+        /*
+         * given a kernel object builder with many members, some added twice
+         */
+        // SETUP
+        final JsonObjectBuilder b = JsonOp.defaultFactory()
+                .createObjectBuilder();
+        for (int i = 0; i < 1000; i++) {
+            b.add("k" + i, i);
+        }
+        for (int i = 0; i < 1000; i += 10) {
+            b.add("k" + i, "replaced");
+        }
+
+        /*
+         * when the object is built
+         */
+        final JsonObject actual = b.build();
+
+        /*
+         * every member is found with its latest value, in the original order
+         */
+        assertEquals(1000, actual.size());
+        for (int i = 0; i < 1000; i++) {
+            if (i % 10 == 0) {
+                assertEquals("replaced", actual.getString("k" + i));
+            } else {
+                assertEquals(i, actual.getInt("k" + i));
+            }
+        }
+        assertFalse(actual.containsKey("k1000"));
+        assertEquals("k0", actual.keySet().iterator().next());
+
+    }
+
+    @Test
+    public void testTypedAccessors() {
+
+        /*
+         * given a kernel array of mixed values
+         */
+        // SETUP
+        final JsonArray actual = ImmutableJsonBuilders.array().add(7)
+                .add(7.0).add("s").add(false).addNull().build();
+
+        /*
+         * when values are read through the typed accessors
+         */
+        final boolean integral = actual.getJsonNumber(0).isIntegral();
+        final boolean notIntegral = actual.getJsonNumber(1).isIntegral();
+
+        /*
+         * they follow the javax.json contract
+         */
+        assertTrue(integral);
+        assertFalse(notIntegral);
+        assertEquals(7, actual.getInt(0));
+        assertEquals(7, actual.getInt(2, 7));
+        assertEquals("s", actual.getString(2));
+        assertEquals("d", actual.getString(0, "d"));
+        assertFalse(actual.getBoolean(3));
+        assertTrue(actual.isNull(4));
+        assertEquals(JsonValue.ValueType.ARRAY, actual.getValueType());
+        assertNotEquals(actual.get(0), actual.get(1));
+        assertEquals("[7,7.0,\"s\",false,null]", actual.toString());
+
+    }
+
+}
@@ -21,6 +21,9 @@ import static org.junit.Assert.*;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
 import javax.json.Json;
 import javax.json.JsonArray;
@@ -41,6 +44,52 @@ public class MutableArrayBuilderOpTest {
         this.builder = MutableJsonBuilders.array();
     }
 
+    @Test
+    public void testAddAllStreams() {
+
+        /*
+         * given a builder with a value
+         */
+        // SETUP
+        this.builder.add("first");
+
+        /*
+         * when streams of each primitive type are added in bulk
+         */
+        this.builder.addAll(IntStream.range(0, 3))
+                .addAll(LongStream.of(1L << 40))
+                .addAll(DoubleStream.of(1.5, 2.5)).addAll(new double[0]);
+
+        /*
+         * the values are appended in order
+         */
+        final JsonArray actual = this.builder.merge();
+        final JsonArray expected = Json.createArrayBuilder().add("first")
+                .add(0).add(1).add(2).add(1L << 40).add(1.5).add(2.5).build();
+        assertEquals(expected, actual);
+
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testAddAllRejectsNaN() {
+
+        /*
+         * given doubles that include one that is not a number
+         */
+        // SETUP
+        final double[] values = { 1.0, Double.NaN };
+
+        /*
+         * when they are added in bulk
+         */
+        this.builder.addAll(values);
+
+        /*
+         * the values are rejected
+         */
+
+    }
+
     @Test
     public void testAddBigDecimal() {
 
@@ -257,6 +306,31 @@ public class MutableArrayBuilderOpTest {
 
     }
 
+    @Test
+    public void testAddSupplier() {
+
+        /*
+         * given a builder and a supplier
+         */
+        // SETUP
+        final String v = "Value";
+
+        /*
+         * when add is invoked with the supplier
+         */
+        this.builder.add(() -> Json.createArrayBuilder().add(v).build());
+
+        /*
+         * the builder adds the supplied value
+         */
+        final JsonArray actual = this.builder.merge();
+        final JsonArray expected = Json.createArrayBuilder()
+                .add(Json.createArrayBuilder().add(v)).build();
+
+        assertEquals(expected, actual);
+
+    }
+
     @Test
     public void testClear() {
 
@@ -0,0 +1,355 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pgmr.com.banjocreek.riverbed.builder.json;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.stream.JsonGenerator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.banjocreek.riverbed.builder.json.mutable.JAry;
+import com.banjocreek.riverbed.builder.json.mutable.JObj;
+import com.banjocreek.riverbed.builder.json.mutable.MutableJsonBuilders;
+
+public class MutableBuilderWriteTest {
+
+    /*
+     * pool that counts the tasks submitted to it.
+     */
+    private static final class CountingPool extends ForkJoinPool {
+
+        final AtomicInteger submitted = new AtomicInteger();
+
+        CountingPool() {
+            super(4);
+        }
+
+        @Override
+        public <T> ForkJoinTask<T> submit(final Callable<T> task) {
+            this.submitted.incrementAndGet();
+            return super.submit(task);
+        }
+
+    }
+
+    private JObj<JsonObject> builder;
+
+    @Before
+    public void setup() {
+        this.builder = MutableJsonBuilders.object();
+    }
+
+    @Test
+    public void testDirectByteBuffer() {
+
+        /*
+         * given a builder with text outside of ASCII and a direct buffer
+         */
+        // SETUP
+        this.builder.set("name", "Café ☕").array("tags").add(1.5)
+                .add("\"quoted\"").merge();
+        final ByteBuffer out = ByteBuffer.allocateDirect(256);
+
+        /*
+         * when it is written to the buffer
+         */
+        this.builder.writeTo(out);
+
+        /*
+         * the buffer holds the same bytes as the encoded builder
+         */
+        final byte[] expected = this.builder.toBytes();
+        final byte[] actual = new byte[out.position()];
+        out.flip();
+        out.get(actual);
+        assertArrayEquals(expected, actual);
+        assertEquals(this.builder.merge(),
+                Json.createReader(new ByteArrayInputStream(actual))
+                        .readObject());
+
+    }
+
+    @Test
+    public void testGeneratorFragments() {
+
+        /*
+         * given a builder, an array builder and a generator that has started
+         * a document
+         */
+        // SETUP
+        this.builder.set("a", "A").array("b").add(1).merge();
+        final JAry<JsonArray> ary = MutableJsonBuilders.array().add("x")
+                .object().set("y", true).merge();
+        final StringWriter out = new StringWriter();
+        final JsonGenerator gen = Json.createGenerator(out);
+        gen.writeStartArray();
+
+        /*
+         * when the builders are written as elements and as a member
+         */
+        this.builder.writeTo(gen);
+        gen.writeStartObject();
+        ary.writeTo("items", gen);
+        gen.writeEnd().writeEnd().close();
+
+        /*
+         * the builders' instances are embedded in the document
+         */
+        final JsonArray actual = Json.createReader(
+                new StringReader(out.toString())).readArray();
+        final JsonArray expected = Json
+                .createArrayBuilder()
+                .add(this.builder.merge())
+                .add(Json.createObjectBuilder().add("items", ary.merge()))
+                .build();
+        assertEquals(expected, actual);
+
+    }
+
+    @Test
+    public void testManyMemberNames() {
+
+        /*
+         * given an array of objects whose member names repeat, collide and
+         * span many chunks of output
+         */
+        // SETUP
+        final JAry<JsonArray> b = MutableJsonBuilders.array();
+        for (int i = 0; i < 3000; i++) {
+            b.object().set("name" + i % 700, i).set("é" + i % 3, "v" + i)
+                    .set("id", i).merge();
+        }
+
+        /*
+         * when it is written to a byte stream
+         */
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        b.writeTo(out);
+
+        /*
+         * the bytes describe the same array as the merged instance
+         */
+        final JsonArray actual = Json.createReader(
+                new ByteArrayInputStream(out.toByteArray())).readArray();
+        assertEquals(b.merge(), actual);
+
+    }
+
+    @Test
+    public void testNestedWritesOwnContents() {
+
+        /*
+         * given a nested builder
+         */
+        // SETUP
+        final JObj<?> b = this.builder.set("a", "A").object("b")
+                .set("c", "C");
+
+        /*
+         * when the nested builder is written
+         */
+        final StringWriter out = new StringWriter();
+        b.writeTo(out);
+
+        /*
+         * the text describes the nested object
+         */
+        final JsonObject actual = Json.createReader(
+                new StringReader(out.toString())).readObject();
+        final JsonObject expected = Json.createObjectBuilder().add("c", "C")
+                .build();
+        assertEquals(expected, actual);
+
+    }
+
+    @Test
+    public void testOutputStream() {
+
+        /*
+         * given a builder with text outside of ASCII
+         */
+        // SETUP
+        this.builder.set("name", "Café ☕").array("tags")
+                .add("\"quoted\"").merge();
+
+        /*
+         * when it is written to a byte stream
+         */
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        this.builder.writeTo(out);
+
+        /*
+         * the bytes are UTF-8 text describing the same object as the merged
+         * instance
+         */
+        final JsonObject actual = Json.createReader(
+                new ByteArrayInputStream(out.toByteArray())).readObject();
+        assertEquals(this.builder.merge(), actual);
+
+    }
+
+    @Test
+    public void testParallelChannel() {
+
+        /*
+         * given an array builder with many more elements than one chunk
+         */
+        // SETUP
+        final JAry<JsonArray> b = MutableJsonBuilders.array();
+        for (int i = 0; i < 20000; i++) {
+            b.object().set("i", i).set("s", "é" + i).array("a").add(i)
+                    .merge().merge();
+        }
+        b.addAll(new double[] { 0.5, 2.5 });
+        final ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+        b.writeTo(Channels.newChannel(sequential));
+
+        /*
+         * when it is written in parallel
+         */
+        final ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            b.writeTo(Channels.newChannel(parallel), pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        /*
+         * the bytes are those of a sequential write
+         */
+        assertArrayEquals(sequential.toByteArray(), parallel.toByteArray());
+
+    }
+
+    @Test
+    public void testParallelChunks() {
+
+        /*
+         * given an array of two packed runs and one of a few large objects
+         */
+        // SETUP
+        final double[] run = new double[50000];
+        for (int i = 0; i < run.length; i++) {
+            run[i] = i + 0.5;
+        }
+        final JAry<JsonArray> packed = MutableJsonBuilders.array()
+                .addAll(run).addAll(run);
+        final JAry<JsonArray> large = MutableJsonBuilders.array();
+        for (int i = 0; i < 8; i++) {
+            final JObj<JAry<JsonArray>> o = large.object();
+            for (int j = 0; j < 5000; j++) {
+                o.set("k" + j, j);
+            }
+            o.merge();
+        }
+
+        /*
+         * when they are written in parallel
+         */
+        final CountingPool pool = new CountingPool();
+        final ByteArrayOutputStream packedOut = new ByteArrayOutputStream();
+        final ByteArrayOutputStream largeOut = new ByteArrayOutputStream();
+        final int packedTasks;
+        try {
+            packed.writeTo(Channels.newChannel(packedOut), pool);
+            packedTasks = pool.submitted.getAndSet(0);
+            large.writeTo(Channels.newChannel(largeOut), pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        /*
+         * each is divided between several tasks, and the bytes are those of
+         * a sequential write
+         */
+        assertTrue("packed " + packedTasks, packedTasks > 1);
+        assertTrue("large " + pool.submitted, pool.submitted.get() > 1);
+        assertArrayEquals(packed.toBytes(), packedOut.toByteArray());
+        assertArrayEquals(large.toBytes(), largeOut.toByteArray());
+
+    }
+
+    @Test
+    public void testUnpairedSurrogate() {
+
+        /*
+         * given a builder with a string holding an unpaired surrogate
+         */
+        // SETUP
+        this.builder.set("s", "x\uD800y");
+
+        /*
+         * when it is encoded and when its merged instance is printed
+         */
+        final String bytes = new String(this.builder.toBytes(),
+                StandardCharsets.UTF_8);
+        final String printed = this.builder.merge().toString();
+
+        /*
+         * the surrogate is escaped rather than replaced
+         */
+        assertEquals("{\"s\":\"x\\ud800y\"}", bytes);
+        assertEquals(bytes, printed);
+
+    }
+
+    @Test
+    public void testWriter() {
+
+        /*
+         * given a builder with nested and continued values
+         */
+        // SETUP
+        this.builder.set("a", 2.5).object("b").set("c", 3).merge()
+                .continueObject("b").set("d", false).merge().array("e")
+                .addNull().merge();
+
+        /*
+         * when it is written to a character stream
+         */
+        final StringWriter out = new StringWriter();
+        this.builder.writeTo(out);
+
+        /*
+         * the text describes the same object as the merged instance
+         */
+        final JsonObject actual = Json.createReader(
+                new StringReader(out.toString())).readObject();
+        assertEquals(this.builder.merge(), actual);
+
+    }
+
+}
@@ -0,0 +1,192 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pgmr.com.banjocreek.riverbed.builder.json;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.banjocreek.riverbed.builder.json.mutable.JMetrics;
+import com.banjocreek.riverbed.builder.json.mutable.MutableJsonBuilders;
+
+public class MutableMetricsBuilderTest {
+
+    private JMetrics builder;
+
+    @Before
+    public void setup() {
+        this.builder = MutableJsonBuilders.metrics();
+    }
+
+    @Test
+    public void testAccumulate() {
+
+        /*
+         * given a builder
+         */
+        // SETUP
+
+        /*
+         * when values are recorded under several kinds of member
+         */
+        this.builder.increment("requests").increment("requests", 4)
+                .add("seconds", 0.25).add("seconds", 0.5).max("peak", 3L)
+                .max("peak", 7L).max("peak", 5L).min("fastest", 0.75)
+                .min("fastest", 0.125);
+
+        /*
+         * each member holds the accumulation of its values
+         */
+        final JsonObject actual = this.builder.merge();
+        final JsonObject expected = Json.createObjectBuilder()
+                .add("requests", 5).add("seconds", 0.75).add("peak", 7)
+                .add("fastest", 0.125).build();
+        assertEquals(expected, actual);
+        assertEquals(expected, Json.createReader(
+                new StringReader(new String(this.builder.toBytes())))
+                .readObject());
+    }
+
+    @Test
+    public void testConcurrentIncrement() throws Exception {
+
+        /*
+         * given several threads
+         */
+        // SETUP
+        final int threads = 8, increments = 10000;
+        final List<Thread> workers = new ArrayList<>();
+
+        /*
+         * when every thread increments the same and its own members
+         */
+        for (int t = 0; t < threads; t++) {
+            final String own = "t" + t;
+            final Thread worker = new Thread(() -> {
+                for (int i = 0; i < increments; i++) {
+                    this.builder.increment("total").max("max", (long) i)
+                            .increment(own);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        for (final Thread worker : workers) {
+            worker.join();
+        }
+
+        /*
+         * no increment is lost
+         */
+        final JsonObject actual = this.builder.merge();
+        assertEquals(threads * increments, actual.getInt("total"));
+        assertEquals(increments - 1, actual.getInt("max"));
+        assertEquals(increments, actual.getInt("t0"));
+    }
+
+    @Test
+    public void testConcurrentSnapshots() throws Exception {
+
+        /*
+         * given several threads incrementing a count
+         */
+        // SETUP
+        final int threads = 4, increments = 50000;
+        final List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final Thread worker = new Thread(() -> {
+                for (int i = 0; i < increments; i++) {
+                    this.builder.increment("total");
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+
+        /*
+         * when snapshots are taken and reset while they run
+         */
+        long seen = 0;
+        while (workers.stream().anyMatch(Thread::isAlive)) {
+            seen += this.builder.mergeThenReset().getInt("total", 0);
+        }
+        for (final Thread worker : workers) {
+            worker.join();
+        }
+        seen += this.builder.mergeThenReset().getInt("total", 0);
+
+        /*
+         * every increment appears in exactly one snapshot
+         */
+        assertEquals(threads * increments, seen);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testKindMismatch() {
+
+        /*
+         * given a count
+         */
+        // SETUP
+        this.builder.increment("requests");
+
+        /*
+         * when a maximum is recorded under the same name, it is rejected
+         */
+        this.builder.max("requests", 3L);
+    }
+
+    @Test
+    public void testMergeThenReset() {
+
+        /*
+         * given a builder with a sum, a maximum, and a minimum
+         */
+        // SETUP
+        this.builder.increment("requests", 3).max("peak", 2.5)
+                .min("fastest", 4L);
+
+        /*
+         * when it is merged and reset, and then a maximum is recorded
+         */
+        final JsonObject first = this.builder.mergeThenReset();
+        final JsonObject second = this.builder.merge();
+        this.builder.max("peak", 1.5);
+        final JsonObject third = this.builder.merge();
+
+        /*
+         * the first result holds the values, the reset sum is zero, and the
+         * maximum and minimum are left out until they are recorded again
+         */
+        assertEquals(Json.createObjectBuilder().add("fastest", 4)
+                .add("peak", 2.5).add("requests", 3).build(), first);
+        assertEquals(Json.createObjectBuilder().add("requests", 0).build(),
+                second);
+        assertEquals(Json.createObjectBuilder().add("peak", 1.5)
+                .add("requests", 0).build(), third);
+    }
+
+}
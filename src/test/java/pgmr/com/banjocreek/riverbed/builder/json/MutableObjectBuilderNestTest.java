@@ -19,8 +19,13 @@ package pgmr.com.banjocreek.riverbed.builder.json;
 
 import static org.junit.Assert.*;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
 import javax.json.Json;
+import javax.json.JsonArrayBuilder;
 import javax.json.JsonObject;
+import javax.json.JsonValue;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -68,6 +73,36 @@ public class MutableObjectBuilderNestTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    public void testContinuedArrayRepeatedly() {
+
+        /*
+         * given a builder with a value that is not an array
+         */
+        // SETUP
+        final String k1 = "key one";
+        this.builder.set(k1, "Value1");
+
+        /*
+         * when an array is continued at that key many times
+         */
+        for (int i = 0; i < 10000; i++) {
+            this.builder.continueArray(k1).add(i).add("v" + i).merge();
+        }
+
+        /*
+         * the builder will produce every continuation in order
+         */
+        final JsonObject actual = this.builder.merge();
+        final JsonArrayBuilder expectedArray = Json.createArrayBuilder();
+        for (int i = 0; i < 10000; i++) {
+            expectedArray.add(i).add("v" + i);
+        }
+        final JsonObject expected = Json.createObjectBuilder()
+                .add(k1, expectedArray).build();
+        assertEquals(expected, actual);
+    }
+
     @Test
     public void testContinuedObject() {
 
@@ -102,6 +137,37 @@ public class MutableObjectBuilderNestTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    public void testContinuedObjectNested() {
+
+        /*
+         * given a builder with objects nested two deep
+         */
+        // SETUP
+        this.builder.object("a").object("b").set("x", 1).set("y", 2).merge()
+                .set("c", 3).merge();
+
+        /*
+         * when the deeper object is continued through its parent
+         */
+        this.builder.continueObject("a").continueObject("b").set("y", 20)
+                .set("z", 30).merge().merge();
+
+        /*
+         * the changes are merged at each level
+         */
+        final JsonObject actual = this.builder.merge();
+        final JsonObject expected = Json
+                .createObjectBuilder()
+                .add("a",
+                        Json.createObjectBuilder()
+                                .add("b",
+                                        Json.createObjectBuilder().add("x", 1)
+                                                .add("y", 20).add("z", 30))
+                                .add("c", 3)).build();
+        assertEquals(expected, actual);
+    }
+
     @Test
     public void testNestedArray() {
 
@@ -130,6 +196,36 @@ public class MutableObjectBuilderNestTest {
 
     }
 
+    @Test
+    public void testNestedDeferredRecomputed() {
+
+        /*
+         * given deferred values nested in an object, an array and a continued
+         * object, each counting its calls
+         */
+        // SETUP
+        final AtomicInteger calls = new AtomicInteger();
+        final Supplier<JsonValue> counted = () -> Json.createArrayBuilder()
+                .add(calls.incrementAndGet()).build();
+        this.builder.object("o").set("x", counted).merge().array("a")
+                .add(counted).merge().object("c").set("y", 0).merge()
+                .continueObject("c").set("z", counted).merge();
+
+        /*
+         * when the builder is merged twice
+         */
+        final JsonObject first = this.builder.merge();
+        final JsonObject second = this.builder.merge();
+
+        /*
+         * every deferred value is computed again for the second merge
+         */
+        assertEquals(6, calls.get());
+        assertNotEquals(first.getJsonObject("o"), second.getJsonObject("o"));
+        assertNotEquals(first.getJsonArray("a"), second.getJsonArray("a"));
+        assertNotEquals(first.getJsonObject("c"), second.getJsonObject("c"));
+    }
+
     @Test
     public void testNestedObject() {
 
@@ -273,6 +273,23 @@ public class MutableObjectBuilderOpTest {
 
     }
 
+    @Test(expected = NumberFormatException.class)
+    public void testSetDoubleNotANumber() {
+
+        /*
+         * given a builder, a key, and a value with no JSON representation
+         */
+        // SETUP
+        final String k = "Key";
+        final double v = Double.NaN;
+
+        /*
+         * when set is invoked with the key and value, it is rejected
+         */
+        this.builder.set(k, v);
+
+    }
+
     @Test
     public void testSetInteger() {
 
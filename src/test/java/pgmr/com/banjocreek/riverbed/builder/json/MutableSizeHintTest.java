@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pgmr.com.banjocreek.riverbed.builder.json;
+
+import static org.junit.Assert.*;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+
+import org.junit.Test;
+
+import com.banjocreek.riverbed.builder.json.mutable.JAry;
+import com.banjocreek.riverbed.builder.json.mutable.JObj;
+import com.banjocreek.riverbed.builder.json.mutable.MutableJsonBuilders;
+
+public class MutableSizeHintTest {
+
+    @Test
+    public void testHintedArrayOfObjects() {
+
+        /*
+         * given an array builder sized for its elements
+         */
+        // SETUP
+        final JAry<JsonArray> builder = MutableJsonBuilders.array(100);
+
+        /*
+         * when objects sized for their members are nested in it
+         */
+        for (int i = 0; i < 100; i++) {
+            builder.object(3).set("id", i).set("name", "n" + i)
+                    .array("tags", 1).add(i % 2 == 0).merge().merge();
+        }
+
+        /*
+         * the array holds every object
+         */
+        final JsonArray actual = builder.merge();
+        final JsonArrayBuilder expected = Json.createArrayBuilder();
+        for (int i = 0; i < 100; i++) {
+            expected.add(Json.createObjectBuilder().add("id", i)
+                    .add("name", "n" + i)
+                    .add("tags", Json.createArrayBuilder().add(i % 2 == 0)));
+        }
+        assertEquals(expected.build(), actual);
+    }
+
+    @Test
+    public void testHintExceeded() {
+
+        /*
+         * given an object builder sized for fewer members than it will get
+         */
+        // SETUP
+        final JObj<JsonObject> builder = MutableJsonBuilders.object(1);
+
+        /*
+         * when more members are set, with defaults
+         */
+        builder.set("a", 1).set("b", 2).set("c", 3)
+                .withDefault(Json.createObjectBuilder().add("d", 4).build());
+
+        /*
+         * the object holds all of them
+         */
+        final JsonObject expected = Json.createObjectBuilder().add("a", 1)
+                .add("b", 2).add("c", 3).add("d", 4).build();
+        assertEquals(expected, builder.merge());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeHint() {
+
+        /*
+         * given an object builder
+         */
+        // SETUP
+        final JObj<JsonObject> builder = MutableJsonBuilders.object();
+
+        /*
+         * when an object is nested with a negative hint it is rejected
+         */
+        builder.object("a", -1);
+    }
+
+}
@@ -0,0 +1,213 @@
+/**
+ * Copyright (C) Greg Wiley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pgmr.com.banjocreek.riverbed.builder.json;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+
+import org.junit.Test;
+
+import com.banjocreek.riverbed.builder.json.immutable.ImmutableJsonBuilders;
+import com.banjocreek.riverbed.builder.json.immutable.JAry;
+import com.banjocreek.riverbed.builder.json.immutable.JObj;
+import com.banjocreek.riverbed.builder.json.kernel.PersistentMap;
+import com.banjocreek.riverbed.builder.json.kernel.PersistentVector;
+
+public class PersistentStateTest {
+
+    private static final class Colliding {
+
+        private final int id;
+
+        Colliding(final int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof Colliding && ((Colliding) obj).id == this.id;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.id % 7;
+        }
+
+    }
+
+    @Test
+    public void testBranchesAreIndependent() {
+
+        /*
+         * given a long array and a large object that are each extended along
+         * two branches
+         */
+        // SETUP
+        JAry<JsonArray, JsonArray> ary = ImmutableJsonBuilders.array();
+        JObj<JsonObject, JsonObject> obj = ImmutableJsonBuilders.object();
+        final JsonArrayBuilder expectedAry = Json.createArrayBuilder();
+        final JsonObjectBuilder expectedObj = Json.createObjectBuilder();
+        for (int i = 0; i < 2000; i++) {
+            ary = ary.add(i);
+            obj = obj.set("k" + i, i);
+            expectedAry.add(i);
+            expectedObj.add("k" + i, i);
+        }
+        final JsonArray baseAry = expectedAry.build();
+        final JsonObject baseObj = expectedObj.build();
+        final JAry<JsonArray, JsonArray> aryLeft = ary.add("left");
+        final JAry<JsonArray, JsonArray> aryRight = ary.add("right");
+        final JObj<JsonObject, JsonObject> objLeft = obj.remove("k7");
+        final JObj<JsonObject, JsonObject> objRight = obj.set("k7", "right");
+
+        /*
+         * when each branch is built
+         */
+        final JsonArray actualAryLeft = aryLeft.build();
+        final JsonArray actualAryRight = aryRight.build();
+        final JsonObject actualObjLeft = objLeft.build();
+        final JsonObject actualObjRight = objRight.build();
+
+        /*
+         * each reflects only its own changes and the base is untouched
+         */
+        assertEquals(baseAry, ary.build());
+        assertEquals(baseObj, obj.build());
+        assertEquals(2001, actualAryLeft.size());
+        assertEquals("left", actualAryLeft.getString(2000));
+        assertEquals("right", actualAryRight.getString(2000));
+        assertEquals(baseAry, actualAryRight.subList(0, 2000));
+        assertEquals(1999, actualObjLeft.size());
+        assertFalse(actualObjLeft.containsKey("k7"));
+        assertEquals(2000, actualObjRight.size());
+        assertEquals("right", actualObjRight.getString("k7"));
+
+    }
+
+    @Test
+    public void testMapCollisions() {
+
+        /*
+         * given keys with colliding hashes
+         */
+        // SETUP
+        PersistentMap<Colliding, Integer> map = PersistentMap.empty();
+        for (int i = 0; i < 50; i++) {
+            map = map.with(new Colliding(i), i);
+        }
+
+        /*
+         * when some are removed
+         */
+        for (int i = 0; i < 50; i += 2) {
+            map = map.without(new Colliding(i));
+        }
+
+        /*
+         * the remaining keys are found
+         */
+        assertEquals(25, map.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i % 2 == 0 ? null : Integer.valueOf(i),
+                    map.get(new Colliding(i)));
+        }
+
+    }
+
+    @Test
+    public void testMapMatchesHashMap() {
+
+        /*
+         * given a random sequence of changes
+         */
+        // SETUP
+        final Random random = new Random(42);
+        final Map<Integer, Integer> expected = new HashMap<>();
+        PersistentMap<Integer, Integer> actual = PersistentMap.empty();
+
+        /*
+         * when applied to a persistent map and a hash map
+         */
+        for (int i = 0; i < 20000; i++) {
+            final Integer key = random.nextInt(3000) * 0x10001;
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                actual = actual.without(key);
+            } else {
+                expected.put(key, i);
+                actual = actual.with(key, i);
+            }
+        }
+
+        /*
+         * the maps are equal
+         */
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected, actual);
+        assertEquals(expected, new HashMap<>(actual));
+
+    }
+
+    @Test
+    public void testVectorPreservesVersions() {
+
+        /*
+         * given vectors captured at each size across several trie levels
+         */
+        // SETUP
+        final List<PersistentVector<Integer>> versions = new ArrayList<>();
+        PersistentVector<Integer> v = PersistentVector.empty();
+        for (int i = 0; i < 40000; i++) {
+            if (i % 997 == 0) {
+                versions.add(v);
+            }
+            v = v.with(i);
+        }
+
+        /*
+         * when the versions are read
+         */
+        final List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 40000; i++) {
+            expected.add(i);
+        }
+
+        /*
+         * each holds exactly the elements appended before it was captured
+         */
+        assertEquals(expected, v);
+        for (int n = 0; n < versions.size(); n++) {
+            final PersistentVector<Integer> version = versions.get(n);
+            assertEquals(n * 997, version.size());
+            assertEquals(expected.subList(0, n * 997), version);
+        }
+
+    }
+
+}